@@ -0,0 +1,252 @@
+package benchmark;
+
+import dto.ExecutionBackend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Engine benchmarks over the sample programs.
+ * <p>
+ * Usage: {@code java benchmark.BenchmarkMain [options]}
+ * <pre>
+ *   --dir PATH          program files to benchmark (default: test)
+ *   --programs A,B      only these files, without .xml (default: every .xml in --dir)
+ *   --stages S,...      load, load-stax, translate, extend, execute (default: all)
+ *   --filter REGEX      only cases whose name matches, e.g. "execute divide L[0-2]"
+ *   --sizes N,...       execution input sizes (default: 1,10,100,1000)
+ *   --backends B,...    interpreter, bytecode (default: both)
+ *   --warmup N          warmup iterations per case (default: 3)
+ *   --iterations N      measurement iterations per case (default: 5)
+ *   --time-ms N         length of one iteration (default: 200)
+ *   --timeout-ms N      give up on a case this long after its planned end (default: 30000)
+ *   --forks N           0 = run in this JVM, 1 = a fresh JVM per program (default: 1)
+ *   --cold-calls        clear the function-call memo before every execution
+ *   --csv FILE          also write the results as CSV
+ * </pre>
+ * With forks a program whose case times out is restarted after that case, since the
+ * hung operation cannot be stopped from the outside.
+ */
+public final class BenchmarkMain {
+
+    static final String SEP = "-".repeat(100);
+    static final String ROW = "%-46s %14s %12s %14s %10s  %s";
+
+    // prefix of the lines a forked JVM sends back to its parent
+    private static final String RESULT_LINE = "#result\t";
+    private static final String RESUME_LINE = "#resume\t";
+
+    private Path dir = Path.of("test");
+    private List<String> programs = List.of();
+    private List<String> stages = List.of("load", "load-stax", "translate", "extend", "execute");
+    private Pattern filter = null;
+    private long[] sizes = {1, 10, 100, 1000};
+    private List<ExecutionBackend> backends = List.of(ExecutionBackend.INTERPRETER, ExecutionBackend.BYTECODE);
+    private int warmup = 3;
+    private int iterations = 5;
+    private long timeMillis = 200;
+    private long timeoutMillis = 30_000;
+    private int forks = 1;
+    private boolean coldCalls = false;
+    private Path csv = null;
+    // set in a forked JVM: run one program, starting at case 'from'
+    private String child = null;
+    private int from = 0;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkMain main = new BenchmarkMain();
+        main.parse(args);
+        if (main.child != null) {
+            System.exit(main.runChild());
+        }
+        main.runAll(args);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--dir" -> dir = Path.of(args[++i]);
+                case "--programs" -> programs = List.of(args[++i].split(","));
+                case "--stages" -> stages = List.of(args[++i].split(","));
+                case "--filter" -> filter = Pattern.compile(args[++i]);
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(",")).mapToLong(Long::parseLong).toArray();
+                case "--backends" -> backends = Arrays.stream(args[++i].split(",")).map(ExecutionBackend::fromString).toList();
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--time-ms" -> timeMillis = Long.parseLong(args[++i]);
+                case "--timeout-ms" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--forks" -> forks = Integer.parseInt(args[++i]);
+                case "--cold-calls" -> coldCalls = true;
+                case "--csv" -> csv = Path.of(args[++i]);
+                case "--child" -> child = args[++i];
+                case "--from" -> from = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + a);
+            }
+        }
+    }
+
+    private void runAll(String[] args) throws Exception {
+        List<String> names = programs.isEmpty() ? programFiles() : programs;
+
+        print("====================================================================================================");
+        print(String.format("  S-EMULATOR1  ENGINE BENCHMARKS   warmup %d x %d ms, measure %d x %d ms, forks %d%s",
+                warmup, timeMillis, iterations, timeMillis, forks, coldCalls ? ", cold calls" : ""));
+        print("====================================================================================================");
+        print(String.format(ROW, "case", "mean", "+- stddev", "min", "ops", ""));
+        print(SEP);
+
+        List<String> rows = new ArrayList<>();
+        for (String name : names) {
+            if (forks > 0) {
+                rows.addAll(runForked(name, args));
+            } else {
+                rows.addAll(runProgram(name, 0, System.out));
+            }
+        }
+        print(SEP);
+
+        if (csv != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add("stage,program,level,size,backend,mean_ns,stddev_ns,min_ns,ops,failure");
+            lines.addAll(rows);
+            Files.write(csv, lines, StandardCharsets.UTF_8);
+            print("CSV written to " + csv.toAbsolutePath());
+        }
+    }
+
+    private List<String> programFiles() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(".xml"))
+                    .map(n -> n.substring(0, n.length() - ".xml".length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // one JVM per program; restarted after a case that timed out
+    private List<String> runForked(String name, String[] args) throws Exception {
+        List<String> rows = new ArrayList<>();
+        int start = 0;
+        while (start >= 0) {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(BenchmarkMain.class.getName());
+            command.addAll(Arrays.asList(args));
+            command.addAll(List.of("--child", name, "--from", Integer.toString(start)));
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            int resume = -1;
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(RESULT_LINE)) {
+                        rows.add(line.substring(RESULT_LINE.length()));
+                    } else if (line.startsWith(RESUME_LINE)) {
+                        resume = Integer.parseInt(line.substring(RESUME_LINE.length()));
+                    } else {
+                        print(line);
+                    }
+                }
+            }
+            int exit = process.waitFor();
+            if (exit != 0 && resume < 0) {
+                print(String.format(ROW, name, "", "", "", "", "forked JVM exited with " + exit));
+            }
+            start = resume;
+        }
+        return rows;
+    }
+
+    // in a forked JVM: prints rows and sends results (and where to resume) to the parent
+    private int runChild() throws Exception {
+        PrintStream out = System.out;
+        List<String> rows = runProgram(child, from, out);
+        for (String row : rows) {
+            if (row.startsWith(RESUME_LINE)) {
+                out.println(row);
+                out.flush();
+                return 2; // a worker thread is stuck, this JVM cannot be trusted for timing anymore
+            }
+            out.println(RESULT_LINE + row);
+        }
+        out.flush();
+        return 0;
+    }
+
+    // runs the cases of one program from 'first' on; stops at the first timeout when forked
+    private List<String> runProgram(String name, int first, PrintStream out) throws Exception {
+        List<String> rows = new ArrayList<>();
+        Path file = dir.resolve(name + ".xml");
+        List<EngineBenchmarks.Case> cases;
+        try {
+            cases = EngineBenchmarks.cases(name, Files.readString(file), sizes, backends, coldCalls);
+        } catch (Exception e) {
+            out.println(String.format(ROW, name, "", "", "", "", "error: " + e.getMessage()));
+            return rows;
+        }
+
+        Harness harness = new Harness(warmup, iterations, timeMillis, timeoutMillis);
+        boolean stuck = false;
+        for (int i = first; i < cases.size(); i++) {
+            EngineBenchmarks.Case c = cases.get(i);
+            if (!stages.contains(c.stage()) || (filter != null && !filter.matcher(c.name()).find())) continue;
+            if (stuck) {
+                out.println(String.format(ROW, c.name(), "", "", "", "", "skipped (earlier timeout)"));
+                continue;
+            }
+
+            Harness.Result r = harness.measure(c.op());
+            out.println(String.format(ROW, c.name(),
+                    r.ok() ? time(r.meanNanos()) : "", r.ok() ? time(r.stdDevNanos()) : "",
+                    r.ok() ? time(r.minNanos()) : "", r.ok() ? Long.toString(r.operations()) : "",
+                    r.ok() ? "" : r.failure()));
+            out.flush();
+            rows.add(csvRow(c, r));
+
+            if (r.timedOut()) {
+                if (child != null) {
+                    rows.add(RESUME_LINE + (i + 1));
+                    return rows;
+                }
+                stuck = true; // in-process there is no way to stop the stuck thread
+            }
+        }
+        return rows;
+    }
+
+    private static String csvRow(EngineBenchmarks.Case c, Harness.Result r) {
+        return String.join(",", c.stage(), c.program(),
+                c.level() >= 0 ? Integer.toString(c.level()) : "",
+                c.size() >= 0 ? Long.toString(c.size()) : "",
+                c.backend() != null ? c.backend().name() : "",
+                r.ok() ? String.format(Locale.ROOT, "%.1f", r.meanNanos()) : "",
+                r.ok() ? String.format(Locale.ROOT, "%.1f", r.stdDevNanos()) : "",
+                r.ok() ? String.format(Locale.ROOT, "%.1f", r.minNanos()) : "",
+                r.ok() ? Long.toString(r.operations()) : "",
+                r.ok() ? "" : '"' + r.failure().replace("\"", "'") + '"');
+    }
+
+    static String time(double nanos) {
+        if (nanos >= 1e9) return String.format("%.2f s", nanos / 1e9);
+        if (nanos >= 1e6) return String.format("%.2f ms", nanos / 1e6);
+        if (nanos >= 1e3) return String.format("%.2f us", nanos / 1e3);
+        return String.format("%.0f ns", nanos);
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import adapter.translate.JaxbLoader;
+import adapter.translate.ProgramTranslator;
+import adapter.translate.StaxProgramLoader;
+import adapter.xml.generated.SProgram;
+import core.program.Program;
+import dto.ExecutionBackend;
+import logic.execution.FunctionCallCache;
+import logic.execution.ProgramExecutorImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmark cases for one program file, one per stage of getting from XML to a result:
+ * <ul>
+ *   <li>{@code load}      - XML to SProgram with JaxbLoader</li>
+ *   <li>{@code load-stax} - XML to SProgram with StaxProgramLoader</li>
+ *   <li>{@code translate} - ProgramTranslator.translate</li>
+ *   <li>{@code extend}    - Program.extend(level) on a freshly translated program, per level</li>
+ *   <li>{@code execute}   - ProgramExecutorImpl.run on the expanded program, per level, input size and backend</li>
+ * </ul>
+ * Levels go from 0 to {@code calculateMaxDegree()}. For input size n, x1 = n and every
+ * further input is max(1, n / 2).
+ */
+public final class EngineBenchmarks {
+
+    /** One benchmark case; {@code level}, {@code size} and {@code backend} are unset (-1 / null) where they don't apply. */
+    public record Case(String stage, String program, int level, long size, ExecutionBackend backend, Harness.Op op) {
+        public String name() {
+            StringBuilder sb = new StringBuilder(stage).append(' ').append(program);
+            if (level >= 0) sb.append(" L").append(level);
+            if (size >= 0) sb.append(" n=").append(size);
+            if (backend != null) sb.append(' ').append(backend.name().toLowerCase());
+            return sb.toString();
+        }
+    }
+
+    private EngineBenchmarks() { }
+
+    /**
+     * @param coldCalls clear the function-call memo before every execution, so QUOTE calls are
+     *                  really run instead of answered by earlier operations
+     */
+    public static List<Case> cases(String programName, String xml, long[] sizes,
+                                   List<ExecutionBackend> backends, boolean coldCalls) throws Exception {
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case("load", programName, -1, -1, null, () -> nameLength(JaxbLoader.loadFromContent(xml))));
+        cases.add(new Case("load-stax", programName, -1, -1, null, () -> nameLength(StaxProgramLoader.loadFromContent(xml))));
+
+        SProgram sProgram = JaxbLoader.loadFromContent(xml);
+        cases.add(new Case("translate", programName, -1, -1, null,
+                () -> ProgramTranslator.translate(sProgram).errors.size()));
+
+        ProgramTranslator.Result translated = ProgramTranslator.translate(sProgram);
+        if (!translated.errors.isEmpty()) {
+            return cases; // nothing to expand or run
+        }
+        Program program = translated.program;
+        int maxLevel = program.calculateMaxDegree();
+        int inputCount = Math.max(1, program.getXVariablesPeek().size());
+
+        for (int level = 0; level <= maxLevel; level++) {
+            int lvl = level;
+            cases.add(new Case("extend", programName, level, -1, null, new Harness.Op() {
+                Program fresh;
+
+                @Override
+                public void prepare() {
+                    fresh = ProgramTranslator.translate(sProgram).program; // a new program has no cached levels
+                }
+
+                @Override
+                public long run() {
+                    fresh.extend(lvl);
+                    return fresh.getInstructions().size();
+                }
+            }));
+        }
+
+        for (int level = 0; level <= maxLevel; level++) {
+            for (long size : sizes) {
+                for (ExecutionBackend backend : backends) {
+                    int lvl = level;
+                    List<Long> inputs = inputs(inputCount, size);
+                    cases.add(new Case("execute", programName, level, size, backend, new Harness.Op() {
+                        @Override
+                        public void prepare() {
+                            if (coldCalls) FunctionCallCache.shared().clear();
+                        }
+
+                        @Override
+                        public long run() {
+                            // the level's plan is built by the first operation and reused after that
+                            ProgramExecutorImpl exe = new ProgramExecutorImpl(program, lvl);
+                            exe.setBackend(backend);
+                            return exe.run(inputs);
+                        }
+                    }));
+                }
+            }
+        }
+        return cases;
+    }
+
+    static List<Long> inputs(int count, long size) {
+        List<Long> inputs = new ArrayList<>(count);
+        inputs.add(size);
+        for (int i = 1; i < count; i++) {
+            inputs.add(Math.max(1, size / 2));
+        }
+        return inputs;
+    }
+
+    private static long nameLength(SProgram p) {
+        return p.getName() == null ? 0 : p.getName().length();
+    }
+}
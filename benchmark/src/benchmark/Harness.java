@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measurement loop for one benchmark case.
+ * Warmup iterations run first and are thrown away; each measurement iteration then
+ * runs the operation for at least {@code iterationMillis} and reports the average
+ * time per operation. Every operation is timed on its own, so the untimed
+ * {@link Op#prepare()} before it is not counted.
+ * A case runs on a worker thread; when it is still running {@code timeoutMillis}
+ * after its planned end (an operation that never finishes), it is interrupted and
+ * reported as timed out.
+ */
+public final class Harness {
+
+    /** One benchmarked operation. */
+    public interface Op {
+        /** Untimed work done before every call of {@link #run()}. */
+        default void prepare() throws Exception { }
+
+        /** @return any value, it is consumed so the JIT cannot drop the work */
+        long run() throws Exception;
+    }
+
+    /** Outcome of a case: time per operation over the measurement iterations, or why it has none. */
+    public record Result(double meanNanos, double stdDevNanos, double minNanos, long operations, String failure) {
+        public static Result failed(String failure) {
+            return new Result(Double.NaN, Double.NaN, Double.NaN, 0, failure);
+        }
+
+        public boolean ok() { return failure == null; }
+
+        public boolean timedOut() { return "timeout".equals(failure); }
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final long timeoutMillis;
+
+    private static volatile long sink;
+
+    public Harness(int warmupIterations, int measurementIterations, long iterationMillis, long timeoutMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Result measure(Op op) {
+        AtomicReference<Result> result = new AtomicReference<>();
+        Thread worker = new Thread(() -> result.set(measureHere(op)), "benchmark-worker");
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis
+                    + (long) (warmupIterations + measurementIterations) * (iterationNanos / 1_000_000L);
+            while (worker.isAlive()) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    worker.interrupt();
+                    worker.join(1_000);
+                    return Result.failed("timeout");
+                }
+                worker.join(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.failed("interrupted");
+        }
+        return result.get();
+    }
+
+    private Result measureHere(Op op) {
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(op);
+            }
+            double[] perOp = new double[measurementIterations];
+            long operations = 0;
+            for (int i = 0; i < measurementIterations; i++) {
+                long[] timed = iteration(op);
+                perOp[i] = (double) timed[0] / timed[1];
+                operations += timed[1];
+            }
+            double mean = 0, min = Double.MAX_VALUE;
+            for (double t : perOp) {
+                mean += t;
+                min = Math.min(min, t);
+            }
+            mean /= perOp.length;
+            double variance = 0;
+            for (double t : perOp) {
+                variance += (t - mean) * (t - mean);
+            }
+            double stdDev = perOp.length > 1 ? Math.sqrt(variance / (perOp.length - 1)) : 0;
+            return new Result(mean, stdDev, min, operations, null);
+        } catch (Throwable t) {
+            String message = t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
+            return Result.failed("error: " + message);
+        }
+    }
+
+    // {timed nanos, operations} of one iteration
+    private long[] iteration(Op op) throws Exception {
+        long timed = 0;
+        long operations = 0;
+        long acc = 0;
+        long start = System.nanoTime();
+        do {
+            op.prepare();
+            long t0 = System.nanoTime();
+            acc += op.run();
+            timed += System.nanoTime() - t0;
+            operations++;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("timeout");
+            }
+        } while (System.nanoTime() - start < iterationNanos);
+        sink += acc;
+        return new long[] { timed, operations };
+    }
+}
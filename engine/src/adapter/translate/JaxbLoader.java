@@ -2,27 +2,67 @@ package adapter.translate;
 
 import adapter.xml.generated.SProgram;
 import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
-// Loader for SProgram XML files using JAXB
+// Loader for SProgram XML files using JAXB.
+// The JAXBContext is built once and shared (building it is the expensive part of a load).
+// An Unmarshaller is not thread-safe, so every load borrows one from a small pool and
+// hands it back after a successful load; when the pool is empty a new one is created.
 public class JaxbLoader {
 
+    static final int MAX_POOLED_UNMARSHALLERS = 16;
+
+    private static volatile JAXBContext context;
+    private static final BlockingQueue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<>(MAX_POOLED_UNMARSHALLERS);
+
     public static SProgram load(Path xmlPath) throws Exception {
-        JAXBContext jaxbContext = JAXBContext.newInstance(SProgram.class);
-        return (SProgram) jaxbContext.createUnmarshaller().unmarshal(xmlPath.toFile());
+        Unmarshaller unmarshaller = borrow();
+        SProgram program = (SProgram) unmarshaller.unmarshal(xmlPath.toFile());
+        giveBack(unmarshaller);
+        return program;
     }
 
     public static SProgram loadFromStream(InputStream stream) throws Exception {
-        JAXBContext jaxbContext = JAXBContext.newInstance(SProgram.class);
-        return (SProgram) jaxbContext.createUnmarshaller().unmarshal(stream);
+        Unmarshaller unmarshaller = borrow();
+        SProgram program = (SProgram) unmarshaller.unmarshal(stream);
+        giveBack(unmarshaller);
+        return program;
     }
 
     public static SProgram loadFromContent(String xmlContent) throws Exception {
         byte[] bytes = xmlContent.getBytes(StandardCharsets.UTF_8);
         return loadFromStream(new ByteArrayInputStream(bytes));
     }
-}
\ No newline at end of file
+
+    private static JAXBContext context() throws JAXBException {
+        JAXBContext c = context;
+        if (c == null) {
+            synchronized (JaxbLoader.class) {
+                c = context;
+                if (c == null) {
+                    c = JAXBContext.newInstance(SProgram.class);
+                    context = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    private static Unmarshaller borrow() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        return unmarshaller != null ? unmarshaller : context().createUnmarshaller();
+    }
+
+    // only unmarshallers that finished a load come back; a full pool just lets the extra one go
+    private static void giveBack(Unmarshaller unmarshaller) {
+        unmarshallers.offer(unmarshaller);
+    }
+}
@@ -0,0 +1,300 @@
+package adapter.translate;
+
+import adapter.xml.generated.SFunction;
+import adapter.xml.generated.SInstruction;
+import adapter.xml.generated.SInstructionArgument;
+import adapter.xml.generated.SProgram;
+import logic.exception.LoadProgramException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming loader for SProgram XML files (StAX), an alternative to JaxbLoader.
+// Builds the same SProgram tree as JAXB does for the same file: unknown elements and
+// attributes are skipped, element text is kept as written, a missing wrapper element
+// leaves its list null. There is no reflection involved, and the Limits are checked
+// while the document is read, so an oversized upload is rejected before it is built.
+// A DOCTYPE is rejected, so no DTD or external entity is ever resolved.
+public final class StaxProgramLoader {
+
+    // bounds on one document; exceeding any of them fails the load with a LoadProgramException
+    public record Limits(long maxBytes, int maxInstructions, int maxFunctions,
+                         int maxArgumentsPerInstruction, int maxTextLength, int maxDepth) {
+
+        public static final Limits DEFAULT = new Limits(16L * 1024 * 1024, 200_000, 1_000, 64, 4_096, 32);
+    }
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final Limits limits;
+    private final CountingInputStream input;
+    private final XMLStreamReader reader;
+    private int instructions;
+    private int functions;
+
+    private StaxProgramLoader(InputStream stream, Limits limits) throws XMLStreamException {
+        this.limits = limits;
+        this.input = new CountingInputStream(stream);
+        this.reader = FACTORY.createXMLStreamReader(input);
+    }
+
+    public static SProgram load(Path xmlPath) throws Exception {
+        return load(xmlPath, Limits.DEFAULT);
+    }
+
+    public static SProgram load(Path xmlPath, Limits limits) throws Exception {
+        try (InputStream stream = Files.newInputStream(xmlPath)) {
+            return loadFromStream(stream, limits);
+        }
+    }
+
+    public static SProgram loadFromStream(InputStream stream) throws Exception {
+        return loadFromStream(stream, Limits.DEFAULT);
+    }
+
+    public static SProgram loadFromStream(InputStream stream, Limits limits) throws Exception {
+        StaxProgramLoader loader = new StaxProgramLoader(stream, limits);
+        try {
+            return loader.readDocument();
+        } finally {
+            loader.reader.close();
+        }
+    }
+
+    public static SProgram loadFromContent(String xmlContent) throws Exception {
+        return loadFromContent(xmlContent, Limits.DEFAULT);
+    }
+
+    public static SProgram loadFromContent(String xmlContent, Limits limits) throws Exception {
+        byte[] bytes = xmlContent.getBytes(StandardCharsets.UTF_8);
+        return loadFromStream(new ByteArrayInputStream(bytes), limits);
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /* ---------- document ---------- */
+
+    private SProgram readDocument() throws XMLStreamException {
+        int event = next();
+        while (event != XMLStreamConstants.START_ELEMENT) {
+            if (event == XMLStreamConstants.DTD) {
+                throw new LoadProgramException("DOCTYPE declarations are not allowed in program files.");
+            }
+            if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new LoadProgramException("The file has no root element.");
+            }
+            event = next();
+        }
+        if (!"S-Program".equals(reader.getLocalName())) {
+            throw new LoadProgramException("Expected <S-Program> as the root element, found <" + reader.getLocalName() + ">.");
+        }
+        return readProgram();
+    }
+
+    private SProgram readProgram() throws XMLStreamException {
+        String name = attribute("name");
+        List<SInstruction> programInstructions = null;
+        List<SFunction> programFunctions = null;
+
+        while (nextChild()) {
+            switch (reader.getLocalName()) {
+                case "S-Instructions" -> programInstructions = readInstructions(programInstructions, 3);
+                case "S-Functions" -> programFunctions = readFunctions(programFunctions);
+                default -> skip(2);
+            }
+        }
+        return new SProgram(name, programInstructions, programFunctions);
+    }
+
+    private List<SFunction> readFunctions(List<SFunction> list) throws XMLStreamException {
+        if (list == null) list = new ArrayList<>();
+        while (nextChild()) {
+            if (!"S-Function".equals(reader.getLocalName())) {
+                skip(3);
+                continue;
+            }
+            if (++functions > limits.maxFunctions()) {
+                throw new LoadProgramException("The program has more than " + limits.maxFunctions() + " functions.");
+            }
+            list.add(readFunction());
+        }
+        return list;
+    }
+
+    private SFunction readFunction() throws XMLStreamException {
+        String name = attribute("name");
+        String userString = attribute("user-string");
+        List<SInstruction> body = null;
+        while (nextChild()) {
+            if ("S-Instructions".equals(reader.getLocalName())) {
+                body = readInstructions(body, 5);
+            } else {
+                skip(4);
+            }
+        }
+        return new SFunction(name, userString, body);
+    }
+
+    // the children of an S-Instructions wrapper; 'depth' is how deep they sit (the root is 1)
+    private List<SInstruction> readInstructions(List<SInstruction> list, int depth) throws XMLStreamException {
+        if (list == null) list = new ArrayList<>();
+        while (nextChild()) {
+            if (!"S-Instruction".equals(reader.getLocalName())) {
+                skip(depth);
+                continue;
+            }
+            if (++instructions > limits.maxInstructions()) {
+                throw new LoadProgramException("The program has more than " + limits.maxInstructions() + " instructions.");
+            }
+            list.add(readInstruction(depth));
+        }
+        return list;
+    }
+
+    private SInstruction readInstruction(int depth) throws XMLStreamException {
+        String name = attribute("name");
+        String type = attribute("type");
+        String label = null;
+        String variable = null;
+        List<SInstructionArgument> arguments = null;
+
+        while (nextChild()) {
+            switch (reader.getLocalName()) {
+                case "S-Label" -> label = text();
+                case "S-Variable" -> variable = text();
+                case "S-Instruction-Arguments" -> arguments = readArguments(arguments, depth + 2);
+                default -> skip(depth + 1);
+            }
+        }
+        return new SInstruction(name, type, label, variable, arguments);
+    }
+
+    private List<SInstructionArgument> readArguments(List<SInstructionArgument> list, int depth) throws XMLStreamException {
+        if (list == null) list = new ArrayList<>();
+        while (nextChild()) {
+            if (!"S-Instruction-Argument".equals(reader.getLocalName())) {
+                skip(depth);
+                continue;
+            }
+            if (list.size() >= limits.maxArgumentsPerInstruction()) {
+                throw new LoadProgramException("An instruction has more than " + limits.maxArgumentsPerInstruction() + " arguments.");
+            }
+            list.add(new SInstructionArgument(attribute("name"), attribute("value")));
+            skip(depth);
+        }
+        return list;
+    }
+
+    /* ---------- reading helpers ---------- */
+
+    // the next event, after checking how much of the input has been read so far
+    private int next() throws XMLStreamException {
+        int event = reader.next();
+        if (input.count > limits.maxBytes()) {
+            throw new LoadProgramException("The file is larger than " + limits.maxBytes() + " bytes.");
+        }
+        return event;
+    }
+
+    // moves to the next child element of the current element; false at its end tag
+    private boolean nextChild() throws XMLStreamException {
+        while (true) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) return true;
+            if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) return false;
+        }
+    }
+
+    // skips the current element and everything inside it; 'depth' is how deep it sits
+    private void skip(int depth) throws XMLStreamException {
+        int open = 1;
+        while (open > 0) {
+            int event = next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                open++;
+                if (depth + open - 1 > limits.maxDepth()) {
+                    throw new LoadProgramException("Elements are nested deeper than " + limits.maxDepth() + " levels.");
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                open--;
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                return;
+            }
+        }
+    }
+
+    // the text of the current element, which must not contain elements
+    private String text() throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int event = next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE,
+                     XMLStreamConstants.ENTITY_REFERENCE -> {
+                    sb.append(reader.getText());
+                    checkText(sb.length());
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    return sb.toString();
+                }
+                case XMLStreamConstants.START_ELEMENT ->
+                        throw new LoadProgramException("Unexpected <" + reader.getLocalName() + "> inside a text element.");
+                case XMLStreamConstants.END_DOCUMENT ->
+                        throw new LoadProgramException("The file ends inside a text element.");
+                default -> { } // comments and processing instructions
+            }
+        }
+    }
+
+    private String attribute(String name) {
+        String value = reader.getAttributeValue(null, name);
+        if (value != null) checkText(value.length());
+        return value;
+    }
+
+    private void checkText(int length) {
+        if (length > limits.maxTextLength()) {
+            throw new LoadProgramException("A value is longer than " + limits.maxTextLength() + " characters.");
+        }
+    }
+
+    // counts the bytes the parser has pulled from the input
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -16,6 +16,14 @@ public class SFunction {
     @XmlElement(name = "S-Instruction")
     private List<SInstruction> sInstructions;
 
+    public SFunction() { }
+
+    public SFunction(String name, String userString, List<SInstruction> sInstructions) {
+        this.name = name;
+        this.userString = userString;
+        this.sInstructions = sInstructions;
+    }
+
     public List<SInstruction> getSInstructions() {
         return sInstructions;
     }
@@ -22,6 +22,16 @@ public class SInstruction {
     @XmlElement(name = "S-Instruction-Argument")
     private List<SInstructionArgument> arguments;
 
+    public SInstruction() { }
+
+    public SInstruction(String name, String type, String label, String variable, List<SInstructionArgument> arguments) {
+        this.name = name;
+        this.type = type;
+        this.label = label;
+        this.variable = variable;
+        this.arguments = arguments;
+    }
+
     public String getName() { return name; }
     public String getType() { return type; }
     public String getLabel() { return label; }
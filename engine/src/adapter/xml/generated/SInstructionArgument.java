@@ -13,6 +13,13 @@ public class SInstructionArgument {
     @XmlAttribute(name = "value")
     private String value;
 
+    public SInstructionArgument() { }
+
+    public SInstructionArgument(String name, String value) {
+        this.name = name;
+        this.value = value;
+    }
+
     public String getName() { return name; }
     public String getValue() { return value; }
 }
\ No newline at end of file
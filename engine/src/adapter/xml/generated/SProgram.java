@@ -19,6 +19,14 @@ public class SProgram {
     @XmlElement(name = "S-Function")
     private List<SFunction> functions;
 
+    public SProgram() { }
+
+    // for loaders that build the tree themselves (StaxProgramLoader)
+    public SProgram(String name, List<SInstruction> instructions, List<SFunction> functions) {
+        this.name = name;
+        this.instructions = instructions;
+        this.functions = functions;
+    }
 
     public String getName() { return name; }
     public List<SInstruction> getInstructions() { return instructions; }
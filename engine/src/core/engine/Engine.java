@@ -18,17 +18,40 @@ public interface Engine {
     ProgramSummary getProgramSummaryForShow();
     List<List<InstructionView>> expandProgramToLevelForExtend(int level);
     List<InstructionView> expandProgramToLevelForRun(int level);
+    // rows [offset, offset + limit) of the run list of 'level', for tables that load what they show
+    default InstructionPage expandProgramToLevelForRun(int level, int offset, int limit) {
+        List<InstructionView> all = expandProgramToLevelForRun(level);
+        int basic = (int) all.stream().filter(v -> "B".equals(v.type())).count();
+        return InstructionPage.of(all, basic, offset, limit);
+    }
     RunResult run(int level, List<Long> inputs);
+    default RunResult run(int level, List<Long> inputs, RunOptions options) {
+        return run(level, inputs);
+    }
+    // runs the program at 'level' once for every input vector; each result goes to the
+    // listener when its vector finishes. Batch runs are not added to the history.
+    default void runBatch(int level, List<List<Long>> inputVectors, RunOptions options, BatchListener listener) {
+        RunOptions opts = options == null ? RunOptions.DEFAULT : options;
+        for (int i = 0; i < inputVectors.size(); i++) {
+            long budget = Math.min(opts.cycleBudget(), listener.budgetFor(i));
+            RunResult result = budget == 0
+                    ? new RunResult(0, Map.of(), 0, RunOutcome.BUDGET_EXHAUSTED)
+                    : run(level, inputVectors.get(i), opts.withCycleBudget(budget));
+            listener.onResult(i, inputVectors.get(i), result);
+        }
+    }
     List<RunSummary> getHistory();
     int getMaxExpandLevel();
     VariableAndLabelMenger getVlm();
     List<List<String>> getInfoForEachInstruction(int level);
     Pair<Map<String, Long>,Integer> startDebug(int currentLevel, List<Long> inputsByOrder);
     Pair<Map<String, Long>,Integer> oneStepInDebug();
+    // steps until the instruction at 'index' is next (-1: to the end), the state once there
+    Pair<Map<String, Long>,Integer> runDebugTo(int index);
     void endDebug();
     Map<String, Long> resumeDebug();
     Map<String, Long> saveDebugRun();
-    int getCycels();
+    long getCycels();
     List<functionView> getAllFunctionViews();
     Program getCurrentProgram();
     void loadFunc(String name);
@@ -2,6 +2,7 @@ package core.engine;
 
 import adapter.translate.JaxbLoader;
 import adapter.translate.ProgramTranslator;
+import core.program.ExpandedProgram;
 import core.program.Function;
 import core.program.Program;
 import core.program.ProgramImpl;
@@ -11,6 +12,7 @@ import dto.Pair;
 import logic.exception.LoadProgramException;
 import logic.exception.NotXMLException;
 import logic.exception.ProgramFileNotFoundException;
+import logic.execution.BatchRunner;
 import logic.execution.ProgramExecutorImpl;
 
 import java.nio.file.Files;
@@ -18,6 +20,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 // implementation of the Engine interface (methods of the engine)
@@ -26,7 +29,8 @@ public class EngineImpl implements Engine {
     private Program currentProgram = null;
     private List<Program> functions = new ArrayList<>();
     private Path xmlPath;
-    ProgramExecutorImpl exe;
+    // volatile: a debug session is ended (and its work cancelled) from another thread than the one stepping it
+    volatile ProgramExecutorImpl exe;
     private int runCounter = 0;
     private int lastDebugLevel = 0;
     private List<Long> lastDebugInputs = new ArrayList<>();
@@ -46,7 +50,7 @@ public class EngineImpl implements Engine {
         for (Program func : functions) {
             if (func.getName().equals(name)) {
                 if (func instanceof Function) {
-                    loaded.add(new Function((Function) func));
+                    loaded.add(((Function) func).forRun());
                 } else {
                     loaded.add(new ProgramImpl((ProgramImpl) func) {
                     });
@@ -61,7 +65,7 @@ public class EngineImpl implements Engine {
 
     @Override
     public VariablesAndLabels getProgramInfo(int level) {
-        currentProgram.expendToLevelForExtend(level);
+        currentProgram.extend(level);
 
         // Fetch all variable names and labels as strings
         List<String> allVars = currentProgram.getVariablesPeek();
@@ -155,6 +159,19 @@ public class EngineImpl implements Engine {
         }
     }
 
+    // start from a program that was already translated (no XML parsing): the engine works on
+    // copies that share its instructions and cached expansions, see Program.forRun()
+    public LoadReport loadTranslated(Program program) {
+        this.currentProgram = program.forRun();
+        loaded.add(currentProgram);
+        List<Program> funcss = new ArrayList<>();
+        for (Function f : getFuncs()) {
+            funcss.add(f.forRun());
+        }
+        this.functions = funcss;
+        return new LoadReport(true, List.of());
+    }
+
     // Use EngineJaxbLoader to load the XML file and ProgramTranslator to translate it to internal representation
     @Override
     public LoadReport loadProgram(Path xmlPath) {
@@ -242,23 +259,44 @@ public class EngineImpl implements Engine {
 
     @Override
     public RunResult run(int level, List<Long> inputs) {
+        return run(level, inputs, RunOptions.DEFAULT);
+    }
 
-        List<InstructionView> instructionViews = currentProgram
-                .instructionViewsAfterExtendRunShow(level);
-        exe = new ProgramExecutorImpl(currentProgram);
+    @Override
+    public RunResult run(int level, List<Long> inputs, RunOptions options) {
+
+        currentProgram.extend(level);
+        exe = new ProgramExecutorImpl(currentProgram, level);
+        exe.setBackend(options == null ? null : options.backend());
+        exe.setCycleBudget(options == null ? RunOptions.UNLIMITED : options.cycleBudget());
+        exe.setProfiling(options != null && options.profile());
         long y = exe.run(inputs);
-        int cycles = exe.cycleCount;
+        long cycles = exe.cycleCount;
 
         RunSummary summary = new RunSummary(++runCounter, level, inputs, y, cycles);
         currentProgram.getsummaries().add(summary);
 
         if (exe != null) {
-            var res = new RunResult(y, exe.variablesState(), cycles);
+            var res = new RunResult(y, exe.variablesState(), cycles, exe.getOutcome(), exe.getProfile());
             return res;
         }
         return null;
     }
 
+    // expands the program once, then spreads the vectors over the cores (see BatchRunner)
+    @Override
+    public void runBatch(int level, List<List<Long>> inputVectors, RunOptions options, BatchListener listener) {
+        currentProgram.extend(level);
+        BatchRunner.run(currentProgram, level, inputVectors, options, listener);
+    }
+
+    // same, with the extra workers run by 'helpers' and at most 'parallelism' vectors at a time
+    public void runBatch(int level, List<List<Long>> inputVectors, RunOptions options, BatchListener listener,
+                         Executor helpers, int parallelism) {
+        currentProgram.extend(level);
+        BatchRunner.run(currentProgram, level, inputVectors, options, listener, helpers, parallelism);
+    }
+
     @Override
     public List<RunSummary> getHistory() {
         return currentProgram.getsummaries();
@@ -275,6 +313,14 @@ public class EngineImpl implements Engine {
         return allInstructions;
     }
 
+    // a page straight from the cached rows of the level, the rest of the list is not copied
+    @Override
+    public InstructionPage expandProgramToLevelForRun(int level, int offset, int limit) {
+        currentProgram.extend(level);
+        ExpandedProgram expanded = currentProgram.expand(level);
+        return InstructionPage.of(expanded.getViews(), expanded.getBasicCount(), offset, limit);
+    }
+
     public int getMaxExpandLevel() {
         if (currentProgram == null) {
             throw new LoadProgramException("No program is loaded. Please load a file to display a program.");
@@ -298,11 +344,10 @@ public class EngineImpl implements Engine {
         this.lastDebugInputs = inputs == null ? new ArrayList<>() : new ArrayList<>(inputs);
 
         // expend the program to the specified level
-        List<InstructionView> instructionViews = currentProgram
-                .instructionViewsAfterExtendRunShow(level);
+        currentProgram.extend(level);
 
         //create the executor
-        exe = new ProgramExecutorImpl(currentProgram);
+        exe = new ProgramExecutorImpl(currentProgram, level);
 
         // intialize all the variables iin context
         exe.init(inputs);
@@ -325,17 +370,79 @@ public class EngineImpl implements Engine {
         return info;
     }
 
+    @Override
+    public Pair<Map<String, Long>,Integer> runDebugTo(int index) {
+        int at = exe.runTo(index);
+        return new Pair<>(exe.variablesState(), at);
+    }
+
+    // a step for clients that keep their own copy of the variables: only the variables the step
+    // changed come back. debugStateVersion() counts the steps, debugVariables() is the whole state.
+    public Pair<Map<String, Long>,Integer> oneStepInDebugChanges() {
+        int index = exe.runOneStep();
+        return new Pair<>(exe.variablesChanged(), index);
+    }
+
+    public long debugStateVersion() {
+        return exe.getStateVersion();
+    }
+
+    public Map<String, Long> debugVariables() {
+        return exe.variablesState();
+    }
+
+    // time travel: the whole state after 'step' steps of the session (0 = as started), taken
+    // from the nearest checkpoint and replayed from there, or stepped forward to. Not possible
+    // once resumeDebug() ran (IllegalStateException).
+    public Pair<Map<String, Long>,Integer> debugGoToStep(long step) {
+        int index = exe.goToStep(step);
+        return new Pair<>(exe.variablesState(), index);
+    }
+
+    public Pair<Map<String, Long>,Integer> debugStepBack() {
+        int index = exe.stepBack();
+        return new Pair<>(exe.variablesState(), index);
+    }
+
+    // the steps the debug state is at
+    public long debugStepCount() {
+        return exe.getStepCount();
+    }
+
+    // the breakpoints debugRunSteps() stops at (IllegalArgumentException for one that does not
+    // fit the program being debugged, the old ones stay then)
+    public void setDebugBreakpoints(List<Breakpoint> breakpoints) {
+        exe.setBreakpoints(breakpoints);
+    }
+
+    // up to 'count' steps in one go (Long.MAX_VALUE: until a breakpoint or the end), stopping
+    // before an instruction a breakpoint is hit at; only the variables changed on the way come back
+    public Pair<Map<String, Long>,Integer> debugRunSteps(long count) {
+        // endDebug() may drop the executor while the steps run, they finish on this one
+        ProgramExecutorImpl e = exe;
+        int index = e.runSteps(count);
+        return new Pair<>(e.variablesChanged(), index);
+    }
+
+    public boolean debugAtBreakpoint() {
+        return exe.isAtBreakpoint();
+    }
+
     @Override
     public void endDebug() {
+        // steps, a continue or a resume still running on it stop at their next check
+        ProgramExecutorImpl e = exe;
+        if (e != null) e.cancel();
         exe = null;
     }
 
     @Override
     public Map<String, Long> resumeDebug() {
-        exe.resume();
-        Map<String, Long> finalState = exe.variablesState();
+        ProgramExecutorImpl e = exe;
+        e.resume();
+        Map<String, Long> finalState = e.variablesState();
         long y = finalState.getOrDefault("y", 0L);
-        RunSummary summary = new RunSummary(++runCounter, lastDebugLevel, lastDebugInputs, y, exe.cycleCount);
+        RunSummary summary = new RunSummary(++runCounter, lastDebugLevel, lastDebugInputs, y, e.cycleCount);
         currentProgram.getsummaries().add(summary);
         return finalState;
     }
@@ -350,10 +457,20 @@ public class EngineImpl implements Engine {
     }
 
     @Override
-    public int getCycels() {
+    public long getCycels() {
         return exe.cycleCount;
     }
 
+    // total cycles the debug run may use; steps and resume stop there (BUDGET_EXHAUSTED)
+    public void setDebugCycleBudget(long cycles) {
+        exe.setCycleBudget(cycles);
+    }
+
+    // how the last run, step or resume ended
+    public RunOutcome getLastOutcome() {
+        return exe == null ? RunOutcome.COMPLETED : exe.getOutcome();
+    }
+
 
     @Override
     public List<functionView> getAllFunctionViews() {
@@ -0,0 +1,203 @@
+package core.program;
+
+import dto.InstructionView;
+import logic.execution.ExecutionPlan;
+import logic.instruction.Instruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// One expansion level of a program, built once and never changed afterwards.
+// Runs, debug sessions and the display code all read the same instance, so nothing
+// re-expands the program or mutates a list another thread is still reading.
+public final class ExpandedProgram {
+
+    // level of the instructions as loaded, before the first extend()
+    public static final int UNEXPANDED = -1;
+
+    private final int level;
+    private final List<Instruction> instructions;
+    private final VariableAndLabelMenger vlm;
+    // control-flow table of this level, compiled on first use
+    private volatile ExecutionPlan executionPlan;
+    // where each instruction came from, null for the instructions as loaded
+    private final ExpansionTrace trace;
+    // the history chain of each instruction, built on first use
+    private volatile List<List<InstructionView>> historyViews;
+    // the rows of the run list and what they hold, built on first use
+    private volatile Listing listing;
+
+    // the x variables the instructions use, in order of first use
+    private volatile List<String> inputVariables;
+
+    private record Listing(List<InstructionView> views, int basicCount, Map<String, Integer> nameCounts) {}
+
+    ExpandedProgram(int level, List<Instruction> instructions, VariableAndLabelMenger vlm) {
+        this(level, instructions, vlm, null);
+    }
+
+    ExpandedProgram(int level, List<Instruction> instructions, VariableAndLabelMenger vlm, ExpansionTrace trace) {
+        this.level = level;
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.vlm = vlm;
+        this.trace = trace;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public int size() {
+        return instructions.size();
+    }
+
+    // the names handed out while expanding (the GUI lists the variables from it)
+    public VariableAndLabelMenger getVlm() {
+        return vlm;
+    }
+
+    public ExecutionPlan getExecutionPlan() {
+        ExecutionPlan plan = executionPlan;
+        if (plan == null) {
+            synchronized (this) {
+                plan = executionPlan;
+                if (plan == null) {
+                    plan = ExecutionPlan.compile(instructions);
+                    executionPlan = plan;
+                }
+            }
+        }
+        return plan;
+    }
+
+    // the run list as table rows, numbered from 1; built once, then shared by every page asked for
+    public List<InstructionView> getViews() {
+        return listing().views();
+    }
+
+    public int getBasicCount() {
+        return listing().basicCount();
+    }
+
+    // how many instructions of each name (INCREASE, QUOTE, ...) the level has
+    public Map<String, Integer> getNameCounts() {
+        return listing().nameCounts();
+    }
+
+    private Listing listing() {
+        Listing l = listing;
+        if (l == null) {
+            synchronized (this) {
+                l = listing;
+                if (l == null) {
+                    List<InstructionView> views = new ArrayList<>(instructions.size());
+                    Map<String, Integer> counts = new HashMap<>();
+                    int basic = 0;
+                    for (Instruction ins : instructions) {
+                        views.add(ProgramImpl.toView(ins, views.size() + 1));
+                        if (ins.isBasic()) basic++;
+                        counts.merge(ins.getName(), 1, Integer::sum);
+                    }
+                    l = new Listing(Collections.unmodifiableList(views), basic, Collections.unmodifiableMap(counts));
+                    listing = l;
+                }
+            }
+        }
+        return l;
+    }
+
+    public List<String> getInputVariables() {
+        List<String> inputs = inputVariables;
+        if (inputs == null) {
+            Set<String> variables = new LinkedHashSet<>();
+            for (Instruction instr : instructions) {
+                for (String s : instr.getAllInfo()) {
+                    ProgramImpl.addIfStartsWithX(variables, s);
+                }
+            }
+            inputs = List.copyOf(variables);
+            inputVariables = inputs;
+        }
+        return inputs;
+    }
+
+    // one chain per instruction, in the order of the instructions: the program instruction it
+    // came from first, the instruction itself last, numbered from 1 along the chain.
+    // The chains of each program instruction are built as their own task on the common
+    // fork/join pool and put back in place, so the result never depends on the scheduling.
+    public List<List<InstructionView>> getHistoryViews() {
+        List<List<InstructionView>> views = historyViews;
+        if (views == null) {
+            synchronized (this) {
+                views = historyViews;
+                if (views == null) {
+                    views = buildHistoryViews();
+                    historyViews = views;
+                }
+            }
+        }
+        return views;
+    }
+
+    private List<List<InstructionView>> buildHistoryViews() {
+        // one slot per instruction, set in place by the tasks (set() on distinct indexes only)
+        List<List<InstructionView>> chains = new ArrayList<>(Collections.nCopies(instructions.size(), null));
+        if (trace == null) {
+            for (int i = 0; i < chains.size(); i++) {
+                chains.set(i, List.of(ProgramImpl.toView(instructions.get(i), 1)));
+            }
+        } else if (trace.rootCount() > 0) {
+            ForkJoinPool.commonPool().invoke(new Roots(0, trace.rootCount(), chains));
+        }
+        return Collections.unmodifiableList(chains);
+    }
+
+    private final class Roots extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final List<List<InstructionView>> chains;
+
+        Roots(int from, int to, List<List<InstructionView>> chains) {
+            this.from = from;
+            this.to = to;
+            this.chains = chains;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                buildRoot(from, chains);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Roots(from, mid, chains), new Roots(mid, to, chains));
+        }
+    }
+
+    // the chains of one program instruction share their upper part, each view is made once
+    private void buildRoot(int root, List<List<InstructionView>> chains) {
+        Map<Instruction, InstructionView> made = new IdentityHashMap<>();
+        int end = trace.rootEnd(root, instructions.size());
+        for (int i = trace.rootStart(root); i < end; i++) {
+            List<Instruction> chain = trace.chainOf(instructions.get(i));
+            List<InstructionView> views = new ArrayList<>(chain.size());
+            for (int k = 0; k < chain.size(); k++) {
+                int number = k + 1;
+                views.add(made.computeIfAbsent(chain.get(k), ins -> ProgramImpl.toView(ins, number)));
+            }
+            chains.set(i, Collections.unmodifiableList(views));
+        }
+    }
+}
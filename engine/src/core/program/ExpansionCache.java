@@ -0,0 +1,82 @@
+package core.program;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+// Expanded programs by level.
+// Lookups are lock-free reads; building a missing level is serialized per program, since
+// Instruction.extend writes into the (shared) function arguments while it runs.
+// Once the cached levels hold more than maxInstructions instructions together, the least
+// recently used levels are dropped; the level just asked for always stays.
+final class ExpansionCache {
+
+    static final int DEFAULT_MAX_INSTRUCTIONS = 250_000;
+
+    // one for every cache, see Program.setExpansionListener
+    static volatile ExpansionListener listener;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final int maxInstructions;
+    private int cachedInstructions;
+
+    ExpansionCache() {
+        this(DEFAULT_MAX_INSTRUCTIONS);
+    }
+
+    ExpansionCache(int maxInstructions) {
+        this.maxInstructions = maxInstructions;
+    }
+
+    ExpandedProgram get(int level, IntFunction<ExpandedProgram> expand) {
+        Entry entry = entries.get(level);
+        if (entry == null) {
+            entry = build(level, expand);
+        }
+        entry.lastUsed = clock.incrementAndGet();
+        return entry.program;
+    }
+
+    private synchronized Entry build(int level, IntFunction<ExpandedProgram> expand) {
+        Entry entry = entries.get(level);
+        if (entry != null) {
+            return entry;
+        }
+        long start = System.nanoTime();
+        entry = new Entry(expand.apply(level));
+        long nanos = System.nanoTime() - start;
+        entry.lastUsed = clock.incrementAndGet();
+        entries.put(level, entry);
+        cachedInstructions += entry.program.size();
+        evict(level);
+        ExpansionListener l = listener;
+        if (l != null) l.expanded(level, entry.program.size(), nanos);
+        return entry;
+    }
+
+    private void evict(int keep) {
+        while (cachedInstructions > maxInstructions && entries.size() > 1) {
+            Integer oldest = null;
+            long oldestUse = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+                if (e.getKey() != keep && e.getValue().lastUsed < oldestUse) {
+                    oldest = e.getKey();
+                    oldestUse = e.getValue().lastUsed;
+                }
+            }
+            if (oldest == null) return;
+            cachedInstructions -= entries.remove(oldest).program.size();
+        }
+    }
+
+    private static final class Entry {
+        final ExpandedProgram program;
+        volatile long lastUsed;
+
+        Entry(ExpandedProgram program) {
+            this.program = program;
+        }
+    }
+}
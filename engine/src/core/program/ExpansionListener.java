@@ -0,0 +1,9 @@
+package core.program;
+
+// Told about every level of a program or function that had to be expanded (not found in the
+// cache): the level, the instructions it came to and the time the expansion took.
+// Called on the thread that expanded it, once the level is cached.
+@FunctionalInterface
+public interface ExpansionListener {
+    void expanded(int level, int instructions, long nanos);
+}
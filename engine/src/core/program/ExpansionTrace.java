@@ -0,0 +1,88 @@
+package core.program;
+
+import logic.instruction.Instruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Where every instruction of one expansion level came from, recorded while the level is built
+// (see AbstractInstruction.extend). Each new instruction points to the synthetic instruction
+// that expanded into it, up to the program instruction it started from. A copy - a basic
+// instruction, or anything asked to expand to level 0 - is the same node as its original.
+// Written by the one thread building the level, only read once the level is published.
+public final class ExpansionTrace {
+
+    private final Map<Instruction, Instruction> parents = new IdentityHashMap<>();
+    private final Map<Instruction, Instruction> copies = new IdentityHashMap<>();
+    private final List<Integer> rootStarts = new ArrayList<>();
+
+    ExpansionTrace() { }
+
+    // the next program instruction expands into the flat list from this index on
+    void beginRoot(int flatIndex) {
+        rootStarts.add(flatIndex);
+    }
+
+    // source.extend(...) returned produced
+    public void record(Instruction source, List<Instruction> produced) {
+        if (produced == null || produced.isEmpty()) {
+            return;
+        }
+        Instruction from = original(source);
+        boolean copied = source.isBasic()
+                || (produced.size() == 1 && produced.get(0).getClass() == source.getClass());
+        for (Instruction child : produced) {
+            if (child == null || child == source) {
+                continue;
+            }
+            if (copied) {
+                copies.put(child, from);
+                continue;
+            }
+            // the child may come from a helper that source built and expanded itself
+            // (Assignment expands its own ZERO_VARIABLE): source produced the helper then
+            Instruction top = original(child);
+            Instruction up;
+            while (top != from && (up = parents.get(top)) != null) {
+                top = up;
+            }
+            if (top != from) {
+                parents.put(top, from);
+            }
+        }
+    }
+
+    private Instruction original(Instruction ins) {
+        Instruction original = copies.get(ins);
+        return original == null ? ins : original;
+    }
+
+    // the program instruction first, then each instruction that expanded into the next,
+    // and the flat instruction itself last
+    public List<Instruction> chainOf(Instruction flat) {
+        // a copy shows the same as its original, only the one in the flat list is kept
+        List<Instruction> chain = new ArrayList<>();
+        chain.add(flat);
+        for (Instruction up = parents.get(original(flat)); up != null; up = parents.get(up)) {
+            chain.add(up);
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    int rootCount() {
+        return rootStarts.size();
+    }
+
+    // [start, end) of the flat instructions the given program instruction expanded into
+    int rootStart(int root) {
+        return rootStarts.get(root);
+    }
+
+    int rootEnd(int root, int flatSize) {
+        return root + 1 < rootStarts.size() ? rootStarts.get(root + 1) : flatSize;
+    }
+}
@@ -5,6 +5,7 @@ import dto.RunSummary;
 import dto.functionView;
 import logic.execution.ExecutionContext;
 import logic.execution.ExecutionContextImpl;
+import logic.execution.ExecutionPlan;
 import logic.instruction.Instruction;
 import logic.instruction.synthetic.JumpEqualFunctionInstruction;
 import logic.instruction.synthetic.QuoteInstruction;
@@ -23,8 +24,8 @@ public class Function implements Program {
     private final String name;
     private final String userString;
     private List<Instruction> instructions;
-    private List<Instruction> extendedInstructions;
-    private int currentExtensionLevel = -1; // Track the level used for current extendedInstructions
+    private ExpansionCache expansions;                              // immutable expansions by level
+    private volatile ExpandedProgram current;                        // the level of the last extend()
     private final List<String> args;
     public List<RunSummary> summaries = new ArrayList<>();
 
@@ -39,8 +40,9 @@ public class Function implements Program {
         this.userString = f.getUserString();
         this.instructions = f.getInstructions();
         this.args = getArgs(f.getInstructions());
-        this.extendedInstructions = new ArrayList<>(f.getInstructions());
+        this.expansions = new ExpansionCache();
         this.vlm = new VariableAndLabelMenger(f.variables, f.labels);
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(f.getInstructions()), vlm);
         this.variables = getAllVariables(f.getInstructions());
         this.labels = getAllLabels(f.getInstructions());
     }
@@ -50,12 +52,26 @@ public class Function implements Program {
         this.userString = userString;
         this.instructions = instructions;
         this.args = getArgs(instructions);
-        this.extendedInstructions = new ArrayList<>(instructions);
+        this.expansions = new ExpansionCache();
         this.vlm = new VariableAndLabelMenger(variables, labels);
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(instructions), vlm);
         this.variables = getAllVariables(instructions);
         this.labels = getAllLabels(instructions);
     }
 
+    // see forRun(): same body and cache, no copies
+    private Function(Function template, ExpansionCache expansions) {
+        this.name = template.name;
+        this.userString = template.userString;
+        this.instructions = template.instructions;
+        this.args = template.args;
+        this.expansions = expansions;
+        this.variables = getAllVariables(instructions);
+        this.labels = getAllLabels(instructions);
+        this.vlm = new VariableAndLabelMenger(variables, labels);
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(instructions), vlm);
+    }
+
     private List<Label> getAllLabels(List<Instruction> instructions) {
             Set<Label> unique = new LinkedHashSet<>();
             for (Instruction instruction : instructions) {
@@ -106,6 +122,11 @@ public class Function implements Program {
         return instructions;
     }
 
+    @Override
+    public List<Instruction> getInstructions(int level) {
+        return expand(level).getInstructions();
+    }
+
     public String getUserString() {
         return userString;
     }
@@ -113,34 +134,21 @@ public class Function implements Program {
         return name;
     }
 
-    // return the next instruction after the current one, or null if at the end
-    public Instruction getNextInstructionLabel(Instruction currentInstruction) {
-        int currentIndex = extendedInstructions.indexOf(currentInstruction);
-        if (currentIndex >= 0 && currentIndex + 1 < extendedInstructions.size()) {
-            return extendedInstructions.get(currentIndex + 1);
-        }
-        else {
-            return null;
-        }
+    // return the compiled control-flow table of the current expansion (built once per expansion)
+    @Override
+    public ExecutionPlan getExecutionPlan() {
+        return current.getExecutionPlan();
     }
 
-    // return the instruction with the given label
-    public Instruction getInstructionByLabel(Label nextLabel) {
-        for (Instruction instruction : extendedInstructions) {
-            if(instruction.getLabel() != null) {
-                if (instruction.getLabel().equals(nextLabel)) {
-                    return instruction;
-                }
-            }
-        }
-        //It always finds the instruction by label because in load program it checks the label jumps
-        return null; // or throw an exception if label not found
-
+    @Override
+    public ExecutionPlan getExecutionPlan(int level) {
+        return expand(level).getExecutionPlan();
     }
 
     public void setInstructions(List<Instruction> instructions) {
         this.instructions = instructions;
-        this.extendedInstructions = new ArrayList<>(instructions);
+        this.expansions = new ExpansionCache(); // copies made by forRun() keep the old body and cache
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(instructions), vlm);
     }
 
     public functionView toView(){
@@ -169,6 +177,11 @@ public class Function implements Program {
         return summaries;
     }
 
+    @Override
+    public Function forRun() {
+        return new Function(this, expansions);
+    }
+
     public List<Instruction> getExtendedInstructions(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> result = new ArrayList<>();
         for (Instruction instruction : instructions) {
@@ -194,24 +207,14 @@ public class Function implements Program {
 
     @Override
     public List<String> getXVariablesPeek() {
-        Set<String> variables = new LinkedHashSet<>();
-
-        for (Instruction instr : extendedInstructions) {
-            List<String> info = instr.getAllInfo();
-            for (String s : info) {
-                //addIfStartsWithXOrZOry(variables, s);
-                addIfStartsWithX(variables, s);
-            }
-        }
-
-        return new ArrayList<>(variables);
+        return new ArrayList<>(current.getInputVariables());
     }
 
     @Override
     public List<String> getVariablesPeek() {
         Set<String> variables = new LinkedHashSet<>();
 
-        for (Instruction instr : extendedInstructions) {
+        for (Instruction instr : current.getInstructions()) {
             List<String> info = instr.getAllInfo();
             for (String s : info) {
                 variables.add(s);
@@ -226,7 +229,7 @@ public class Function implements Program {
     @Override
     public List<String> getLabelsPeek() {
         List<String> info = new ArrayList<>();
-        for (Instruction instr : extendedInstructions) {
+        for (Instruction instr : current.getInstructions()) {
             List<String> curr = instr.getAllInfo();
             for (String s : curr) {
                 if (s != null && !s.isBlank() && !s.equalsIgnoreCase("EXIT") &&s.startsWith("L")) {
@@ -271,9 +274,10 @@ public class Function implements Program {
     @Override
     public List<InstructionView> getInstructionsPeek() {
         // Ensure we have extended instructions - if not, use level 0 as default
-        if (extendedInstructions == null || extendedInstructions.isEmpty() || currentExtensionLevel == -1) {
+        if (current.getLevel() == ExpandedProgram.UNEXPANDED) {
             extend(0);
         }
+        List<Instruction> extendedInstructions = current.getInstructions();
 
         List<InstructionView> instructionViews = new ArrayList<>(extendedInstructions.size());
 
@@ -312,98 +316,52 @@ public class Function implements Program {
     }
 
     // extend Instructions to the given level (with the original instructions)
+    @Override
     public void extend (int level) {
-        if (level < 0) level = 0;
-
-        // Only re-extend if the level has changed
-        if (currentExtensionLevel == level && extendedInstructions != null && !extendedInstructions.isEmpty()) {
-            return; // Already extended to this level
-        }
-
-        vlm = new VariableAndLabelMenger(variables, labels);
-
-        extendedInstructions.clear();
-        for (Instruction inst : instructions) {
-            List<Instruction> extended = inst.extend(level, vlm);
-            extendedInstructions.addAll(extended);
-        }
-        this.variables = getAllVariables(extendedInstructions);
-        this.labels = getAllLabels(extendedInstructions);
-        this.currentExtensionLevel = level; // Track the level used for this extension
+        ExpandedProgram expanded = expand(level);
+        current = expanded;
+        vlm = expanded.getVlm();
+        this.variables = getAllVariables(expanded.getInstructions());
+        this.labels = getAllLabels(expanded.getInstructions());
     }
 
-    // recursive method to expand paths
-    private List<List<Instruction>> expandPaths(Instruction inst, int level, VariableAndLabelMenger vlm) {
-        List<List<Instruction>> out = new ArrayList<>();
-
-        if (level <= 0 || inst.getMaxLevel() <= 0) {
-            out.add(List.of(inst));
-            return out;
-        }
-        List<Instruction> children = inst.extend(1, vlm);
-
-        if (children == null || children.isEmpty()) {
-            out.add(List.of(inst));
-            return out;
-        }
-
-
-        for (Instruction child : children) {
-            List<List<Instruction>> tails = expandPaths(child, level - 1, vlm);
-
-            for (List<Instruction> tail : tails) {
-                ArrayList<Instruction> path = new ArrayList<>(1 + tail.size());
-                path.add(inst);
-                path.addAll(tail);
-                out.add(path);
+    // the function expanded to the given level, built the first time the level is asked for.
+    // Fresh names start after the variables and labels of the original body, so a level
+    // always expands the same way whatever was expanded before it.
+    @Override
+    public ExpandedProgram expand(int level) {
+        int lvl = Math.max(level, 0);
+        return expansions.get(lvl, l -> {
+            VariableAndLabelMenger levelVlm = new VariableAndLabelMenger(getAllVariables(instructions), getAllLabels(instructions));
+            ExpansionTrace trace = levelVlm.startTrace();
+            List<Instruction> out = new ArrayList<>();
+            for (Instruction inst : instructions) {
+                trace.beginRoot(out.size());
+                out.addAll(inst.extend(l, levelVlm));
             }
-        }
-
-        return out;
+            levelVlm.stopTrace();
+            return new ExpandedProgram(l, out, levelVlm, trace);
+        });
     }
 
+    // the history chain of every instruction of the expanded body, from the cached expansion
     @Override
     public List<List<InstructionView>> expendToLevelForExtend(int level) {
-        vlm = new VariableAndLabelMenger(variables, labels);
-        List<List<InstructionView>> result = new ArrayList<>();
-
-        for (Instruction root : instructions) {
-
-            List<List<Instruction>> paths = expandPaths(root, level, vlm);
-            for (List<Instruction> path : paths) {
-                int number = 1;
-
-                List<InstructionView> views = new ArrayList<>(path.size());
-                for (Instruction inst : path) {
-                    views.add(toView(inst, number));
-                    number++;
-                }
-                result.add(views);
-            }
-        }
-        return result;
+        return expand(level).getHistoryViews();
     }
 
     // expand Instructions to the given level and return InstructionView list
     @Override
     public List<InstructionView> instructionViewsAfterExtendRunShow(int level) {
         extend(level); // extend the program to the given level
-
-        List<InstructionView> result = new ArrayList<>();
-
-        int number = 1;
-        for (Instruction inst : extendedInstructions) {
-            result.add(toView(inst, number));
-            number++;
-        }
-        return result;
+        return new ArrayList<>(expand(level).getViews());
     }
 
     @Override
     public List<List<String>> getInfo(int level) {
         extend(level); // extend the program to the given level
         List<List<String>> info = new ArrayList<>();
-        for (Instruction inst : extendedInstructions) {
+        for (Instruction inst : expand(level).getInstructions()) {
             List<String> currInfo = inst.getAllInfo();
             info.add(currInfo);
         }
@@ -3,18 +3,31 @@ package core.program;
 import dto.InstructionView;
 import dto.RunSummary;
 import dto.functionView;
+import logic.execution.ExecutionPlan;
 import logic.instruction.Instruction;
-import logic.label.Label;
 
 import java.util.List;
 
 public interface Program {
 
+    // is told about every level expanded from now on, of any program or function (null: none)
+    static void setExpansionListener(ExpansionListener listener) {
+        ExpansionCache.listener = listener;
+    }
+
     int calculateMaxDegree();
-    Instruction getNextInstructionLabel(Instruction currentInstruction);
-    Instruction getInstructionByLabel(Label nextLabel);
+    ExecutionPlan getExecutionPlan();
+    ExecutionPlan getExecutionPlan(int level);
     String getName();
     List<Instruction> getInstructions();
+    List<Instruction> getInstructions(int level);
+    void extend(int level);
+    // the program expanded to 'level', cached: the same instance every time, without changing
+    // the level of extend()
+    ExpandedProgram expand(int level);
+    // a copy for one run or debug session: shares the instructions, functions and cached
+    // expansions, keeps its own current level and run history
+    Program forRun();
     List<String> getXVariablesPeek();
     List<String> getVariablesPeek();
     List<String> getLabelsPeek();
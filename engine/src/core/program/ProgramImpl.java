@@ -3,6 +3,7 @@ package core.program;
 import dto.InstructionView;
 import dto.RunSummary;
 import dto.functionView;
+import logic.execution.ExecutionPlan;
 import logic.instruction.Instruction;
 import logic.instruction.synthetic.JumpEqualFunctionInstruction;
 import logic.instruction.synthetic.QuoteInstruction;
@@ -17,8 +18,8 @@ public class ProgramImpl implements Program {
     private final String name;
     private List<Function> functions;
     private List<Instruction> instructions;
-    private List<Instruction> extendedInstructions;
-    private int currentExtensionLevel = -1; // Track the level used for current extendedInstructions
+    private final ExpansionCache expansions;                         // immutable expansions by level
+    private volatile ExpandedProgram current;                        // the level of the last extend()
     public final List<Variable> variables;
     public final List<Label> labels;
 
@@ -31,9 +32,22 @@ public class ProgramImpl implements Program {
         this.instructions = new ArrayList<>(p.getInstructions());
         this.variables = new ArrayList<>(p.variables);
         this.labels = new ArrayList<>(p.labels);
-        this.extendedInstructions = new ArrayList<>(p.getInstructions());
         this.functions = new ArrayList<>(p.functions);
+        this.expansions = new ExpansionCache();
         this.vlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(this.instructions), vlm);
+    }
+
+    // see forRun(): same lists and cache, no copies
+    private ProgramImpl(ProgramImpl template, ExpansionCache expansions) {
+        this.name = template.name;
+        this.instructions = template.instructions;
+        this.variables = template.variables;
+        this.labels = template.labels;
+        this.functions = template.functions;
+        this.expansions = expansions;
+        this.vlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(instructions), vlm);
     }
 
 
@@ -42,15 +56,22 @@ public class ProgramImpl implements Program {
         this.instructions = new ArrayList<>(instructions);
         this.variables = new ArrayList<>(varsByName.values());
         this.labels = new ArrayList<>(labelsByName.values());
-        this.extendedInstructions = new ArrayList<>(instructions);
         this.functions = new ArrayList<>(funcs);
+        this.expansions = new ExpansionCache();
         this.vlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
+        this.current = new ExpandedProgram(ExpandedProgram.UNEXPANDED, new ArrayList<>(instructions), vlm);
     }
 
     public List<RunSummary> getsummaries(){
         return summaries;
     }
 
+    // the function list is shared too, so function calls memoized by earlier runs still hit
+    @Override
+    public ProgramImpl forRun() {
+        return new ProgramImpl(this, expansions);
+    }
+
 
     public List<Variable> getAllVariablesNames() {
         List<Variable> varNames = new ArrayList<>();
@@ -86,57 +107,36 @@ public class ProgramImpl implements Program {
 
     @Override
     public List<Instruction> getInstructions() {
-        return (extendedInstructions != null) ? extendedInstructions : instructions;
+        return current.getInstructions();
     }
 
-    // return the next instruction after the current one, or null if at the end
     @Override
-    public Instruction getNextInstructionLabel(Instruction currentInstruction) {
-        int currentIndex = extendedInstructions.indexOf(currentInstruction);
-        if (currentIndex >= 0 && currentIndex + 1 < extendedInstructions.size()) {
-            return extendedInstructions.get(currentIndex + 1);
-        }
-        else {
-            return null;
-        }
+    public List<Instruction> getInstructions(int level) {
+        return expand(level).getInstructions();
     }
 
-    // return the instruction with the given label
+    // return the compiled control-flow table of the current expansion (built once per expansion)
     @Override
-    public Instruction getInstructionByLabel(Label nextLabel) {
-        for (Instruction instruction : extendedInstructions) {
-            if(instruction.getLabel() != null) {
-                if (instruction.getLabel().equals(nextLabel)) {
-                    return instruction;
-                }
-            }
-        }
-        //It always finds the instruction by label because in load program it checks the label jumps
-        return null; // or throw an exception if label not found
+    public ExecutionPlan getExecutionPlan() {
+        return current.getExecutionPlan();
+    }
 
+    @Override
+    public ExecutionPlan getExecutionPlan(int level) {
+        return expand(level).getExecutionPlan();
     }
 
     // convert variables to a String list for display in table
     @Override
     public List<String> getXVariablesPeek() {
-        Set<String> variables = new LinkedHashSet<>();
-
-        for (Instruction instr : extendedInstructions) {
-            List<String> info = instr.getAllInfo();
-            for (String s : info) {
-                //addIfStartsWithXOrZOry(variables, s);
-                addIfStartsWithX(variables, s);
-            }
-        }
-
-        return new ArrayList<>(variables);
+        return new ArrayList<>(current.getInputVariables());
     }
 
     @Override
     public List<String> getVariablesPeek() {
         Set<String> variables = new LinkedHashSet<>();
 
-        for (Instruction instr : extendedInstructions) {
+        for (Instruction instr : current.getInstructions()) {
             List<Variable> info = instr.getAllVariables();
             for (Variable s : info) {
                 variables.add(s.getRepresentation());
@@ -160,7 +160,7 @@ public class ProgramImpl implements Program {
     @Override
     public List<String> getLabelsPeek() {
         List<String> info = new ArrayList<>();
-        for (Instruction instr : extendedInstructions) {
+        for (Instruction instr : current.getInstructions()) {
             List<String> curr = instr.getAllInfo();
             for (String s : curr) {
                 if (s != null && !s.isBlank() && !s.equalsIgnoreCase("EXIT") &&s.startsWith("L")) {
@@ -180,14 +180,27 @@ public class ProgramImpl implements Program {
 
 
     // extend Instructions to the given level (with the original instructions)
+    @Override
     public void extend (int level) {
-        vlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
+        ExpandedProgram expanded = expand(level);
+        current = expanded;
+        vlm = expanded.getVlm();
+    }
 
-        extendedInstructions.clear();
-        for (Instruction inst : instructions) {
-            List<Instruction> extended = inst.extend(level, vlm);
-            extendedInstructions.addAll(extended);
-        }
+    // the program expanded to the given level, built the first time the level is asked for
+    @Override
+    public ExpandedProgram expand(int level) {
+        return expansions.get(level, lvl -> {
+            VariableAndLabelMenger levelVlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
+            ExpansionTrace trace = levelVlm.startTrace();
+            List<Instruction> out = new ArrayList<>();
+            for (Instruction inst : instructions) {
+                trace.beginRoot(out.size());
+                out.addAll(inst.extend(lvl, levelVlm));
+            }
+            levelVlm.stopTrace();
+            return new ExpandedProgram(lvl, out, levelVlm, trace);
+        });
     }
 
 
@@ -230,15 +243,7 @@ public class ProgramImpl implements Program {
     @Override
     public List<InstructionView> instructionViewsAfterExtendRunShow(int level) {
         extend(level); // extend the program to the given level
-
-        List<InstructionView> result = new ArrayList<>();
-
-        int number = 1;
-        for (Instruction inst : extendedInstructions) {
-            result.add(toView(inst, number));
-            number++;
-        }
-        return result;
+        return new ArrayList<>(expand(level).getViews());
     }
 
     // convert Instruction to InstructionView for display in table
@@ -259,9 +264,10 @@ public class ProgramImpl implements Program {
     @Override
     public List<InstructionView> getInstructionsPeek() {
         // Ensure we have extended instructions - if not, use level 0 as default
-        if (extendedInstructions == null || currentExtensionLevel == -1) {
+        if (current.getLevel() == ExpandedProgram.UNEXPANDED) {
             extend(0);
         }
+        List<Instruction> extendedInstructions = current.getInstructions();
 
         List<InstructionView> instructionViews = new ArrayList<>(extendedInstructions.size());
 
@@ -311,71 +317,21 @@ public class ProgramImpl implements Program {
         return max;
     }
 
-    // expand Instructions to the given level (with the original instructions) fit fo run extend
+    // expand Instructions to the given level and return the history chain of every instruction
+    // of the run list (same order): taken from the cached expansion of the level, not expanded again
     @Override
     public List<List<InstructionView>> expendToLevelForExtend(int level) {
-
-        vlm = new VariableAndLabelMenger(getAllVariablesNames(), getAllLabelsNames());
-        List<List<InstructionView>> result = new ArrayList<>();
-
-
-
-        for (Instruction root : instructions) {
-
-            List<List<Instruction>> paths = expandPaths(root, level, vlm);
-            for (List<Instruction> path : paths) {
-                int number = 1;
-
-                List<InstructionView> views = new ArrayList<>(path.size());
-                for (Instruction inst : path) {
-                    views.add(toView(inst, number));
-                    number++;
-                }
-                result.add(views);
-            }
-        }
         extend(level);
+        return expand(level).getHistoryViews();
+    }
 
-        return result;
-}
-
-
-
-    // recursive method to expand paths
-    private List<List<Instruction>> expandPaths(Instruction inst, int level, VariableAndLabelMenger vlm) {
-        List<List<Instruction>> out = new ArrayList<>();
-
-        if (level <= 0 || inst.getMaxLevel() <= 0) {
-            out.add(List.of(inst));
-            return out;
-        }
-        List<Instruction> children = inst.extend(1, vlm);
-
-        if (children == null || children.isEmpty()) {
-            out.add(List.of(inst));
-            return out;
-        }
-
-
-        for (Instruction child : children) {
-            List<List<Instruction>> tails = expandPaths(child, level - 1, vlm);
-
-            for (List<Instruction> tail : tails) {
-                ArrayList<Instruction> path = new ArrayList<>(1 + tail.size());
-                path.add(inst);
-                path.addAll(tail);
-                out.add(path);
-            }
-        }
 
-        return out;
-    }
 
     @Override
     public List<List<String>> getInfo(int level) {
         extend(level); // extend the program to the given level
         List<List<String>> info = new ArrayList<>();
-        for (Instruction inst : extendedInstructions) {
+        for (Instruction inst : expand(level).getInstructions()) {
             List<String> currInfo = inst.getAllInfo();
             info.add(currInfo);
         }
@@ -18,6 +18,18 @@ public class VariableAndLabelMenger {
     private final Deque<Map<Variable, Variable>> varMapStack = new ArrayDeque<>();
     private final Deque<Map<Label, Label>> labelMapStack = new ArrayDeque<>();
 
+    // set while a program level is expanded with this instance, see ExpansionTrace
+    private ExpansionTrace trace;
+
+    public ExpansionTrace getTrace() { return trace; }
+
+    ExpansionTrace startTrace() {
+        trace = new ExpansionTrace();
+        return trace;
+    }
+
+    void stopTrace() { trace = null; }
+
 
 
     // ---------- mapping API ----------
@@ -0,0 +1,17 @@
+package dto;
+
+import java.util.List;
+
+// Receives the results of Engine.runBatch, one input vector at a time, in the order they finish.
+// Both methods are called from the batch's worker threads, possibly at the same time.
+public interface BatchListener {
+
+    // cycle budget for the vector at 'index', asked right before it runs (the smaller of this
+    // and the budget of the RunOptions is used); 0 skips the vector, it is reported as
+    // BUDGET_EXHAUSTED after 0 cycles
+    default long budgetFor(int index) {
+        return RunOptions.UNLIMITED;
+    }
+
+    void onResult(int index, List<Long> inputs, RunResult result);
+}
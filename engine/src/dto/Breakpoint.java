@@ -0,0 +1,78 @@
+package dto;
+
+// Where a debug session stops when it runs several steps at once.
+// With an index (0-based, as the debugger's current index) or a label it stops before that
+// instruction, when 'variable op value' holds (always without a condition). With neither it
+// stops before the first instruction the condition holds at: a watch on a variable.
+public record Breakpoint(
+        Integer index,
+        String label,
+        String variable,
+        Op op,
+        Long value
+) {
+    public enum Op {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String symbol() {
+            return symbol;
+        }
+
+        public boolean test(long left, long right) {
+            return switch (this) {
+                case EQ -> left == right;
+                case NE -> left != right;
+                case LT -> left < right;
+                case LE -> left <= right;
+                case GT -> left > right;
+                case GE -> left >= right;
+            };
+        }
+
+        // "==", "!=", "<", "<=", ">", ">=" (or "=" for "==")
+        public static Op fromSymbol(String symbol) {
+            if ("=".equals(symbol)) return EQ;
+            for (Op op : values()) {
+                if (op.symbol.equals(symbol)) return op;
+            }
+            throw new IllegalArgumentException("Unknown comparison: " + symbol);
+        }
+    }
+
+    public Breakpoint {
+        if (index != null && label != null) {
+            throw new IllegalArgumentException("A breakpoint has an index or a label, not both");
+        }
+        if (index != null && index < 0) {
+            throw new IllegalArgumentException("Breakpoint index must not be negative: " + index);
+        }
+        if ((variable == null) != (op == null) || (variable == null) != (value == null)) {
+            throw new IllegalArgumentException("A condition needs a variable, a comparison and a value");
+        }
+        if (index == null && label == null && variable == null) {
+            throw new IllegalArgumentException("A breakpoint needs an index, a label or a condition");
+        }
+    }
+
+    public static Breakpoint at(int index) {
+        return new Breakpoint(index, null, null, null, null);
+    }
+
+    public static Breakpoint atLabel(String label) {
+        return new Breakpoint(null, label, null, null, null);
+    }
+
+    public static Breakpoint when(String variable, Op op, long value) {
+        return new Breakpoint(null, null, variable, op, value);
+    }
+
+    public boolean hasCondition() {
+        return variable != null;
+    }
+}
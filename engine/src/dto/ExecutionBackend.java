@@ -0,0 +1,17 @@
+package dto;
+
+// How a run executes the expanded program.
+// INTERPRETER steps through the instructions one by one; BYTECODE compiles the program
+// to a JVM class first and falls back to the interpreter when that isn't possible.
+public enum ExecutionBackend {
+    INTERPRETER,
+    BYTECODE;
+
+    public static ExecutionBackend fromString(String s) {
+        return switch (s.toUpperCase()) {
+            case "INTERPRETER" -> INTERPRETER;
+            case "BYTECODE"    -> BYTECODE;
+            default -> throw new IllegalArgumentException("Unknown execution backend: " + s);
+        };
+    }
+}
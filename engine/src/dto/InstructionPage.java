@@ -0,0 +1,27 @@
+package dto;
+
+import java.util.List;
+
+// A page of the run list of one expansion level: 'instructions' are the rows from 'offset' on
+// (0-based, numbered offset + 1 ...), out of 'total'. basicCount counts the whole level.
+public record InstructionPage(
+        int offset,
+        int total,
+        int basicCount,
+        List<InstructionView> instructions
+) {
+
+    // rows [offset, offset + limit) of 'all', clamped to the list
+    public static InstructionPage of(List<InstructionView> all, int basicCount, int offset, int limit) {
+        int from = Math.max(0, Math.min(offset, all.size()));
+        int to = (int) Math.min(all.size(), (long) from + Math.max(0, limit));
+        return new InstructionPage(from, all.size(), basicCount, List.copyOf(all.subList(from, to)));
+    }
+
+    // the offset of a page of 'limit' rows with instruction 'number' (1-based) as near its
+    // middle as the list allows
+    public static int offsetAround(int number, int limit, int total) {
+        int offset = number - 1 - limit / 2;
+        return Math.max(0, Math.min(offset, total - limit));
+    }
+}
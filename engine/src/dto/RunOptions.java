@@ -0,0 +1,40 @@
+package dto;
+
+// Per-run settings that don't change what a program computes, only how it is executed.
+// cycleBudget stops the run once it has used that many cycles (UNLIMITED = no limit).
+// profile counts the executions and cycles of every instruction (see RunProfile); a profiled
+// run goes through the interpreter whatever the backend.
+public record RunOptions(
+        ExecutionBackend backend,
+        long cycleBudget,
+        boolean profile
+) {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    public static final RunOptions DEFAULT = new RunOptions(ExecutionBackend.INTERPRETER);
+
+    public RunOptions {
+        if (backend == null) {
+            backend = ExecutionBackend.INTERPRETER;
+        }
+        if (cycleBudget < 0) {
+            throw new IllegalArgumentException("Cycle budget must not be negative: " + cycleBudget);
+        }
+    }
+
+    public RunOptions(ExecutionBackend backend, long cycleBudget) {
+        this(backend, cycleBudget, false);
+    }
+
+    public RunOptions(ExecutionBackend backend) {
+        this(backend, UNLIMITED);
+    }
+
+    public RunOptions withCycleBudget(long cycleBudget) {
+        return new RunOptions(backend, cycleBudget, profile);
+    }
+
+    public RunOptions withProfile(boolean profile) {
+        return new RunOptions(backend, cycleBudget, profile);
+    }
+}
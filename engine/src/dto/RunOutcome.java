@@ -0,0 +1,11 @@
+package dto;
+
+// How a run ended.
+// COMPLETED reached the end of the program; BUDGET_EXHAUSTED was stopped once it had used
+// the cycle budget of its RunOptions; CANCELLED was stopped by cancelRun() or an interrupt.
+// A run that did not complete has the y and variables of the point where it stopped.
+public enum RunOutcome {
+    COMPLETED,
+    BUDGET_EXHAUSTED,
+    CANCELLED
+}
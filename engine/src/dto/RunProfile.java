@@ -0,0 +1,39 @@
+package dto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Where the cycles of a run went. Per instruction index of the level that ran: how many times
+// the instruction ran and the cycles it took, a QUOTE or JUMP_EQUAL_FUNCTION with its call, so
+// the cycles add up to the run's totalCycles. Per function called, at any depth: the calls,
+// how many of them the memo answered, and the cycles they took including the calls they made.
+public record RunProfile(
+        long[] executions,
+        long[] cycles,
+        List<FunctionProfile> functions
+) {
+    public record FunctionProfile(String name, long calls, long memoHits, long cycles) { }
+
+    public int size() {
+        return cycles.length;
+    }
+
+    public long totalCycles() {
+        long total = 0;
+        for (long c : cycles) total += c;
+        return total;
+    }
+
+    // the indexes of the (at most 'limit') instructions that took the most cycles, most first;
+    // instructions that never ran are left out
+    public List<Integer> hotSpots(int limit) {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < cycles.length; i++) {
+            if (executions[i] > 0) ran.add(i);
+        }
+        ran.sort(Comparator.comparingLong((Integer i) -> cycles[i]).reversed()
+                .thenComparingLong(i -> executions[i]));
+        return ran.size() > limit ? new ArrayList<>(ran.subList(0, limit)) : ran;
+    }
+}
@@ -2,8 +2,19 @@ package dto;
 
 import java.util.Map;
 
+// profile is null unless the run was asked for one (RunOptions.profile)
 public record RunResult(
         long y,
         Map<String, Long> variables,
-        long totalCycles
-) {}
\ No newline at end of file
+        long totalCycles,
+        RunOutcome outcome,
+        RunProfile profile
+) {
+    public RunResult(long y, Map<String, Long> variables, long totalCycles, RunOutcome outcome) {
+        this(y, variables, totalCycles, outcome, null);
+    }
+
+    public RunResult(long y, Map<String, Long> variables, long totalCycles) {
+        this(y, variables, totalCycles, RunOutcome.COMPLETED);
+    }
+}
@@ -2,9 +2,10 @@ package logic.argument;
 
 import core.program.Function;
 import core.program.VariableAndLabelMenger;
+import logic.execution.CallFrame;
+import logic.execution.CallStack;
 import logic.execution.ExecutionContext;
-import logic.execution.ExecutionContextImpl;
-import logic.execution.FunctionExecutor;
+import logic.execution.FunctionCallCache;
 import logic.instruction.Instruction;
 import logic.instruction.synthetic.AssignmentInstruction;
 import logic.label.FixedLabel;
@@ -30,7 +31,6 @@ public class FunctionArgument implements Argument {
     public List<Instruction> instructions;
 
     int cycles = 0;
-    public int lastRunCycles = 0;
     private Label exitLabel;
     private Variable newResultVar;
 
@@ -105,26 +105,55 @@ public class FunctionArgument implements Argument {
 
     @Override
     public long evaluate(ExecutionContext context, VariableAndLabelMenger vlm, int cycles) {
-        // Evaluate all child arguments in the current context to numeric values
-        List<Long> values = new ArrayList<>(arguments.size());
-        int childCycles = 0;
-        for (Argument arg : arguments) {
-            ExecutionContextImpl argContext = new ExecutionContextImpl(context);
-            long v = arg.evaluate(argContext, vlm, cycles);
-            values.add(v);
-            if (arg instanceof FunctionArgument fa) {
-                childCycles += fa.lastRunCycles;
+        // The call gets the next frame of this thread's call stack; its argument array and
+        // context are reused from the last call at the same depth instead of built again
+        CallStack stack = CallStack.current();
+        CallFrame frame = stack.push();
+        try {
+            // Evaluate all child arguments in the caller's context to numeric values.
+            // Arguments only read it (a nested call reports its cycles and nothing else),
+            // so there is no need for a copy per argument
+            long budget = context.getCycleBudget();
+            long[] values = frame.arguments(arguments.size());
+            long childCycles = 0;
+            for (int i = 0; i < values.length; i++) {
+                Argument arg = arguments.get(i);
+                if (arg instanceof FunctionArgument) {
+                    // a nested call may only use what the calls before it left of the budget
+                    context.setCycleBudget(budget - childCycles);
+                    values[i] = arg.evaluate(context, vlm, cycles);
+                    childCycles += context.getLastCallCycles();
+                } else {
+                    values[i] = arg.evaluate(context, vlm, cycles);
+                }
             }
-        }
+            context.setCycleBudget(budget);
 
-        // Create a clean execution context for this function evaluation
-        ExecutionContextImpl functionContext = new ExecutionContextImpl(values, functions);
+            // Same function, same argument values: the earlier call already knows y and its cycles
+            FunctionCallCache cache = FunctionCallCache.shared();
+            FunctionCallCache.Result cached = cache.get(functions, name, values);
+            // one that would take the run past its budget runs for real below, to stop where
+            // it stops and report how far past the budget that is
+            if (cached != null && cached.cycles() <= budget - childCycles) {
+                context.setLastCallCycles(cached.cycles() + childCycles);
+                stack.countCall(name, cached.cycles(), true);
+                return cached.value();
+            }
 
-        // Execute the function with the evaluated arguments
-        FunctionExecutor currentExecutor = new FunctionExecutor(function, functions, functionContext);
-        long result = currentExecutor.run(values, cycles);
-        this.lastRunCycles = currentExecutor.cycleCount + childCycles;
-        return result;
+            // Execute the function with the evaluated arguments; past its budget it throws
+            // CycleBudgetExhaustedException, which ends the whole run
+            long result = frame.call(function, functions, context.getBackend(), budget - childCycles);
+            context.setLastCallCycles(frame.cycles() + childCycles);
+            stack.countCall(name, frame.cycles(), false);
+            // an interrupted call stopped half way, its y is not the function's value
+            if (!Thread.currentThread().isInterrupted()) {
+                // the frame keeps its array for the next call, the memo needs its own
+                cache.put(functions, name, values.clone(), new FunctionCallCache.Result(result, frame.cycles()));
+            }
+            return result;
+        } finally {
+            stack.pop();
+        }
     }
 
     public List<Instruction> cloneBody() {
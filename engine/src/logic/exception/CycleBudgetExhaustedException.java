@@ -0,0 +1,19 @@
+package logic.exception;
+
+// Thrown out of a function call that ran out of cycle budget before its body ended.
+// It unwinds every call in progress up to the executor of the run, which ends the run
+// as BUDGET_EXHAUSTED; 'overshoot' is how far past the budget the cut call went.
+// No stack trace: it ends a run in the normal course of things, nothing went wrong.
+public class CycleBudgetExhaustedException extends RuntimeException {
+
+    private final long overshoot;
+
+    public CycleBudgetExhaustedException(long overshoot) {
+        super("Cycle budget exhausted", null, false, false);
+        this.overshoot = overshoot;
+    }
+
+    public long getOvershoot() {
+        return overshoot;
+    }
+}
@@ -0,0 +1,128 @@
+package logic.execution;
+
+import core.program.Program;
+import dto.BatchListener;
+import dto.ExecutionBackend;
+import dto.RunOptions;
+import dto.RunOutcome;
+import dto.RunResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs one program over many input vectors in parallel.
+// The program is expanded (and compiled, for the bytecode backend) once, up front; every vector
+// then gets its own executor over that shared plan. The calling thread and up to
+// parallelism - 1 helpers handed to an Executor take the next vector not taken yet until none
+// is left, so a few long runs do not hold up the rest. The caller only waits for helpers that
+// took a vector: one that starts after the last vector was taken has nothing to do, so helpers
+// queued behind other work (the server runs them in slots of its run queue) never hold it up.
+public final class BatchRunner {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    // helpers of batches run outside a server, one per core at most per batch
+    private static final ExecutorService HELPERS = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("batch-helper-", 1).daemon(true).factory());
+
+    private BatchRunner() { }
+
+    public static void run(Program program, int level, List<List<Long>> vectors,
+                           RunOptions options, BatchListener listener) {
+        run(program, level, vectors, options, listener, HELPERS, CORES);
+    }
+
+    // as above, with the helpers run by 'helpers' and at most 'parallelism' vectors at a time
+    // (the caller included); a helper the executor rejects is left out
+    public static void run(Program program, int level, List<List<Long>> vectors,
+                           RunOptions options, BatchListener listener, Executor helpers, int parallelism) {
+        RunOptions opts = options == null ? RunOptions.DEFAULT : options;
+        ExecutionPlan plan = program.getExecutionPlan(level);
+        if (opts.backend() == ExecutionBackend.BYTECODE) {
+            plan.getCompiledProgram();
+        }
+        if (vectors.isEmpty()) {
+            return;
+        }
+        Shared shared = new Shared(program, level, vectors, opts, listener);
+        int extra = Math.min(parallelism, vectors.size()) - 1;
+        for (int i = 0; i < extra; i++) {
+            try {
+                helpers.execute(shared::help);
+            } catch (RejectedExecutionException e) {
+                break; // no room for more, the ones started (and the caller) do the rest
+            }
+        }
+        shared.drain();
+        shared.awaitHelpers();
+    }
+
+    private static RunResult runOne(Program program, int level, List<Long> inputs, RunOptions options, long budget) {
+        if (budget == 0) {
+            return new RunResult(0, Map.of(), 0, RunOutcome.BUDGET_EXHAUSTED);
+        }
+        ProgramExecutorImpl exe = new ProgramExecutorImpl(program, level);
+        exe.setBackend(options.backend());
+        exe.setCycleBudget(budget);
+        long y = exe.run(inputs);
+        return new RunResult(y, exe.variablesState(), exe.cycleCount, exe.getOutcome());
+    }
+
+    private static final class Shared {
+        private final Program program;
+        private final int level;
+        private final List<List<Long>> vectors;
+        private final RunOptions options;
+        private final BatchListener listener;
+        private final AtomicInteger next = new AtomicInteger();
+        // helpers in drain(); one counts itself before taking a vector, so once the vectors are
+        // all taken, 0 here means none is still running one
+        private final AtomicInteger active = new AtomicInteger();
+
+        Shared(Program program, int level, List<List<Long>> vectors, RunOptions options, BatchListener listener) {
+            this.program = program;
+            this.level = level;
+            this.vectors = vectors;
+            this.options = options;
+            this.listener = listener;
+        }
+
+        void drain() {
+            int index;
+            while ((index = next.getAndIncrement()) < vectors.size()) {
+                List<Long> inputs = vectors.get(index);
+                long budget = Math.min(options.cycleBudget(), listener.budgetFor(index));
+                listener.onResult(index, inputs, runOne(program, level, inputs, options, budget));
+            }
+        }
+
+        void help() {
+            active.incrementAndGet();
+            try {
+                drain();
+            } finally {
+                if (active.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        synchronized void awaitHelpers() {
+            boolean interrupted = false;
+            while (active.get() > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // the helpers' vectors still report, wait for them
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
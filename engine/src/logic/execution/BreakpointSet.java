@@ -0,0 +1,105 @@
+package logic.execution;
+
+import dto.Breakpoint;
+import logic.variable.Variable;
+import logic.variable.VariableImpl;
+import logic.variable.VariableType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The breakpoints of a debug session resolved against its ExecutionPlan: labels turned into
+// indexes and variable names into variables once, so checking the instruction about to run
+// is an array read, plus the conditions of that instruction and the watches.
+final class BreakpointSet {
+
+    static final BreakpointSet NONE = new BreakpointSet(new Condition[0][], new Condition[0]);
+
+    private static final Condition[] ALWAYS = new Condition[0];
+
+    record Condition(Variable variable, Breakpoint.Op op, long value) {
+        boolean holds(SlotExecutionContext context) {
+            return op.test(context.peekVariableValue(variable), value);
+        }
+    }
+
+    // per instruction index: null = no breakpoint, ALWAYS = unconditional, else any condition stops
+    private final Condition[][] byIndex;
+    private final Condition[] watches;
+
+    private BreakpointSet(Condition[][] byIndex, Condition[] watches) {
+        this.byIndex = byIndex;
+        this.watches = watches;
+    }
+
+    // throws IllegalArgumentException for an index past the program, an unknown label or variable
+    static BreakpointSet of(List<Breakpoint> breakpoints, ExecutionPlan plan) {
+        if (breakpoints == null || breakpoints.isEmpty()) return NONE;
+        Condition[][] byIndex = new Condition[plan.size()][];
+        List<Condition> watches = new ArrayList<>();
+        for (Breakpoint b : breakpoints) {
+            Condition condition = b.hasCondition()
+                    ? new Condition(variableNamed(b.variable()), b.op(), b.value())
+                    : null;
+            int index;
+            if (b.index() != null) {
+                index = b.index();
+                if (index >= plan.size()) {
+                    throw new IllegalArgumentException("No instruction " + index + ", the program has " + plan.size());
+                }
+            } else if (b.label() != null) {
+                index = plan.lineOf(b.label());
+                if (index == ExecutionPlan.EXIT) {
+                    throw new IllegalArgumentException("No instruction has the label " + b.label());
+                }
+            } else {
+                watches.add(condition);
+                continue;
+            }
+            Condition[] here = byIndex[index];
+            if (condition == null || here == ALWAYS) {
+                byIndex[index] = ALWAYS;
+            } else if (here == null) {
+                byIndex[index] = new Condition[] { condition };
+            } else {
+                Condition[] more = Arrays.copyOf(here, here.length + 1);
+                more[here.length] = condition;
+                byIndex[index] = more;
+            }
+        }
+        return new BreakpointSet(byIndex, watches.toArray(new Condition[0]));
+    }
+
+    // whether the run stops before the instruction at 'pc'
+    boolean hits(int pc, SlotExecutionContext context) {
+        Condition[] here = pc >= 0 && pc < byIndex.length ? byIndex[pc] : null;
+        if (here != null) {
+            if (here == ALWAYS) return true;
+            for (Condition c : here) {
+                if (c.holds(context)) return true;
+            }
+        }
+        for (Condition c : watches) {
+            if (c.holds(context)) return true;
+        }
+        return false;
+    }
+
+    // "y", "x3", "z12"
+    static Variable variableNamed(String name) {
+        String n = name.trim().toLowerCase();
+        if (n.equals("y")) return new VariableImpl(VariableType.RESULT, 1);
+        if (n.length() > 1 && (n.charAt(0) == 'x' || n.charAt(0) == 'z')) {
+            try {
+                int number = Integer.parseInt(n.substring(1));
+                if (number >= 1) {
+                    return new VariableImpl(n.charAt(0) == 'x' ? VariableType.INPUT : VariableType.WORK, number);
+                }
+            } catch (NumberFormatException ignored) {
+                // not a variable name, reported below
+            }
+        }
+        throw new IllegalArgumentException("Not a variable: " + name);
+    }
+}
@@ -0,0 +1,137 @@
+package logic.execution;
+
+import core.program.Function;
+import core.program.VariableAndLabelMenger;
+import dto.ExecutionBackend;
+import logic.exception.CycleBudgetExhaustedException;
+import logic.execution.bytecode.CompiledProgram;
+import logic.instruction.Instruction;
+import logic.label.Label;
+import logic.variable.VariableImpl;
+import logic.variable.VariableType;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+// One call depth of a CallStack: the argument values of the call and the register
+// file the callee runs on. Both are kept for the next call at this depth; the context
+// is only rebuilt when that call runs a different function body (another layout).
+public final class CallFrame {
+
+    private static final long[] NO_ARGUMENTS = new long[0];
+    private static final VariableImpl RESULT = new VariableImpl(VariableType.RESULT, 1);
+
+    private long[] arguments = NO_ARGUMENTS;
+    private VariableLayout layout;
+    private List<Function> functions;
+    private SlotExecutionContext context;
+    // execute() only passes it on to function arguments, so one instance serves every call
+    private final VariableAndLabelMenger vlm = new VariableAndLabelMenger();
+    private long cycles;
+    private boolean exhausted;
+
+    CallFrame() { }
+
+    // room for the argument values of the next call, exactly 'count' long
+    public long[] arguments(int count) {
+        if (arguments.length != count) {
+            arguments = count == 0 ? NO_ARGUMENTS : new long[count];
+        }
+        return arguments;
+    }
+
+    // runs 'function' on the values in arguments(), returns its y; cycles() has what it took.
+    // A body that needs more than 'budget' cycles is stopped there with a
+    // CycleBudgetExhaustedException; an interrupted one just stops, its y is not the result then
+    public long call(Function function, List<Function> functions, ExecutionBackend backend, long budget) {
+        ExecutionPlan plan = function.getExecutionPlan();
+        if (context == null || layout != plan.getLayout() || this.functions != functions) {
+            layout = plan.getLayout();
+            this.functions = functions;
+            context = new SlotExecutionContext(layout, emptyList(), functions);
+        }
+        start(backend);
+        // compiled body when asked for and the function can be compiled, interpreter otherwise
+        CompiledProgram compiled = backend == ExecutionBackend.BYTECODE ? plan.getCompiledProgram() : null;
+        if (compiled != null) {
+            cycles = context.runCompiled(compiled, c -> keepRunning(c, budget));
+            if (exhausted || cycles > budget) {
+                // compiled code only stops at backward jumps and applies loops whole: run the
+                // body again on the interpreter to stop where stepping would
+                start(backend);
+                runBody(plan, budget);
+            }
+        } else {
+            runBody(plan, budget);
+        }
+        // stopped half way, or done past the budget by its last instruction
+        if (exhausted || cycles > budget) {
+            throw new CycleBudgetExhaustedException(cycles - budget);
+        }
+        return context.getVariableValue(RESULT);
+    }
+
+    // the arguments in place, y and the work variables at 0
+    private void start(ExecutionBackend backend) {
+        context.reset(arguments);
+        context.updateVariable(RESULT, 0); // initialize the result variable to 0.
+        context.initWorkVariables();
+        context.setBackend(backend);
+        cycles = 0;
+        exhausted = false;
+    }
+
+    private void runBody(ExecutionPlan plan, long budget) {
+        // budget and interrupt are only looked at once the cycles reach 'checkpoint'
+        long checkpoint = 0;
+        // start from the first instruction (EXIT for an empty body)
+        int pc = plan.entry();
+        while (pc != ExecutionPlan.EXIT) {
+            if (cycles >= checkpoint) {
+                if (!keepRunning(cycles, budget)) {
+                    return;
+                }
+                checkpoint = Math.min(budget, cycles + ProgramExecutorImpl.CHECK_INTERVAL);
+            }
+            LoopSummary loop = plan.loopAt(pc);
+            if (loop != null) {
+                long fit = loop.iterationsWithin(budget - cycles);
+                if (fit >= LoopSummary.iterations(context.getVariableValue(loop.counter()))) {
+                    // the whole counting loop at once, same state and cycles as stepping through it
+                    cycles += loop.apply(context);
+                    pc = loop.exit();
+                    continue;
+                }
+                // the budget ends inside the loop: what fits at once, the last iteration stepped
+                cycles += loop.apply(context, fit);
+            }
+            Superinstruction fused = plan.fusedAt(pc);
+            if (fused != null && fused.fitsIn(budget - cycles)) {
+                cycles += fused.cycles();
+                pc = fused.execute(context);
+                continue;
+            }
+            Instruction currentInstruction = plan.instructionAt(pc);
+            // a call made by this step may use what is left of the budget, no more
+            context.setCycleBudget(budget - cycles);
+            Label nextLabel = currentInstruction.execute(context, vlm);
+            // sum cycles
+            cycles += currentInstruction.cycles(context);
+            pc = plan.next(pc, nextLabel);
+        }
+    }
+
+    private boolean keepRunning(long used, long budget) {
+        if (used >= budget) {
+            exhausted = true;
+            return false;
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    // the cycles of the last call() made on this frame
+    public long cycles() {
+        return cycles;
+    }
+}
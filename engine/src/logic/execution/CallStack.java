@@ -0,0 +1,55 @@
+package logic.execution;
+
+// The function calls in progress on one thread, one CallFrame per call depth.
+// A frame is made the first time its depth is reached and then reused by every later
+// call at that depth, in this run and the next ones on the same thread, so a QUOTE
+// evaluated a million times does not build a million contexts.
+public final class CallStack {
+
+    private static final ThreadLocal<CallStack> CURRENT = ThreadLocal.withInitial(CallStack::new);
+
+    private CallFrame[] frames = new CallFrame[8];
+    private int depth;
+    // the profile of the run on this thread, null when it is not profiled
+    private Profiler profiler;
+
+    private CallStack() { }
+
+    public static CallStack current() {
+        return CURRENT.get();
+    }
+
+    // the frame for a new call one level deeper; give it back with pop()
+    public CallFrame push() {
+        if (depth == frames.length) {
+            CallFrame[] grown = new CallFrame[frames.length * 2];
+            System.arraycopy(frames, 0, grown, 0, frames.length);
+            frames = grown;
+        }
+        CallFrame frame = frames[depth];
+        if (frame == null) {
+            frame = new CallFrame();
+            frames[depth] = frame;
+        }
+        depth++;
+        return frame;
+    }
+
+    public void pop() {
+        depth--;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // a call of 'name' took 'cycles' cycles (the memo's answer's cycles for a memo hit);
+    // only counted when the run is profiled
+    public void countCall(String name, long cycles, boolean memoHit) {
+        if (profiler != null) profiler.call(name, cycles, memoHit);
+    }
+}
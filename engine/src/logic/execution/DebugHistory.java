@@ -0,0 +1,89 @@
+package logic.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Checkpoints of a debug session, so it can go back to any earlier step without running
+// again from the start: the state is copied every 'interval' cycles (or steps, for steps that
+// cost nothing), and going back restores the last checkpoint at or before the step wanted and
+// replays the few steps after it. Runs are deterministic, so a replayed step ends exactly as
+// it did the first time, and checkpoints past a rewound step stay valid.
+// When there are more than MAX_CHECKPOINTS, or their copies come to more than MAX_BYTES,
+// every other one is dropped and the interval doubles: a session of a million steps keeps
+// about a thousand of them and replays at most about two thousand steps, and a program with
+// many variables keeps fewer so a session stays within a few megabytes.
+final class DebugHistory {
+
+    static final long DEFAULT_INTERVAL = 1024;
+    static final int MAX_CHECKPOINTS = 1024;
+    static final long MAX_BYTES = 4L * 1024 * 1024;
+
+    // rough JVM sizes: a checkpoint with its snapshot and two array headers, one overflow entry
+    private static final long CHECKPOINT_BYTES = 96;
+    private static final long OVERFLOW_ENTRY_BYTES = 80;
+
+    // the state after 'step' steps: instruction index, cycles used, variables
+    record Checkpoint(long step, int pc, long cycles, SlotExecutionContext.Snapshot state) { }
+
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private long interval;
+    private long bytes;
+
+    DebugHistory(long interval) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1: " + interval);
+        this.interval = interval;
+    }
+
+    // called after every step (and with step 0 right after init); copies the state when the
+    // last checkpoint is an interval behind, steps already covered are not copied again
+    void afterStep(long step, int pc, long cycles, SlotExecutionContext context) {
+        if (!checkpoints.isEmpty()) {
+            Checkpoint last = checkpoints.get(checkpoints.size() - 1);
+            if (step <= last.step()) return;
+            if (step - last.step() < interval && cycles - last.cycles() < interval) return;
+        }
+        Checkpoint checkpoint = new Checkpoint(step, pc, cycles, context.snapshot());
+        checkpoints.add(checkpoint);
+        bytes += bytesOf(checkpoint);
+        while (checkpoints.size() > 1 && (checkpoints.size() > MAX_CHECKPOINTS || bytes > MAX_BYTES)) thin();
+    }
+
+    // the latest checkpoint at or before 'step'; the one of step 0 is always kept
+    Checkpoint atOrBefore(long step) {
+        int lo = 0, hi = checkpoints.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (checkpoints.get(mid).step() <= step) lo = mid; else hi = mid - 1;
+        }
+        return checkpoints.get(lo);
+    }
+
+    int size() {
+        return checkpoints.size();
+    }
+
+    // estimated size of the copies kept
+    long bytes() {
+        return bytes;
+    }
+
+    private static long bytesOf(Checkpoint checkpoint) {
+        SlotExecutionContext.Snapshot state = checkpoint.state();
+        return CHECKPOINT_BYTES + 8L * state.values().length + state.present().length
+                + OVERFLOW_ENTRY_BYTES * state.overflow().size();
+    }
+
+    // keeps checkpoints 0, 2, 4, ... and makes the interval between new ones twice as long
+    private void thin() {
+        int kept = 0;
+        for (int i = 0; i < checkpoints.size(); i++) {
+            if (i % 2 == 0) {
+                checkpoints.set(kept++, checkpoints.get(i));
+            } else {
+                bytes -= bytesOf(checkpoints.get(i));
+            }
+        }
+        checkpoints.subList(kept, checkpoints.size()).clear();
+        interval *= 2;
+    }
+}
@@ -1,6 +1,7 @@
 package logic.execution;
 
 import core.program.Function;
+import dto.ExecutionBackend;
 import logic.variable.Variable;
 
 import java.util.Map;
@@ -11,4 +12,19 @@ public interface ExecutionContext {
     void updateVariable(Variable v, long value);
     Map<Variable, Long> getVariablesState();
     Map<String , Function> getFunctions();
+
+    // how function calls made from this context should run their bodies
+    default ExecutionBackend getBackend() {
+        return ExecutionBackend.INTERPRETER;
+    }
+
+    // cycles of the last function call (QUOTE / JUMP_EQUAL_FUNCTION) made on this context.
+    // Kept on the context rather than the instruction, so one program can serve several runs at once.
+    long getLastCallCycles();
+    void setLastCallCycles(long cycles);
+
+    // cycles the function calls of the instruction now running may still use before the
+    // run is over budget; a call stops once it has used them (RunOptions.UNLIMITED = no limit)
+    long getCycleBudget();
+    void setCycleBudget(long cycles);
     }
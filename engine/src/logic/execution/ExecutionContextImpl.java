@@ -1,6 +1,8 @@
 package logic.execution;
 
 import core.program.Function;
+import dto.ExecutionBackend;
+import dto.RunOptions;
 import logic.variable.Variable;
 import logic.variable.VariableImpl;
 import logic.variable.VariableType;
@@ -15,6 +17,9 @@ public class ExecutionContextImpl implements ExecutionContext {
 
     Map<Variable, Long> variableState;
     Map<String , Function> functions;
+    ExecutionBackend backend = ExecutionBackend.INTERPRETER;
+    long lastCallCycles;
+    long cycleBudget = RunOptions.UNLIMITED;
 
 
     public ExecutionContextImpl(List<Long> inputs, List<Function> functions) {
@@ -48,6 +53,9 @@ public class ExecutionContextImpl implements ExecutionContext {
         for (Map.Entry<String, Function> e : other.getFunctions().entrySet()) {
             this.functions.put(e.getKey(), copyFunction(e.getValue()));
         }
+
+        this.backend = other.getBackend();
+        this.cycleBudget = other.getCycleBudget();
     }
 
     private static Variable copyVariable(Variable v) {
@@ -96,6 +104,31 @@ public class ExecutionContextImpl implements ExecutionContext {
     public  Map<String , Function> getFunctions() {
         return functions;
     }
+
+    @Override
+    public ExecutionBackend getBackend() {
+        return backend;
+    }
+
+    @Override
+    public long getLastCallCycles() {
+        return lastCallCycles;
+    }
+
+    @Override
+    public void setLastCallCycles(long cycles) {
+        this.lastCallCycles = cycles;
+    }
+
+    @Override
+    public long getCycleBudget() {
+        return cycleBudget;
+    }
+
+    @Override
+    public void setCycleBudget(long cycles) {
+        this.cycleBudget = cycles;
+    }
 }
 
 
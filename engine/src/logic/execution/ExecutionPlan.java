@@ -0,0 +1,172 @@
+package logic.execution;
+
+import logic.execution.bytecode.BytecodeCompiler;
+import logic.execution.bytecode.CompiledProgram;
+import logic.instruction.Instruction;
+import logic.label.FixedLabel;
+import logic.label.Label;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compiled control-flow table of an expanded instruction list.
+// Built once per expansion level: every label is resolved to an instruction index
+// and every fall-through to the next index, so the executors move the program
+// counter in O(1) instead of scanning the instruction list on every step.
+public final class ExecutionPlan {
+
+    // program counter value that means "the program has finished"
+    public static final int EXIT = -1;
+
+    private final Instruction[] instructions;
+    private final int[] fallThrough;
+    private final Map<Label, Integer> labelTargets;
+    private final VariableLayout layout;
+    // counting loops that can be run in one go, indexed by their first instruction
+    private final LoopSummary[] loops;
+    // runs of basic instructions dispatched as one step, indexed by their first instruction
+    private final Superinstruction[] fused;
+    // bytecode version of this plan, compiled on first use (null if it can't be compiled)
+    private volatile CompiledProgram compiled;
+    private volatile boolean compileAttempted;
+
+    private ExecutionPlan(Instruction[] instructions, int[] fallThrough, Map<Label, Integer> labelTargets, VariableLayout layout) {
+        this.instructions = instructions;
+        this.fallThrough = fallThrough;
+        this.labelTargets = labelTargets;
+        this.layout = layout;
+        this.loops = LoopSummary.find(instructions, fallThrough, labelTargets);
+        this.fused = Superinstruction.fuse(this);
+    }
+
+    public static ExecutionPlan compile(List<Instruction> instructionList) {
+        Instruction[] instructions = instructionList.toArray(new Instruction[0]);
+        int size = instructions.length;
+
+        // fall-through: the next instruction, or EXIT after the last one
+        int[] fallThrough = new int[size];
+        for (int i = 0; i < size; i++) {
+            fallThrough[i] = (i + 1 < size) ? i + 1 : EXIT;
+        }
+
+        // line labels: the first instruction that carries a label wins (same as a linear scan)
+        Map<Label, Integer> lineLabels = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Label label = instructions[i].getLabel();
+            if (label != null && label != FixedLabel.EMPTY) {
+                lineLabels.putIfAbsent(label, i);
+            }
+        }
+
+        // every label an instruction can jump to, resolved ahead of time
+        Map<Label, Integer> labelTargets = new HashMap<>();
+        for (Instruction instruction : instructions) {
+            List<Label> labels = instruction.getAllLabels();
+            if (labels == null) continue;
+            for (Label label : labels) {
+                if (label == null || isEmpty(label) || labelTargets.containsKey(label)) continue;
+                labelTargets.put(label, isExit(label) ? EXIT : lineLabels.getOrDefault(label, EXIT));
+            }
+        }
+
+        return new ExecutionPlan(instructions, fallThrough, labelTargets, VariableLayout.of(instructions));
+    }
+
+    public int size() {
+        return instructions.length;
+    }
+
+    // index of the first instruction, or EXIT for an empty program
+    public int entry() {
+        return instructions.length == 0 ? EXIT : 0;
+    }
+
+    public Instruction instructionAt(int index) {
+        return instructions[index];
+    }
+
+    // the index to continue from after the instruction at 'index' returned 'nextLabel'
+    public int next(int index, Label nextLabel) {
+        if (nextLabel == FixedLabel.EMPTY) {
+            return fallThrough[index];
+        }
+        Integer target = labelTargets.get(nextLabel);
+        if (target != null) {
+            return target;
+        }
+        return resolveUnknown(index, nextLabel);
+    }
+
+    // slow path for labels that were not seen while compiling
+    private int resolveUnknown(int index, Label nextLabel) {
+        if (isEmpty(nextLabel)) {
+            return fallThrough[index];
+        }
+        if (nextLabel == null || isExit(nextLabel)) {
+            return EXIT;
+        }
+        for (int i = 0; i < instructions.length; i++) {
+            Label label = instructions[i].getLabel();
+            if (label != null && label.equals(nextLabel)) {
+                return i;
+            }
+        }
+        return EXIT;
+    }
+
+    // index of the instruction carrying the label named 'name' (the first one, as jumps go), or EXIT
+    public int lineOf(String name) {
+        for (int i = 0; i < instructions.length; i++) {
+            Label label = instructions[i].getLabel();
+            if (label != null && !isEmpty(label) && name.equalsIgnoreCase(label.getLabelRepresentation())) {
+                return i;
+            }
+        }
+        return EXIT;
+    }
+
+    // the counting loop that starts at 'index', or null
+    public LoopSummary loopAt(int index) {
+        return loops[index];
+    }
+
+    // the fused op that starts at 'index', or null
+    public Superinstruction fusedAt(int index) {
+        return fused[index];
+    }
+
+    public VariableLayout getLayout() {
+        return layout;
+    }
+
+    public CompiledProgram getCompiledProgram() {
+        if (!compileAttempted) {
+            synchronized (this) {
+                if (!compileAttempted) {
+                    compiled = BytecodeCompiler.compile(this);
+                    compileAttempted = true;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    public List<Instruction> getInstructions() {
+        return List.of(instructions);
+    }
+
+    static boolean isExit(Label l) {
+        if (l == null) return false;
+        if (l == FixedLabel.EXIT) return true;
+        String rep = l.getLabelRepresentation();
+        return rep != null && rep.equalsIgnoreCase("EXIT");
+    }
+
+    static boolean isEmpty(Label l) {
+        if (l == null) return false;
+        if (l == FixedLabel.EMPTY) return true;
+        String rep = l.getLabelRepresentation();
+        return rep != null && rep.equalsIgnoreCase("EMPTY");
+    }
+}
@@ -0,0 +1,147 @@
+package logic.execution;
+
+import core.program.Function;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Memo of finished function calls: S functions only see their inputs, so the same
+// function with the same argument values always returns the same y after the same
+// number of cycles. QUOTE / JUMP_EQUAL_FUNCTION look a call up here before running it.
+// Entries are scoped by the function list of the program that made the call, two
+// loaded programs may define different functions under the same name.
+// Once MAX_ENTRIES is passed, entries not used since the last sweep are dropped (an
+// approximate LRU, "second chance"): a lookup only marks its entry as used, and only if
+// it is not marked already, so calls looking up the same hot entry from many threads
+// share it read-only and never wait on each other. Puts made while another thread sweeps
+// go on, unless the cache is an eighth over its limit: those wait for the sweep.
+public final class FunctionCallCache {
+
+    public static final int MAX_ENTRIES = 4096;
+
+    private static final FunctionCallCache SHARED = new FunctionCallCache(MAX_ENTRIES);
+
+    // what a call produced: its y and the cycles the callee itself ran
+    public record Result(long value, long cycles) { }
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    // one thread sweeps at a time
+    private final ReentrantLock sweeping = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FunctionCallCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static FunctionCallCache shared() {
+        return SHARED;
+    }
+
+    public Result get(List<Function> functions, String name, long[] args) {
+        Entry entry = entries.get(new Key(functions, name, args));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (!entry.used) entry.used = true; // a racy mark is fine: at worst one sweep too early or late
+        return entry.result;
+    }
+
+    public void put(List<Function> functions, String name, long[] args, Result result) {
+        entries.put(new Key(functions, name, args), new Entry(result));
+        // checked again after each sweep: puts that skipped it while it ran are in the map
+        // by then, so once the puts stop the cache is within its limit
+        while (entries.size() > maxEntries) {
+            if (entries.size() > maxEntries + maxEntries / 8) {
+                sweeping.lock(); // far over: the sweep in progress cannot keep up, wait for it
+            } else if (!sweeping.tryLock()) {
+                return; // the thread sweeping checks again once it is done
+            }
+            try {
+                if (entries.size() > maxEntries) sweep();
+            } finally {
+                sweeping.unlock();
+            }
+        }
+    }
+
+    // drops entries not used since the last sweep and unmarks the rest, down to 7/8 of the
+    // limit so the next puts do not sweep again right away; from the third round on (all
+    // in use, or puts coming in as fast as it drops them) it drops whatever it takes
+    private void sweep() {
+        int target = maxEntries - maxEntries / 8;
+        for (int round = 0; entries.size() > target; round++) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext() && entries.size() > target) {
+                Entry entry = it.next();
+                if (entry.used && round < 2) {
+                    entry.used = false;
+                } else {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry {
+        private final Result result;
+        private boolean used; // since the last sweep
+
+        private Entry(Result result) {
+            this.result = result;
+        }
+    }
+
+    // the function list is compared by identity: it stands for "this loaded program"
+    private static final class Key {
+        private final List<Function> functions;
+        private final String name;
+        private final long[] args;
+        private final int hash;
+
+        private Key(List<Function> functions, String name, long[] args) {
+            this.functions = functions;
+            this.name = name;
+            this.args = args;
+            this.hash = 31 * (31 * System.identityHashCode(functions) + name.hashCode()) + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k
+                    && functions == k.functions
+                    && name.equals(k.name)
+                    && Arrays.equals(args, k.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
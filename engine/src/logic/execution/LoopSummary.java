@@ -0,0 +1,184 @@
+package logic.execution;
+
+import logic.instruction.Instruction;
+import logic.instruction.basic.DecreaseInstruction;
+import logic.instruction.basic.IncreaseInstruction;
+import logic.instruction.basic.JumpNotZeroInstruction;
+import logic.instruction.basic.NoOpInstruction;
+import logic.label.Label;
+import logic.variable.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Closed form of a counting loop
+//
+//   L: <INCREASE / DECREASE / NO_OP ...>
+//      JUMP_NOT_ZERO c L
+//
+// where the body decreases the counter c exactly once, never increases it, and moves
+// every other variable in one direction only. That covers DECREASE x / INCREASE y / JNZ x
+// and the loops ZERO_VARIABLE and ASSIGNMENT expand into.
+// Entered at L with c = n the loop runs max(n, 1) times, so the executors can apply all
+// iterations at once and add the cycles the steps would have taken. Near the end of a
+// cycle budget they apply only the iterations that fit and step through the rest, so the
+// run stops on the same instruction as it would have without the summary.
+public final class LoopSummary {
+
+    private final int start;
+    private final int end;
+    private final int exit;
+    private final Variable counter;
+    private final Variable[] variables;
+    // per variable: +k = INCREASE k times per iteration, -k = DECREASE k times per iteration
+    private final long[] steps;
+    private final long cyclesPerIteration;
+
+    private LoopSummary(int start, int end, int exit, Variable counter, Variable[] variables, long[] steps, long cyclesPerIteration) {
+        this.start = start;
+        this.end = end;
+        this.exit = exit;
+        this.counter = counter;
+        this.variables = variables;
+        this.steps = steps;
+        this.cyclesPerIteration = cyclesPerIteration;
+    }
+
+    // the loops of a plan, indexed by the instruction they start at (null where none starts)
+    static LoopSummary[] find(Instruction[] instructions, int[] fallThrough, Map<Label, Integer> labelTargets) {
+        LoopSummary[] loops = new LoopSummary[instructions.length];
+        for (int end = 0; end < instructions.length; end++) {
+            if (instructions[end].getClass() != JumpNotZeroInstruction.class) continue;
+            JumpNotZeroInstruction jnz = (JumpNotZeroInstruction) instructions[end];
+            Integer start = labelTargets.get(jnz.getTargetLabel());
+            if (start == null || start < 0 || start >= end) continue;
+            LoopSummary loop = summarize(instructions, start, end, jnz.getVariable(), fallThrough[end]);
+            if (loop != null) {
+                loops[start] = loop;
+            }
+        }
+        return loops;
+    }
+
+    private static LoopSummary summarize(Instruction[] instructions, int start, int end, Variable counter, int exit) {
+        if (counter == null) return null;
+        List<Variable> variables = new ArrayList<>();
+        List<Long> steps = new ArrayList<>();
+        int counterDecreases = 0;
+        long cycles = instructions[end].cycles();
+
+        for (int pc = start; pc < end; pc++) {
+            Instruction ins = instructions[pc];
+            cycles += ins.cycles();
+            Class<?> kind = ins.getClass();
+            if (kind == NoOpInstruction.class) continue;
+
+            int step;
+            if (kind == IncreaseInstruction.class) step = 1;
+            else if (kind == DecreaseInstruction.class) step = -1;
+            else return null; // anything that jumps or does more than +-1 is left to the interpreter
+
+            Variable v = ins.getVariable();
+            if (v == null) return null;
+            if (v.equals(counter)) {
+                if (step > 0) return null;
+                counterDecreases++;
+                continue;
+            }
+            int i = variables.indexOf(v);
+            if (i < 0) {
+                variables.add(v);
+                steps.add((long) step);
+            } else if (Long.signum(steps.get(i)) == step) {
+                steps.set(i, steps.get(i) + step);
+            } else {
+                return null; // saturating DECREASE mixed with INCREASE has no closed form
+            }
+        }
+        if (counterDecreases != 1) return null;
+
+        long[] stepArray = new long[steps.size()];
+        for (int i = 0; i < stepArray.length; i++) {
+            stepArray[i] = steps.get(i);
+        }
+        return new LoopSummary(start, end, exit, counter, variables.toArray(new Variable[0]), stepArray, cycles);
+    }
+
+    public int start() {
+        return start;
+    }
+
+    // the JUMP_NOT_ZERO that closes the loop
+    public int end() {
+        return end;
+    }
+
+    // where the program continues once the loop is done (ExecutionPlan.EXIT after the last line)
+    public int exit() {
+        return exit;
+    }
+
+    public Variable counter() {
+        return counter;
+    }
+
+    public Variable variableAt(int i) {
+        return variables[i];
+    }
+
+    public long stepAt(int i) {
+        return steps[i];
+    }
+
+    public int variableCount() {
+        return variables.length;
+    }
+
+    public long cyclesPerIteration() {
+        return cyclesPerIteration;
+    }
+
+    // runs every iteration of the loop on the context, returns the cycles they took
+    public long apply(ExecutionContext context) {
+        return apply(context, Long.MAX_VALUE);
+    }
+
+    // runs at most 'limit' iterations, returns the cycles they took; after fewer than all of
+    // them the counter is left where they left it and the program is back at start()
+    public long apply(ExecutionContext context, long limit) {
+        long count = context.getVariableValue(counter);
+        long iterations = Math.min(iterations(count), limit);
+        for (int i = 0; i < variables.length; i++) {
+            long value = context.getVariableValue(variables[i]);
+            context.updateVariable(variables[i], advance(value, steps[i], iterations));
+        }
+        context.updateVariable(counter, advance(count, -1, iterations));
+        return iterations * cyclesPerIteration;
+    }
+
+    // how many whole iterations end before 'remaining' cycles are used up: at a budget the
+    // steps stop on the first instruction that starts with none left, so an iteration that
+    // uses up the last cycles is stepped
+    public long iterationsWithin(long remaining) {
+        return remaining <= 0 ? 0 : (remaining - 1) / cyclesPerIteration;
+    }
+
+    // a counter of 0 (or below) still runs the body once before JNZ falls through
+    public static long iterations(long counter) {
+        return counter > 0 ? counter : 1;
+    }
+
+    // 'value' after 'iterations' rounds of 'step' INCREASE (step > 0) or DECREASE (step < 0) steps.
+    // Increases wrap like repeated ++ does; decreases stop at 0 like repeated DECREASE does.
+    public static long advance(long value, long step, long iterations) {
+        if (step > 0) {
+            return value + step * iterations;
+        }
+        long perIteration = -step;
+        if (value <= 0 || iterations > (value - 1) / perIteration) {
+            return 0L;
+        }
+        return value - perIteration * iterations;
+    }
+}
@@ -0,0 +1,46 @@
+package logic.execution;
+
+import dto.RunProfile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The counters of a profiled run: executions and cycles per instruction index in two arrays
+// the size of the plan, so counting a step is two array adds, and calls, memo hits and
+// cycles per function name (a call costs far more than the map lookup).
+final class Profiler {
+
+    private final long[] executions;
+    private final long[] cycles;
+    // per function name: calls, memo hits, cycles
+    private final Map<String, long[]> functions = new LinkedHashMap<>();
+
+    Profiler(int size) {
+        executions = new long[size];
+        cycles = new long[size];
+    }
+
+    // the instruction at 'pc' ran 'times' times and took 'used' cycles doing it
+    void count(int pc, long times, long used) {
+        executions[pc] += times;
+        cycles[pc] += used;
+    }
+
+    void call(String name, long used, boolean memoHit) {
+        long[] counters = functions.computeIfAbsent(name, n -> new long[3]);
+        counters[0]++;
+        if (memoHit) counters[1]++;
+        counters[2] += used;
+    }
+
+    RunProfile toProfile() {
+        List<RunProfile.FunctionProfile> called = new ArrayList<>(functions.size());
+        for (Map.Entry<String, long[]> e : functions.entrySet()) {
+            long[] c = e.getValue();
+            called.add(new RunProfile.FunctionProfile(e.getKey(), c[0], c[1], c[2]));
+        }
+        return new RunProfile(executions.clone(), cycles.clone(), called);
+    }
+}
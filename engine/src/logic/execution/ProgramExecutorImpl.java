@@ -2,9 +2,14 @@ package logic.execution;
 
 import core.program.Program;
 import core.program.VariableAndLabelMenger;
+import dto.Breakpoint;
+import dto.ExecutionBackend;
+import dto.RunOptions;
+import dto.RunOutcome;
+import dto.RunProfile;
+import logic.exception.CycleBudgetExhaustedException;
+import logic.execution.bytecode.CompiledProgram;
 import logic.instruction.Instruction;
-import logic.instruction.synthetic.QuoteInstruction;
-import logic.label.FixedLabel;
 import logic.label.Label;
 import logic.variable.Variable;
 import logic.variable.VariableImpl;
@@ -20,16 +25,68 @@ import static java.util.Collections.emptyList;
 
 public class ProgramExecutorImpl implements ProgramExecutor {
 
+    // cancel, interrupt and the cycle budget are looked at every CHECK_INTERVAL cycles (and
+    // whenever the budget is reached), so a step only pays one compare of the cycle counter
+    static final long CHECK_INTERVAL = 4096;
+
     private Program program;
-    private ExecutionContext context;
-    public int cycleCount = 0;
+    private ExecutionPlan plan;
+    private SlotExecutionContext context;
+    // execute() only passes it on to function arguments, so one instance serves every step
+    private final VariableAndLabelMenger vlm = new VariableAndLabelMenger();
+    public long cycleCount = 0;
     public int debugIndexCounter = 0;
+    // debug sessions: the version of the variable state, the steps the state is at and
+    // checkpoints to go back to earlier ones (none once resume() ran to the end)
+    private long stateVersion = 0;
+    private long stepCount = 0;
+    private DebugHistory history;
+    private BreakpointSet breakpoints = BreakpointSet.NONE;
+    private boolean atBreakpoint;
     private volatile boolean cancelled = false;
+    private ExecutionBackend backend = ExecutionBackend.INTERPRETER;
+    private long cycleBudget = RunOptions.UNLIMITED;
+    private RunOutcome outcome = RunOutcome.COMPLETED;
+    // counts what run() executes, null when not profiling
+    private Profiler profiler;
 
     public void cancel() { cancelled = true; }
 
+    // run() counts the executions and cycles of every instruction and function call;
+    // a profiled run always goes through the interpreter
+    public void setProfiling(boolean profiling) {
+        this.profiler = profiling ? new Profiler(plan.size()) : null;
+    }
+
+    // what the last profiled run() did, null when it was not profiled
+    public RunProfile getProfile() {
+        return profiler == null ? null : profiler.toProfile();
+    }
+
+    // run() and resume() stop once the run has used this many cycles in total
+    public void setCycleBudget(long cycleBudget) {
+        this.cycleBudget = cycleBudget;
+    }
+
+    // how the last run() / resume() ended
+    public RunOutcome getOutcome() {
+        return outcome;
+    }
+
+    // only run() looks at the backend, debugging always steps through the interpreter
+    public void setBackend(ExecutionBackend backend) {
+        this.backend = backend == null ? ExecutionBackend.INTERPRETER : backend;
+    }
+
     public ProgramExecutorImpl(Program program) {
         this.program = program;
+        this.plan = program.getExecutionPlan();
+    }
+
+    // runs the program expanded to 'level', whatever level other callers extend it to meanwhile
+    public ProgramExecutorImpl(Program program, int level) {
+        this.program = program;
+        this.plan = program.getExecutionPlan(level);
     }
 
     @Override
@@ -46,44 +103,142 @@ public class ProgramExecutorImpl implements ProgramExecutor {
             }
         }
 
-        context = new ExecutionContextImpl(safeInputs, program.getFunctions()); // create the context with inputs.
         Variable res = new VariableImpl(VariableType.RESULT, 1);
-        context.updateVariable(res, 0); // initialize the result variable to 0.
+        // compiled code has no instruction indexes to count against
+        ExecutionBackend runBackend = profiler == null ? backend : ExecutionBackend.INTERPRETER;
+        startContext(safeInputs, runBackend);
+
+        // compiled body when asked for and the program can be compiled, interpreter otherwise
+        CompiledProgram compiled = runBackend == ExecutionBackend.BYTECODE ? plan.getCompiledProgram() : null;
+        if (compiled != null) {
+            long start = cycleCount;
+            long used = context.runCompiled(compiled, c -> keepRunning(start + c));
+            if (outcome == RunOutcome.COMPLETED && start + used > cycleBudget) {
+                outcome = RunOutcome.BUDGET_EXHAUSTED;
+            }
+            if (outcome != RunOutcome.BUDGET_EXHAUSTED) {
+                cycleCount = start + used;
+                return context.getVariableValue(res);
+            }
+            // compiled code only stops at backward jumps and applies loops whole, so it can end
+            // far past the budget: the interpreter runs it again from the start and stops where
+            // stepping would (no calls in compiled code, nothing else saw the first attempt)
+            startContext(safeInputs, runBackend);
+        }
 
-        enterAllVariabalesInContext();
+        // start from the first instruction (EXIT for an empty program)
+        if (profiler != null) {
+            CallStack stack = CallStack.current();
+            stack.setProfiler(profiler);
+            try {
+                runFrom(plan.entry());
+            } finally {
+                stack.setProfiler(null);
+            }
+        } else {
+            runFrom(plan.entry());
+        }
 
-        // get the first instruction
-        Instruction currentInstruction = program.getInstructions().isEmpty() ? null : program.getInstructions().getFirst();
+        // return result
+        return context.getVariableValue(res);
+    }
 
-        // if null, return result
-        if (currentInstruction == null) {
-            return context.getVariableValue(res);
-        }
+    // a fresh context with the inputs, y and the work variables at 0
+    private void startContext(List<Long> inputs, ExecutionBackend runBackend) {
+        context = new SlotExecutionContext(plan.getLayout(), inputs, program.getFunctions());
+        context.updateVariable(new VariableImpl(VariableType.RESULT, 1), 0);
+        context.initWorkVariables();
+        context.setBackend(runBackend);
+        outcome = RunOutcome.COMPLETED;
+    }
 
-        Label nextLabel;
-        do {
-            if (cancelled || Thread.currentThread().isInterrupted()) {
-                break;
+    // steps from 'pc' to the end of the program, or until the budget is used up or the run
+    // is cancelled; returns the index it stopped at (EXIT at the end)
+    private int runFrom(int pc) {
+        Profiler profiler = this.profiler;
+        long checkpoint = cycleCount;
+        while (pc != ExecutionPlan.EXIT) {
+            if (cycleCount >= checkpoint) {
+                if (!keepRunning(cycleCount)) {
+                    break;
+                }
+                checkpoint = Math.min(cycleBudget, cycleCount + CHECK_INTERVAL);
             }
-            nextLabel = currentInstruction.execute(context, new VariableAndLabelMenger());
-            // sum cycles
-            cycleCount += currentInstruction.cycles();
-
-            if (isEmpty(nextLabel)) {
-                currentInstruction = program.getNextInstructionLabel(currentInstruction);
-                if (currentInstruction == null) {
-                    nextLabel = FixedLabel.EXIT;
+            LoopSummary loop = plan.loopAt(pc);
+            if (loop != null) {
+                long iterations = LoopSummary.iterations(context.getVariableValue(loop.counter()));
+                long fit = loop.iterationsWithin(cycleBudget - cycleCount);
+                if (fit >= iterations) {
+                    if (profiler != null) countLoop(profiler, loop, iterations);
+                    // the whole counting loop at once, same state and cycles as stepping through it
+                    cycleCount += loop.apply(context);
+                    pc = loop.exit();
+                    continue;
                 }
-            } else if (!isExit(nextLabel)) {
-                currentInstruction = program.getInstructionByLabel(nextLabel);
-                if (currentInstruction == null) {
-                    nextLabel = FixedLabel.EXIT;
+                // the budget ends inside the loop: what fits at once, the last iteration stepped
+                if (profiler != null) countLoop(profiler, loop, fit);
+                cycleCount += loop.apply(context, fit);
+            }
+            Superinstruction fused = plan.fusedAt(pc);
+            if (fused != null && fused.fitsIn(cycleBudget - cycleCount)) {
+                if (profiler != null) {
+                    for (int i = pc; i < pc + fused.length(); i++) {
+                        profiler.count(i, 1, plan.instructionAt(i).cycles());
+                    }
                 }
+                cycleCount += fused.cycles();
+                pc = fused.execute(context);
+                continue;
+            }
+            Instruction currentInstruction = plan.instructionAt(pc);
+            long before = cycleCount;
+            // a call made by this step may use what is left of the budget, no more
+            context.setCycleBudget(cycleBudget - cycleCount);
+            Label nextLabel;
+            try {
+                nextLabel = currentInstruction.execute(context, vlm);
+            } catch (CycleBudgetExhaustedException e) {
+                // a call ran out of budget half way, the run ends on this instruction
+                cycleCount = cycleBudget + e.getOvershoot();
+                outcome = RunOutcome.BUDGET_EXHAUSTED;
+                if (profiler != null) profiler.count(pc, 1, cycleCount - before);
+                break;
             }
-        } while (!isExit(nextLabel));
+            // sum cycles
+            cycleCount += currentInstruction.cycles(context);
+            if (profiler != null) profiler.count(pc, 1, cycleCount - before);
+            pc = plan.next(pc, nextLabel);
+        }
+        overBudgetCheck();
+        return pc;
+    }
 
-        // return result
-        return context.getVariableValue(res);
+    // every instruction of the loop runs once per iteration
+    private void countLoop(Profiler profiler, LoopSummary loop, long iterations) {
+        for (int i = loop.start(); i <= loop.end(); i++) {
+            profiler.count(i, iterations, iterations * plan.instructionAt(i).cycles());
+        }
+    }
+
+    // the last step can take the run past its budget (an instruction that starts with cycles
+    // left and costs more than that), and so can compiled code between backward jumps
+    private void overBudgetCheck() {
+        if (outcome == RunOutcome.COMPLETED && cycleCount > cycleBudget) {
+            outcome = RunOutcome.BUDGET_EXHAUSTED;
+        }
+    }
+
+    // false (and the reason in 'outcome') once the run has to stop after 'cycles' cycles
+    private boolean keepRunning(long cycles) {
+        if (cycles >= cycleBudget) {
+            outcome = RunOutcome.BUDGET_EXHAUSTED;
+            return false;
+        }
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            outcome = RunOutcome.CANCELLED;
+            return false;
+        }
+        return true;
     }
 
     @Override
@@ -96,34 +251,6 @@ public class ProgramExecutorImpl implements ProgramExecutor {
         return allVariables;
     }
 
-    private static boolean isExit(Label l) {
-        if (l == null) return false;
-        if (l == FixedLabel.EXIT) return true;
-        String rep = l.getLabelRepresentation();
-        return rep != null && rep.equalsIgnoreCase("EXIT");
-    }
-
-    private static boolean isEmpty(Label l) {
-        if (l == null) return false;
-        if (l == FixedLabel.EMPTY) return true;
-        String rep = l.getLabelRepresentation();
-        return rep != null && rep.equalsIgnoreCase("EMPTY");
-    }
-
-    private void enterAllVariabalesInContext() {
-        List<Instruction> instructions = program.getInstructions();
-        for (Instruction instruction : instructions) {
-            List<String> infos = instruction.getAllInfo();
-            for (String info : infos) {
-                if (info != null && info.startsWith("z")) {
-                    VariableImpl var = new VariableImpl(VariableType.WORK, Integer.parseInt(info.substring(1)));
-                    context.updateVariable(var,0L);
-                }
-            }
-
-        }
-    }
-
     public void init(List<Long> inputs) {
         // safe inputs
         List<Long> safeInputs;
@@ -135,75 +262,171 @@ public class ProgramExecutorImpl implements ProgramExecutor {
                 safeInputs.add(v != null ? v : 0L);
             }
         }
-        context = new ExecutionContextImpl(inputs, program.getFunctions()); // create the context with inputs.
+        context = new SlotExecutionContext(plan.getLayout(), safeInputs, program.getFunctions()); // create the context with inputs.
 
         Variable res = new VariableImpl(VariableType.RESULT, 1);
         context.updateVariable(res, 0); // initialize the result variable to 0.
 
-        enterAllVariabalesInContext();
+        context.initWorkVariables();
+        // a debug session: from here on the context remembers what each step changes
+        context.trackChanges();
+        context.drainChanges((v, value) -> { });
+        stateVersion = 0;
+        stepCount = 0;
+        history = new DebugHistory(DebugHistory.DEFAULT_INTERVAL);
+        history.afterStep(0, debugIndexCounter, cycleCount, context);
+    }
+
+    // the variables that changed since the last call (or since init()), by name
+    public Map<String, Long> variablesChanged() {
+        Map<String, Long> changed = new LinkedHashMap<>();
+        context.drainChanges((v, value) -> changed.put(v.getRepresentation(), value));
+        return changed;
+    }
+
+    // how many steps (or resumes) the state went through since init()
+    public long getStateVersion() {
+        return stateVersion;
+    }
+
+    // the steps taken to get to the current state (going back takes it down again)
+    public long getStepCount() {
+        return stepCount;
     }
 
     public int runOneStep() {
-        // get the first instruction
-        Instruction currentInstruction = program.getInstructions().get(debugIndexCounter);
+        stateVersion++;
+        outcome = RunOutcome.COMPLETED;
+        atBreakpoint = false;
+        step();
+        return debugIndexCounter;
+    }
 
-        Label nextLabel;
+    // back to the state after 'target' steps, 0 being the state init() left: restores the
+    // nearest checkpoint before it and replays the rest, or steps forward to get there.
+    // Stops early at the end of the program or when the budget is used up (see getOutcome()).
+    // The variables changed on the way are not reported, callers read the whole state.
+    public int goToStep(long target) {
+        if (target < 0) throw new IllegalArgumentException("step must not be negative: " + target);
+        if (history == null) throw new IllegalStateException("The run went to its end, it has no steps to go to");
+        stateVersion++;
+        outcome = RunOutcome.COMPLETED;
+        atBreakpoint = false;
+        if (target < stepCount) {
+            DebugHistory.Checkpoint checkpoint = history.atOrBefore(target);
+            context.restore(checkpoint.state());
+            stepCount = checkpoint.step();
+            debugIndexCounter = checkpoint.pc();
+            cycleCount = checkpoint.cycles();
+        }
+        while (stepCount < target && debugIndexCounter != ExecutionPlan.EXIT && step()) {
+            // replaying
+        }
+        context.drainChanges((v, value) -> { });
+        return debugIndexCounter;
+    }
 
-        // get the instruction next label if take you there
-        nextLabel = currentInstruction.execute(context, new VariableAndLabelMenger());
+    // replaces the breakpoints runSteps() stops at; an IllegalArgumentException for one that
+    // does not fit the program leaves the old ones
+    public void setBreakpoints(List<Breakpoint> breakpoints) {
+        this.breakpoints = BreakpointSet.of(breakpoints, plan);
+    }
 
-        // sum cycles
-        cycleCount += currentInstruction.cycles();
-
-        // if not take you there, go to the next instruction
-        if (isEmpty(nextLabel)) {
-            currentInstruction = program.getNextInstructionLabel(currentInstruction);
-            debugIndexCounter = program.getInstructions().indexOf(currentInstruction);
-            // return the next index of the next instruction
-            return debugIndexCounter;
-
-            // if take you there and there is no exit, go to that instruction
-        } else if (!isExit(nextLabel)) {
-            currentInstruction = program.getInstructionByLabel(nextLabel);
-            debugIndexCounter = program.getInstructions().indexOf(currentInstruction);
-            // return the index of the instruction that it took you to
-            return debugIndexCounter;
+    // runs up to 'count' steps, stopping before the first instruction a breakpoint is hit at
+    // (the instruction it starts on is run), at the end of the program, when the budget is
+    // used up or when cancelled. The steps are taken one by one, so time travel still works.
+    public int runSteps(long count) {
+        stateVersion++;
+        outcome = RunOutcome.COMPLETED;
+        atBreakpoint = false;
+        long checkpoint = CHECK_INTERVAL;
+        for (long taken = 0; taken < count && debugIndexCounter != ExecutionPlan.EXIT; taken++) {
+            if (taken >= checkpoint) {
+                if (cancelled || Thread.currentThread().isInterrupted()) {
+                    outcome = RunOutcome.CANCELLED;
+                    break;
+                }
+                checkpoint += CHECK_INTERVAL;
+            }
+            if (!step()) break;
+            if (debugIndexCounter != ExecutionPlan.EXIT && breakpoints.hits(debugIndexCounter, context)) {
+                atBreakpoint = true;
+                break;
+            }
         }
-        else { // if (isExit(nextLabel))
-            // -1 signifies the end of the program
-            debugIndexCounter = -1;
-            return debugIndexCounter;
+        return debugIndexCounter;
+    }
+
+    // steps until the instruction at 'index' is the next one (EXIT: to the end of the program);
+    // nothing runs when it already is. Each step moves the program counter through the plan
+    // and builds nothing, the caller reads the state once it stopped.
+    public int runTo(int index) {
+        stateVersion++;
+        outcome = RunOutcome.COMPLETED;
+        atBreakpoint = false;
+        long checkpoint = stepCount + CHECK_INTERVAL;
+        while (debugIndexCounter != index && debugIndexCounter != ExecutionPlan.EXIT) {
+            if (stepCount >= checkpoint) {
+                if (cancelled || Thread.currentThread().isInterrupted()) {
+                    outcome = RunOutcome.CANCELLED;
+                    break;
+                }
+                checkpoint = stepCount + CHECK_INTERVAL;
+            }
+            if (!step()) break;
         }
+        return debugIndexCounter;
     }
 
-    public void resume() {
-        Instruction currentInstruction = program.getInstructions().get(debugIndexCounter);
+    // whether the last step, jump or runSteps() stopped at a breakpoint
+    public boolean isAtBreakpoint() {
+        return atBreakpoint;
+    }
 
-        // if null, return result
-        if (currentInstruction == null) {
-            return;
+    public int stepBack() {
+        return goToStep(Math.max(0, stepCount - 1));
+    }
+
+    // runs the instruction at debugIndexCounter; false when the budget stopped the run
+    private boolean step() {
+        if (cycleCount >= cycleBudget) {
+            // nothing left to run the step with, stay on it
+            outcome = RunOutcome.BUDGET_EXHAUSTED;
+            return false;
         }
 
+        // get the current instruction
+        Instruction currentInstruction = plan.instructionAt(debugIndexCounter);
+
+        // get the instruction next label if take you there
+        context.setCycleBudget(cycleBudget - cycleCount);
         Label nextLabel;
-        do {
-            nextLabel = currentInstruction.execute(context, new VariableAndLabelMenger());
-            // sum cycles
-            cycleCount += currentInstruction.cycles();
+        try {
+            nextLabel = currentInstruction.execute(context, vlm);
+        } catch (CycleBudgetExhaustedException e) {
+            // the step's call ran out of budget half way, it did not happen as far as the index goes
+            cycleCount = cycleBudget + e.getOvershoot();
+            outcome = RunOutcome.BUDGET_EXHAUSTED;
+            return false;
+        }
 
-            if (isEmpty(nextLabel)) {
-                currentInstruction = program.getNextInstructionLabel(currentInstruction);
-                if (currentInstruction == null) {
-                    nextLabel = FixedLabel.EXIT;
-                }
-            } else if (!isExit(nextLabel)) {
-                currentInstruction = program.getInstructionByLabel(nextLabel);
-                if (currentInstruction == null) {
-                    nextLabel = FixedLabel.EXIT;
-                }
-            }
-        } while (!isExit(nextLabel));
+        // sum cycles
+        cycleCount += currentInstruction.cycles(context);
+        overBudgetCheck();
+
+        // the index of the next instruction, or -1 (EXIT) at the end of the program
+        debugIndexCounter = plan.next(debugIndexCounter, nextLabel);
+        stepCount++;
+        if (history != null) history.afterStep(stepCount, debugIndexCounter, cycleCount, context);
+        return outcome == RunOutcome.COMPLETED;
+    }
 
-        // end of program
-        return;
+    public void resume() {
+        stateVersion++;
+        outcome = RunOutcome.COMPLETED;
+        // runFrom() does not count steps, there is nothing to go back to after it
+        history = null;
+        // EXIT at the end of program, otherwise where the budget or a cancel stopped it
+        debugIndexCounter = runFrom(debugIndexCounter);
     }
 }
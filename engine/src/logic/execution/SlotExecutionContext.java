@@ -0,0 +1,244 @@
+package logic.execution;
+
+import core.program.Function;
+import dto.ExecutionBackend;
+import dto.RunOptions;
+import logic.execution.bytecode.CompiledProgram;
+import logic.variable.Variable;
+import logic.variable.VariableImpl;
+import logic.variable.VariableType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+
+import static java.util.Collections.emptyList;
+
+// Register-file context: the variables of the layout live in a primitive long[]
+// addressed by their pre-resolved slot, so INCREASE/DECREASE/JNZ never box a Long
+// or hash a Variable. Variables outside the layout (extra inputs, variables only
+// reached through function arguments) fall back to a small map.
+public class SlotExecutionContext implements ExecutionContext {
+
+    private final VariableLayout layout;
+    private final long[] values;
+    // a slot is part of the state once it was given, read or written (same as the map keys before)
+    private final boolean[] present;
+    private final Map<Variable, Long> overflow = new HashMap<>();
+    private final List<Function> functionList;
+    private Map<String, Function> functions;
+    private ExecutionBackend backend = ExecutionBackend.INTERPRETER;
+    private long lastCallCycles;
+    private long cycleBudget = RunOptions.UNLIMITED;
+    // debug sessions only: the slots (bit per slot) and overflow variables that came into the
+    // state or changed since the last drainChanges(); null while nobody asks, as in a run
+    private long[] changed;
+    private Set<Variable> changedOverflow;
+
+    public SlotExecutionContext(VariableLayout layout, List<Long> inputs, List<Function> functions) {
+        this.layout = layout;
+        this.values = new long[layout.size()];
+        this.present = new boolean[layout.size()];
+        this.functionList = functions == null ? emptyList() : functions;
+
+        // Initialize the variable state with the input values to the right variables by order
+        if (inputs == null) {
+            inputs = emptyList();
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            Long value = inputs.get(i);
+            setInput(i + 1, value != null ? value : 0L);
+        }
+    }
+
+    // starts the context over for another call on the same layout: every variable unset
+    // again, x1..xn taken from 'inputs' (the same as a new context with those inputs)
+    public void reset(long[] inputs) {
+        Arrays.fill(values, 0L);
+        Arrays.fill(present, false);
+        overflow.clear();
+        lastCallCycles = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            setInput(i + 1, inputs[i]);
+        }
+    }
+
+    // x<number> = value, straight into its slot (private: the constructor uses it too)
+    private void setInput(int number, long value) {
+        int slot = layout.slotOf(VariableType.INPUT, number);
+        if (slot == VariableLayout.NO_SLOT) {
+            overflow.put(new VariableImpl(VariableType.INPUT, number), value);
+        } else {
+            values[slot] = value;
+            present[slot] = true;
+        }
+    }
+
+    // the z variables of the program start at 0 before the first instruction runs
+    public void initWorkVariables() {
+        for (int slot : layout.workSlots()) {
+            values[slot] = 0L;
+            present[slot] = true;
+        }
+    }
+
+    @Override
+    public long getVariableValue(Variable v) {
+        int slot = layout.slotOf(v);
+        if (slot == VariableLayout.NO_SLOT) {
+            Long val = overflow.get(v);
+            if (val == null) {
+                overflow.put(v, 0L); // init-on-read
+                if (changed != null) changedOverflow.add(v);
+                return 0L;
+            }
+            return val;
+        }
+        if (!present[slot]) {
+            present[slot] = true; // init-on-read
+            values[slot] = 0L;
+            if (changed != null) changed[slot >>> 6] |= 1L << (slot & 63);
+        }
+        return values[slot];
+    }
+
+    // the value without the init-on-read: looking at a variable does not make it part of the state
+    public long peekVariableValue(Variable v) {
+        int slot = layout.slotOf(v);
+        if (slot == VariableLayout.NO_SLOT) {
+            Long val = overflow.get(v);
+            return val == null ? 0L : val;
+        }
+        return present[slot] ? values[slot] : 0L;
+    }
+
+    @Override
+    public void updateVariable(Variable v, long value) {
+        int slot = layout.slotOf(v);
+        if (slot == VariableLayout.NO_SLOT) {
+            overflow.put(v, value);
+            if (changed != null) changedOverflow.add(v);
+            return;
+        }
+        values[slot] = value;
+        present[slot] = true;
+        if (changed != null) changed[slot >>> 6] |= 1L << (slot & 63);
+    }
+
+    // from now on remember which variables change, for drainChanges()
+    public void trackChanges() {
+        changed = new long[(values.length + 63) / 64];
+        changedOverflow = new LinkedHashSet<>();
+    }
+
+    // hands every variable written (or first read) since the last call to 'sink' with its
+    // value, in slot order, and forgets them; the cost is the words of the bit set plus the
+    // variables that changed, not the whole state
+    public void drainChanges(BiConsumer<Variable, Long> sink) {
+        if (changed == null) return;
+        for (int word = 0; word < changed.length; word++) {
+            long bits = changed[word];
+            while (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                sink.accept(layout.variableAt(slot), values[slot]);
+            }
+            changed[word] = 0;
+        }
+        for (Variable v : changedOverflow) {
+            sink.accept(v, overflow.get(v));
+        }
+        changedOverflow.clear();
+    }
+
+    // a copy of the register file, taken as a debug checkpoint (see DebugHistory)
+    record Snapshot(long[] values, boolean[] present, Map<Variable, Long> overflow) { }
+
+    Snapshot snapshot() {
+        return new Snapshot(values.clone(), present.clone(),
+                overflow.isEmpty() ? Map.of() : new HashMap<>(overflow));
+    }
+
+    // puts the variables back as they were at 'snapshot'; what changed since is not reported
+    void restore(Snapshot snapshot) {
+        System.arraycopy(snapshot.values(), 0, values, 0, values.length);
+        System.arraycopy(snapshot.present(), 0, present, 0, present.length);
+        overflow.clear();
+        overflow.putAll(snapshot.overflow());
+        if (changed != null) {
+            Arrays.fill(changed, 0L);
+            changedOverflow.clear();
+        }
+    }
+
+    // runs a compiled body directly on the register file, returns the cycles it took
+    public long runCompiled(CompiledProgram compiled, LongPredicate guard) {
+        long[] touched = new long[(values.length + 63) / 64];
+        long cycles = compiled.execute(values, touched, guard);
+        for (int slot = 0; slot < present.length; slot++) {
+            if ((touched[slot >>> 6] & (1L << (slot & 63))) != 0) {
+                present[slot] = true;
+            }
+        }
+        return cycles;
+    }
+
+    public void setBackend(ExecutionBackend backend) {
+        this.backend = backend == null ? ExecutionBackend.INTERPRETER : backend;
+    }
+
+    @Override
+    public ExecutionBackend getBackend() {
+        return backend;
+    }
+
+    @Override
+    public long getLastCallCycles() {
+        return lastCallCycles;
+    }
+
+    @Override
+    public void setLastCallCycles(long cycles) {
+        this.lastCallCycles = cycles;
+    }
+
+    @Override
+    public long getCycleBudget() {
+        return cycleBudget;
+    }
+
+    @Override
+    public void setCycleBudget(long cycles) {
+        this.cycleBudget = cycles;
+    }
+
+    // built on demand, the run itself never needs the map
+    @Override
+    public Map<Variable, Long> getVariablesState() {
+        Map<Variable, Long> state = new LinkedHashMap<>();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (present[slot]) {
+                state.put(layout.variableAt(slot), values[slot]);
+            }
+        }
+        state.putAll(overflow);
+        return state;
+    }
+
+    @Override
+    public Map<String, Function> getFunctions() {
+        if (functions == null) {
+            functions = new HashMap<>();
+            for (Function f : functionList) {
+                functions.put(f.getName(), f);
+            }
+        }
+        return functions;
+    }
+}
@@ -0,0 +1,114 @@
+package logic.execution;
+
+import logic.instruction.Instruction;
+import logic.instruction.basic.DecreaseInstruction;
+import logic.instruction.basic.IncreaseInstruction;
+import logic.instruction.basic.JumpNotZeroInstruction;
+import logic.instruction.basic.NoOpInstruction;
+import logic.label.FixedLabel;
+import logic.label.Label;
+import logic.variable.Variable;
+
+// A short run of basic instructions the executors dispatch as one step:
+//
+//   NO_OP chain          NO_OP ... NO_OP               -> continue after the chain
+//   DECREASE + JNZ       DECREASE a / JNZ b L
+//   INCREASE + JNZ       INCREASE a / JNZ b L          (GOTO_LABEL expands to INCREASE z / JNZ z L)
+//
+// Every fused op stands for the instructions [start, start + length) of the plan and
+// reports their combined cycles, so instruction indexes and cycle counts stay the same;
+// only the number of dispatches goes down. Debug stepping keeps using the single instructions,
+// and so do the executors for a fused op that would reach the cycle budget (see fitsIn).
+public final class Superinstruction {
+
+    static final int NO_OPS = 0;
+    static final int DECREASE_JNZ = 1;
+    static final int INCREASE_JNZ = 2;
+
+    private final int kind;
+    private final int length;
+    private final int cycles;
+    private final Variable changed;
+    private final Variable tested;
+    // where the run continues: after the fused instructions, or the JNZ target when it jumps
+    private final int next;
+    private final int target;
+
+    private Superinstruction(int kind, int length, int cycles, Variable changed, Variable tested, int next, int target) {
+        this.kind = kind;
+        this.length = length;
+        this.cycles = cycles;
+        this.changed = changed;
+        this.tested = tested;
+        this.next = next;
+        this.target = target;
+    }
+
+    // the fused ops of a plan, indexed by their first instruction (null where none starts)
+    static Superinstruction[] fuse(ExecutionPlan plan) {
+        int size = plan.size();
+        Superinstruction[] fused = new Superinstruction[size];
+        for (int pc = 0; pc < size; pc++) {
+            Instruction first = plan.instructionAt(pc);
+            Class<?> kind = first.getClass();
+
+            if (kind == NoOpInstruction.class) {
+                int end = pc;
+                int cycles = 0;
+                while (end < size && plan.instructionAt(end).getClass() == NoOpInstruction.class) {
+                    cycles += plan.instructionAt(end).cycles();
+                    end++;
+                }
+                int length = end - pc;
+                int next = end < size ? end : ExecutionPlan.EXIT;
+                fused[pc] = new Superinstruction(NO_OPS, length, cycles, null, null, next, next);
+                continue;
+            }
+
+            if (pc + 1 >= size || plan.instructionAt(pc + 1).getClass() != JumpNotZeroInstruction.class) continue;
+            if (kind != DecreaseInstruction.class && kind != IncreaseInstruction.class) continue;
+            JumpNotZeroInstruction jnz = (JumpNotZeroInstruction) plan.instructionAt(pc + 1);
+            if (first.getVariable() == null || jnz.getVariable() == null) continue;
+
+            Label label = jnz.getTargetLabel();
+            int next = plan.next(pc + 1, FixedLabel.EMPTY);
+            int target = plan.next(pc + 1, label);
+            fused[pc] = new Superinstruction(kind == DecreaseInstruction.class ? DECREASE_JNZ : INCREASE_JNZ,
+                    2, first.cycles() + jnz.cycles(), first.getVariable(), jnz.getVariable(), next, target);
+        }
+        return fused;
+    }
+
+    // number of plan instructions this op stands for
+    public int length() {
+        return length;
+    }
+
+    public int cycles() {
+        return cycles;
+    }
+
+    // whether all its instructions run before 'remaining' cycles are used up; otherwise the
+    // budget ends inside it and the single instructions are stepped to stop on the right one
+    public boolean fitsIn(long remaining) {
+        return cycles < remaining;
+    }
+
+    // runs the fused instructions on the context, returns the index to continue from
+    public int execute(ExecutionContext context) {
+        switch (kind) {
+            case DECREASE_JNZ: {
+                long value = context.getVariableValue(changed);
+                context.updateVariable(changed, Math.max(0, value - 1));
+                return context.getVariableValue(tested) != 0 ? target : next;
+            }
+            case INCREASE_JNZ: {
+                long value = context.getVariableValue(changed);
+                context.updateVariable(changed, value + 1);
+                return context.getVariableValue(tested) != 0 ? target : next;
+            }
+            default:
+                return next;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package logic.execution;
+
+import logic.instruction.Instruction;
+import logic.variable.Variable;
+import logic.variable.VariableImpl;
+import logic.variable.VariableType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Dense slot numbering of every variable an instruction list touches.
+// Built once per expansion level together with the ExecutionPlan: each (type, index)
+// pair gets a fixed integer slot, so a context can keep its values in a long[]
+// and find a variable with two array reads instead of hashing it.
+public final class VariableLayout {
+
+    // slot lookup that means "not part of this layout"
+    public static final int NO_SLOT = -1;
+
+    private static final int[] EMPTY = new int[0];
+
+    // [type.ordinal()][variable index] -> slot
+    private final int[][] slotsByType;
+    private final Variable[] slotVariables;
+    // the slots of the z variables the executors pre-fill with 0 before a run
+    private final int[] workSlots;
+
+    private VariableLayout(int[][] slotsByType, Variable[] slotVariables, int[] workSlots) {
+        this.slotsByType = slotsByType;
+        this.slotVariables = slotVariables;
+        this.workSlots = workSlots;
+    }
+
+    public static VariableLayout of(Instruction[] instructions) {
+        Builder builder = new Builder();
+        // y is always there, it is the result of every run
+        builder.add(new VariableImpl(VariableType.RESULT, 1));
+
+        List<Integer> workSlots = new ArrayList<>();
+        for (Instruction instruction : instructions) {
+            List<Variable> variables = instruction.getAllVariables();
+            if (variables != null) {
+                for (Variable v : variables) {
+                    builder.add(v);
+                }
+            }
+            // same rule the executors always used to seed the z variables
+            List<String> infos = instruction.getAllInfo();
+            if (infos == null) continue;
+            for (String info : infos) {
+                if (info != null && info.startsWith("z")) {
+                    int slot = builder.add(new VariableImpl(VariableType.WORK, Integer.parseInt(info.substring(1))));
+                    if (!workSlots.contains(slot)) {
+                        workSlots.add(slot);
+                    }
+                }
+            }
+        }
+        return builder.build(workSlots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public int size() {
+        return slotVariables.length;
+    }
+
+    public int slotOf(Variable v) {
+        if (v == null) return NO_SLOT;
+        return slotOf(v.getType(), v.getIndex());
+    }
+
+    public int slotOf(VariableType type, int index) {
+        int[] slots = slotsByType[type.ordinal()];
+        if (index < 0 || index >= slots.length) return NO_SLOT;
+        return slots[index];
+    }
+
+    public Variable variableAt(int slot) {
+        return slotVariables[slot];
+    }
+
+    public int[] workSlots() {
+        return workSlots;
+    }
+
+    private static final class Builder {
+        private final int[][] slotsByType = new int[VariableType.values().length][];
+        private final List<Variable> slotVariables = new ArrayList<>();
+
+        private Builder() {
+            Arrays.fill(slotsByType, EMPTY);
+        }
+
+        private int add(Variable v) {
+            if (v == null || v.getType() == null || v.getIndex() < 0) return NO_SLOT;
+            int type = v.getType().ordinal();
+            int index = v.getIndex();
+            int[] slots = slotsByType[type];
+            if (index >= slots.length) {
+                int oldLength = slots.length;
+                slots = Arrays.copyOf(slots, Math.max(index + 1, oldLength * 2));
+                Arrays.fill(slots, oldLength, slots.length, NO_SLOT);
+                slotsByType[type] = slots;
+            }
+            if (slots[index] == NO_SLOT) {
+                slots[index] = slotVariables.size();
+                slotVariables.add(new VariableImpl(v.getType(), index));
+            }
+            return slots[index];
+        }
+
+        private VariableLayout build(int[] workSlots) {
+            return new VariableLayout(slotsByType, slotVariables.toArray(new Variable[0]), workSlots);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package logic.execution.bytecode;
+
+import logic.execution.ExecutionPlan;
+import logic.execution.LoopSummary;
+import logic.execution.VariableLayout;
+import logic.instruction.Instruction;
+import logic.instruction.basic.DecreaseInstruction;
+import logic.instruction.basic.IncreaseInstruction;
+import logic.instruction.basic.JumpNotZeroInstruction;
+import logic.instruction.basic.NoOpInstruction;
+import logic.instruction.synthetic.AssignmentInstruction;
+import logic.instruction.synthetic.ConstantAssignmentInstruction;
+import logic.instruction.synthetic.GoToInstruction;
+import logic.instruction.synthetic.JumpEqualConstantInstruction;
+import logic.instruction.synthetic.JumpEqualVariableInstruction;
+import logic.instruction.synthetic.JumpZeroInstruction;
+import logic.instruction.synthetic.ZeroVariableInstruction;
+import logic.label.Label;
+import logic.variable.Variable;
+import logic.variable.VariableImpl;
+import logic.variable.VariableType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+import static logic.execution.bytecode.ClassFileWriter.*;
+
+// Turns an ExecutionPlan into a hidden JVM class implementing CompiledProgram.
+// Each instruction becomes a few bytecodes over long locals and every jump a real
+// branch, so the JIT can compile the counting loops of expanded programs to native code.
+// Returns null whenever the plan can't be compiled (QUOTE / JUMP_EQUAL_FUNCTION, or a
+// body too large for the JIT); callers then run the interpreter instead.
+public final class BytecodeCompiler {
+
+    // HotSpot does not JIT methods with more bytecode than this (DontCompileHugeMethods)
+    static final int MAX_CODE_SIZE = 8000;
+
+    private static final String CLASS_NAME = "logic/execution/bytecode/CompiledBody";
+    private static final String INTERFACE_NAME = "logic/execution/bytecode/CompiledProgram";
+    private static final String GUARD_NAME = "java/util/function/LongPredicate";
+    private static final String EXECUTE_DESCRIPTOR = "([J[JL" + GUARD_NAME + ";)J";
+    private static final String LOOP_NAME = "logic/execution/LoopSummary";
+
+    // locals of execute(): 0 = this, 1 = registers, 2 = touched, 3 = guard, 4-5 = cycles,
+    // then one long per touched word, one long per variable slot and the loop iteration count
+    private static final int CYCLES = 4;
+    private static final int FIRST_WORD = 6;
+
+    private final ExecutionPlan plan;
+    private final VariableLayout layout;
+    private final ClassFileWriter writer = new ClassFileWriter();
+    private final Code code = new Code();
+    private final boolean[] tracked;
+    private final int words;
+    private final int firstVariable;
+    private final int iterations;
+    private int guardTest;
+    private int loopIterations;
+    private int loopAdvance;
+    private int exit;
+    private int[] lines;
+
+    private BytecodeCompiler(ExecutionPlan plan) {
+        this.plan = plan;
+        this.layout = plan.getLayout();
+        this.words = (layout.size() + 63) / 64;
+        this.firstVariable = FIRST_WORD + 2 * words;
+        this.iterations = firstVariable + 2 * layout.size();
+
+        // y and the z variables are part of the state before the first instruction runs,
+        // only the other slots need their first touch recorded
+        this.tracked = new boolean[layout.size()];
+        Arrays.fill(tracked, true);
+        int y = layout.slotOf(new VariableImpl(VariableType.RESULT, 1));
+        if (y != VariableLayout.NO_SLOT) tracked[y] = false;
+        for (int slot : layout.workSlots()) tracked[slot] = false;
+    }
+
+    public static CompiledProgram compile(ExecutionPlan plan) {
+        try {
+            byte[] bytes = new BytecodeCompiler(plan).generate();
+            if (bytes == null) {
+                return null;
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledProgram) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // anything the verifier or the loader rejects just means "use the interpreter"
+            return null;
+        }
+    }
+
+    private byte[] generate() {
+        int maxLocals = iterations + 2;
+        if (maxLocals > 0xffff) {
+            return null;
+        }
+
+        guardTest = writer.interfaceMethodRef(GUARD_NAME, "test", "(J)Z");
+        loopIterations = writer.methodRef(LOOP_NAME, "iterations", "(J)J");
+        loopAdvance = writer.methodRef(LOOP_NAME, "advance", "(JJJ)J");
+        exit = code.newLabel();
+        lines = new int[plan.size()];
+        for (int pc = 0; pc < lines.length; pc++) {
+            lines[pc] = code.newLabel();
+        }
+
+        // load every variable into its local, clear the touched words and the cycle counter
+        for (int slot = 0; slot < layout.size(); slot++) {
+            code.op(ALOAD_1);
+            pushInt(slot);
+            code.op(LALOAD);
+            code.lstore(variable(slot));
+        }
+        for (int word = 0; word < words; word++) {
+            code.op(LCONST_0);
+            code.lstore(word(word));
+        }
+        code.op(LCONST_0);
+        code.lstore(CYCLES);
+
+        for (int pc = 0; pc < lines.length; pc++) {
+            code.mark(lines[pc]);
+            LoopSummary loop = plan.loopAt(pc);
+            boolean emitted = loop != null ? emitLoop(loop) : emit(pc, plan.instructionAt(pc));
+            if (!emitted || code.size() > MAX_CODE_SIZE) {
+                return null;
+            }
+        }
+
+        // falling off the last instruction and every jump to EXIT end up here
+        code.mark(exit);
+        for (int slot = 0; slot < layout.size(); slot++) {
+            code.op(ALOAD_1);
+            pushInt(slot);
+            code.lload(variable(slot));
+            code.op(LASTORE);
+        }
+        for (int word = 0; word < words; word++) {
+            code.op(ALOAD_2);
+            pushInt(word);
+            code.lload(word(word));
+            code.op(LASTORE);
+        }
+        code.lload(CYCLES);
+        code.op(LRETURN);
+
+        if (code.size() > MAX_CODE_SIZE) {
+            return null;
+        }
+        code.maxStack = 8;
+        code.maxLocals = maxLocals;
+
+        Code constructor = new Code();
+        constructor.op(ALOAD_0);
+        constructor.opShort(INVOKESPECIAL, writer.methodRef("java/lang/Object", "<init>", "()V"));
+        constructor.op(RETURN);
+        constructor.maxStack = 1;
+        constructor.maxLocals = 1;
+
+        writer.addMethod(ACC_PUBLIC, "<init>", "()V", constructor);
+        writer.addMethod(ACC_PUBLIC, "execute", EXECUTE_DESCRIPTOR, code);
+        return writer.toByteArray(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, "java/lang/Object", INTERFACE_NAME);
+    }
+
+    // emits one instruction; false if it has no bytecode form
+    private boolean emit(int pc, Instruction ins) {
+        if (ins.cycles() != 0) {
+            code.lload(CYCLES);
+            pushLong(ins.cycles());
+            code.op(LADD);
+            code.lstore(CYCLES);
+        }
+
+        if (ins instanceof IncreaseInstruction) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            code.lload(variable(v));
+            code.op(LCONST_1);
+            code.op(LADD);
+            code.lstore(variable(v));
+        } else if (ins instanceof DecreaseInstruction) {
+            // v = max(0, v - 1)
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            int positive = code.newLabel();
+            code.lload(variable(v));
+            code.op(LCONST_1);
+            code.op(LSUB);
+            code.op(DUP2);
+            code.op(LCONST_0);
+            code.op(LCMP);
+            code.branch(IFGE, positive);
+            code.op(POP2);
+            code.op(LCONST_0);
+            code.mark(positive);
+            code.lstore(variable(v));
+        } else if (ins instanceof NoOpInstruction) {
+            // nothing to do, the variable is not read
+        } else if (ins instanceof JumpNotZeroInstruction jnz) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            code.lload(variable(v));
+            code.op(LCONST_0);
+            code.op(LCMP);
+            jump(IFNE, pc, jnz.getTargetLabel());
+        } else if (ins instanceof JumpZeroInstruction jz) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            code.lload(variable(v));
+            code.op(LCONST_0);
+            code.op(LCMP);
+            jump(IFEQ, pc, jz.getTargetLabel());
+        } else if (ins instanceof JumpEqualConstantInstruction jec) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            code.lload(variable(v));
+            pushLong(jec.getConstant());
+            code.op(LCMP);
+            jump(IFEQ, pc, jec.getTargetLabel());
+        } else if (ins instanceof JumpEqualVariableInstruction jev) {
+            int v = slot(ins.getVariable());
+            int other = slot(jev.getOther());
+            if (v < 0 || other < 0) return false;
+            touch(v);
+            touch(other);
+            code.lload(variable(v));
+            code.lload(variable(other));
+            code.op(LCMP);
+            jump(IFEQ, pc, jev.getTargetLabel());
+        } else if (ins instanceof GoToInstruction goTo) {
+            jump(GOTO, pc, goTo.getTargetLabel());
+        } else if (ins instanceof AssignmentInstruction assignment) {
+            int target = slot(ins.getVariable());
+            int source = slot(assignment.getAssignedVariable());
+            if (target < 0 || source < 0) return false;
+            touch(source);
+            touch(target);
+            code.lload(variable(source));
+            code.lstore(variable(target));
+        } else if (ins instanceof ConstantAssignmentInstruction constant) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            pushLong(constant.getConstant());
+            code.lstore(variable(v));
+        } else if (ins instanceof ZeroVariableInstruction) {
+            int v = slot(ins.getVariable());
+            if (v < 0) return false;
+            touch(v);
+            code.op(LCONST_0);
+            code.lstore(variable(v));
+        } else {
+            // QUOTE / JUMP_EQUAL_FUNCTION run whole functions, those stay interpreted
+            return false;
+        }
+        return true;
+    }
+
+    // a counting loop entered at its first line: all iterations at once, then on to its exit.
+    // The loop's other lines are still emitted after this for jumps into the middle of it;
+    // those come back here through the closing JNZ.
+    private boolean emitLoop(LoopSummary loop) {
+        int counter = slot(loop.counter());
+        if (counter < 0) return false;
+        int[] slots = new int[loop.variableCount()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slot(loop.variableAt(i));
+            if (slots[i] < 0) return false;
+        }
+
+        touch(counter);
+        code.lload(variable(counter));
+        code.opShort(INVOKESTATIC, loopIterations);
+        code.lstore(iterations);
+
+        code.lload(CYCLES);
+        code.lload(iterations);
+        pushLong(loop.cyclesPerIteration());
+        code.op(LMUL);
+        code.op(LADD);
+        code.lstore(CYCLES);
+
+        for (int i = 0; i < slots.length; i++) {
+            touch(slots[i]);
+            code.lload(variable(slots[i]));
+            pushLong(loop.stepAt(i));
+            code.lload(iterations);
+            code.opShort(INVOKESTATIC, loopAdvance);
+            code.lstore(variable(slots[i]));
+        }
+        code.op(LCONST_0);
+        code.lstore(variable(counter));
+
+        code.branch(GOTO, loop.exit() == ExecutionPlan.EXIT ? exit : lines[loop.exit()]);
+        return true;
+    }
+
+    // branch with 'opcode' (IFEQ / IFNE on the compare result, or GOTO) to the target of 'label'.
+    // Backward jumps first ask the guard, so long loops can still be cancelled.
+    private void jump(int opcode, int pc, Label label) {
+        int target = plan.next(pc, label);
+        if (target == ExecutionPlan.EXIT) {
+            code.branch(opcode, exit);
+        } else if (target > pc) {
+            code.branch(opcode, lines[target]);
+        } else if (opcode == GOTO) {
+            guardedJump(target);
+        } else {
+            int skip = code.newLabel();
+            code.branch(opcode == IFEQ ? IFNE : IFEQ, skip);
+            guardedJump(target);
+            code.mark(skip);
+        }
+    }
+
+    private void guardedJump(int target) {
+        code.op(ALOAD_3);
+        code.lload(CYCLES);
+        code.invokeInterface(guardTest, 3);
+        code.branch(IFEQ, exit);
+        code.branch(GOTO, lines[target]);
+    }
+
+    // records that the variable in 'slot' is now part of the state (read or written)
+    private void touch(int slot) {
+        if (!tracked[slot]) return;
+        int word = slot >>> 6;
+        code.lload(word(word));
+        pushLong(1L << (slot & 63));
+        code.op(LOR);
+        code.lstore(word(word));
+    }
+
+    private int slot(Variable v) {
+        return layout.slotOf(v);
+    }
+
+    private int variable(int slot) {
+        return firstVariable + 2 * slot;
+    }
+
+    private int word(int word) {
+        return FIRST_WORD + 2 * word;
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            code.op(0x03 + value); // ICONST_M1 .. ICONST_5
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(BIPUSH, value & 0xff);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.opShort(SIPUSH, value & 0xffff);
+        } else {
+            code.opShort(LDC_W, writer.intConstant(value));
+        }
+    }
+
+    private void pushLong(long value) {
+        if (value == 0L) {
+            code.op(LCONST_0);
+        } else if (value == 1L) {
+            code.op(LCONST_1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(BIPUSH, (int) value & 0xff);
+            code.op(I2L);
+        } else {
+            code.opShort(LDC2_W, writer.longConstant(value));
+        }
+    }
+}
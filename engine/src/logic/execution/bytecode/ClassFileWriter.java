@@ -0,0 +1,292 @@
+package logic.execution.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal class-file writer, just enough for the bodies BytecodeCompiler emits:
+// one class, a default constructor and one method built from long locals, long
+// arithmetic, compares and short branches.
+// Version 49 class files are checked by the type-inferring verifier, so no
+// StackMapTable frames have to be computed.
+final class ClassFileWriter {
+
+    static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    // opcodes
+    static final int LCONST_0 = 0x09;
+    static final int LCONST_1 = 0x0a;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int LLOAD = 0x16;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int ALOAD_3 = 0x2d;
+    static final int LALOAD = 0x2f;
+    static final int LSTORE = 0x37;
+    static final int LASTORE = 0x50;
+    static final int POP2 = 0x58;
+    static final int DUP2 = 0x5c;
+    static final int LADD = 0x61;
+    static final int LSUB = 0x65;
+    static final int LMUL = 0x69;
+    static final int LOR = 0x81;
+    static final int I2L = 0x85;
+    static final int LCMP = 0x94;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFGE = 0x9c;
+    static final int GOTO = 0xa7;
+    static final int LRETURN = 0xad;
+    static final int RETURN = 0xb1;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int WIDE = 0xc4;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+    private final List<byte[]> methods = new ArrayList<>();
+
+    int utf8(String value) {
+        return entry("U" + value, () -> {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+        }, 1);
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, () -> {
+            pool.writeByte(7);
+            pool.writeShort(name);
+        }, 1);
+    }
+
+    int nameAndType(String name, String descriptor) {
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        return entry("N" + name + ":" + descriptor, () -> {
+            pool.writeByte(12);
+            pool.writeShort(n);
+            pool.writeShort(d);
+        }, 1);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    int intConstant(int value) {
+        return entry("I" + value, () -> {
+            pool.writeByte(3);
+            pool.writeInt(value);
+        }, 1);
+    }
+
+    int longConstant(long value) {
+        // long entries take two constant pool slots
+        return entry("J" + value, () -> {
+            pool.writeByte(5);
+            pool.writeLong(value);
+        }, 2);
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeName = utf8("Code");
+        byte[] body = code.toByteArray();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1); // attributes: Code
+            out.writeShort(codeName);
+            out.writeInt(2 + 2 + 4 + body.length + 2 + 2);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        });
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(int access, String name, String superName, String... interfaces) {
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceIndexes[i] = classRef(interfaces[i]);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaceIndexes.length);
+            for (int index : interfaceIndexes) {
+                out.writeShort(index);
+            }
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+        });
+        return bytes.toByteArray();
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int c = classRef(owner);
+        int nt = nameAndType(name, descriptor);
+        return entry("M" + tag + owner + "." + name + descriptor, () -> {
+            pool.writeByte(tag);
+            pool.writeShort(c);
+            pool.writeShort(nt);
+        }, 1);
+    }
+
+    private int entry(String key, IoAction write, int slots) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int index = poolCount;
+        write(write);
+        poolCount += slots;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    // Bytecode of one method. Branch targets are symbolic labels that are patched
+    // once the whole method is emitted; all branches use 16 bit offsets, callers
+    // keep the method small enough for that (see BytecodeCompiler.MAX_CODE_SIZE).
+    static final class Code {
+
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Integer> labelPositions = new ArrayList<>();
+        private final List<int[]> branches = new ArrayList<>(); // {opcode position, label}
+        int maxStack;
+        int maxLocals;
+
+        int newLabel() {
+            labelPositions.add(-1);
+            return labelPositions.size() - 1;
+        }
+
+        void mark(int label) {
+            labelPositions.set(label, code.size());
+        }
+
+        int size() {
+            return code.size();
+        }
+
+        void op(int opcode) {
+            code.write(opcode);
+        }
+
+        void op(int opcode, int u1) {
+            code.write(opcode);
+            code.write(u1);
+        }
+
+        void opShort(int opcode, int u2) {
+            code.write(opcode);
+            code.write(u2 >>> 8);
+            code.write(u2);
+        }
+
+        void branch(int opcode, int label) {
+            branches.add(new int[]{code.size(), label});
+            code.write(opcode);
+            code.write(0);
+            code.write(0);
+        }
+
+        void invokeInterface(int methodRef, int argumentSlots) {
+            opShort(INVOKEINTERFACE, methodRef);
+            code.write(argumentSlots);
+            code.write(0);
+        }
+
+        void lload(int local) {
+            localOp(LLOAD, local);
+        }
+
+        void lstore(int local) {
+            localOp(LSTORE, local);
+        }
+
+        private void localOp(int opcode, int local) {
+            if (local <= 0xff) {
+                op(opcode, local);
+            } else {
+                op(WIDE);
+                opShort(opcode, local);
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = code.toByteArray();
+            for (int[] branch : branches) {
+                int at = branch[0];
+                int target = labelPositions.get(branch[1]);
+                if (target < 0) {
+                    throw new IllegalStateException("Unbound label " + branch[1]);
+                }
+                int offset = target - at;
+                if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Branch offset out of range: " + offset);
+                }
+                bytes[at + 1] = (byte) (offset >>> 8);
+                bytes[at + 2] = (byte) offset;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package logic.execution.bytecode;
+
+import java.util.function.LongPredicate;
+
+// A fully expanded program compiled to a JVM method by BytecodeCompiler.
+// Variables live in long locals while the body runs; on entry they are loaded from
+// 'registers' (indexed by VariableLayout slot) and on exit written back.
+// Every slot the body read or wrote is flagged in 'touched' (bit i = slot i).
+// 'guard' is asked with the cycles so far before each backward jump; returning
+// false stops the run the same way a cancelled interpreter run stops.
+// Returns the number of cycles the run took.
+public interface CompiledProgram {
+
+    long execute(long[] registers, long[] touched, LongPredicate guard);
+}
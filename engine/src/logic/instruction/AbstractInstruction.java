@@ -1,5 +1,7 @@
 package logic.instruction;
 
+import core.program.ExpansionTrace;
+import core.program.VariableAndLabelMenger;
 import logic.instruction.basic.NoOpInstruction;
 import logic.label.FixedLabel;
 import logic.label.Label;
@@ -70,4 +72,19 @@ public abstract class AbstractInstruction implements Instruction {
         return new NoOpInstruction(getVariable());
     }
 
+    // expands through expand(); while a program level is being built its vlm carries a trace,
+    // which learns here what each new instruction was expanded from
+    @Override
+    public final List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+        List<Instruction> produced = expand(extensionLevel, vlm);
+        ExpansionTrace trace = vlm == null ? null : vlm.getTrace();
+        if (trace != null) {
+            trace.record(this, produced);
+        }
+        return produced;
+    }
+
+    // the instructions this one becomes at the given level (a copy of itself at level 0)
+    protected abstract List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm);
+
 }
\ No newline at end of file
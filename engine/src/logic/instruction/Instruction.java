@@ -12,6 +12,10 @@ public interface Instruction {
     String getName();
     Label execute(ExecutionContext context, VariableAndLabelMenger vlm);
     int cycles();
+    // the cycles this instruction took when it just ran on 'context'
+    default long cycles(ExecutionContext context) {
+        return cycles();
+    }
     Label getLabel();
     Variable getVariable();
     boolean isBasic();
@@ -56,7 +56,7 @@ public class IncreaseInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         return List.of(this.clone());
     }
 
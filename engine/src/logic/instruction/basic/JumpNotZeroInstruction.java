@@ -28,6 +28,10 @@ public class JumpNotZeroInstruction extends AbstractInstruction {
         basic = true;
     }
 
+    public Label getTargetLabel() {
+        return jnzLabel;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null)
@@ -59,7 +63,7 @@ public class JumpNotZeroInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         return List.of(this.clone());
 
     }
@@ -49,7 +49,7 @@ public class NoOpInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         return List.of(this.clone());
     }
 
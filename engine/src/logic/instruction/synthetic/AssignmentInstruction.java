@@ -87,7 +87,7 @@ public class AssignmentInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
@@ -27,6 +27,10 @@ public class ConstantAssignmentInstruction extends AbstractInstruction {
         this.constant = constant;
     }
 
+    public long getConstant() {
+        return constant;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null) {
@@ -78,7 +82,7 @@ public class ConstantAssignmentInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
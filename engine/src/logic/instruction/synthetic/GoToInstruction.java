@@ -27,6 +27,10 @@ public class GoToInstruction extends AbstractInstruction {
         this.target = target;
     }
 
+    public Label getTargetLabel() {
+        return target;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null) {
@@ -79,7 +83,7 @@ public class GoToInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
@@ -32,6 +32,14 @@ public class JumpEqualConstantInstruction extends AbstractInstruction {
         this.constant = constant;
     }
 
+    public Label getTargetLabel() {
+        return target;
+    }
+
+    public long getConstant() {
+        return constant;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null) {
@@ -86,7 +94,7 @@ public class JumpEqualConstantInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
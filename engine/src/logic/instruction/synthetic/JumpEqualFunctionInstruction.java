@@ -168,6 +168,13 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction {
         return lastExecutionCycles > 0 ? lastExecutionCycles : super.cycles();
     }
 
+    // the runs themselves read the call's cycles from their own context, 'lastExecutionCycles' is for display
+    @Override
+    public long cycles(ExecutionContext context) {
+        long callCycles = context.getLastCallCycles();
+        return callCycles > 0 ? callCycles : super.cycles();
+    }
+
     @Override
     public int getMaxLevel() {
         // +3 because epilogue contains JumpEqualVariableInstruction (maxLevel=3)
@@ -255,7 +262,7 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction {
         // Evaluate the quoted function in a pure way (no side effects on the outer context).
         long functionResult = arguments.evaluate(context, vlm, cycles);
         // Capture actual runtime cycles for this execution
-        lastExecutionCycles = arguments.lastRunCycles;
+        lastExecutionCycles = (int) Math.min(Integer.MAX_VALUE, context.getLastCallCycles());
         // Jump if variable equals function result
         if(functionResult == context.getVariableValue(getVariable())) {
             return jnzLabel;
@@ -267,7 +274,7 @@ public class JumpEqualFunctionInstruction extends AbstractInstruction {
 
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         if (extensionLevel <= 0) {
             return List.of(this.clone());
         }
@@ -31,6 +31,10 @@ public class JumpEqualVariableInstruction extends AbstractInstruction {
         this.other = other;
     }
 
+    public Label getTargetLabel() {
+        return jnzLabel;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null) {
@@ -91,7 +95,7 @@ public class JumpEqualVariableInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
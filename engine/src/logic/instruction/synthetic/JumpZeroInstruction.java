@@ -28,6 +28,10 @@ public class JumpZeroInstruction extends AbstractInstruction {
         this.jnzLabel = target;
     }
 
+    public Label getTargetLabel() {
+        return jnzLabel;
+    }
+
     @Override
     public Instruction clone() {
         if(getLabel() == null) {
@@ -85,7 +89,7 @@ public class JumpZeroInstruction extends AbstractInstruction {
     }
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         List<Instruction> myInstructions = new ArrayList<>();
 
         switch (extensionLevel) {
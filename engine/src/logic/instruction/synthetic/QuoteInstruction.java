@@ -176,6 +176,13 @@ public class QuoteInstruction extends AbstractInstruction {
         return lastExecutionCycles > 0 ? lastExecutionCycles : super.cycles();
     }
 
+    // the runs themselves read the call's cycles from their own context, 'lastExecutionCycles' is for display
+    @Override
+    public long cycles(ExecutionContext context) {
+        long callCycles = context.getLastCallCycles();
+        return callCycles > 0 ? callCycles : super.cycles();
+    }
+
     @Override
     public int getMaxLevel() {
         return arguments.getMaxLevel();
@@ -276,7 +283,7 @@ public class QuoteInstruction extends AbstractInstruction {
         // Evaluate the quoted function in a pure way (no side effects on the outer context).
         long functionResult = arguments.evaluate(context, vlm, cycles);
         // Capture actual runtime cycles for this execution
-        lastExecutionCycles = arguments.lastRunCycles;
+        lastExecutionCycles = (int) Math.min(Integer.MAX_VALUE, context.getLastCallCycles());
         // Store the function result into this instruction's target variable (often 'y').
         context.updateVariable(getVariable(), functionResult);
 
@@ -291,7 +298,7 @@ public class QuoteInstruction extends AbstractInstruction {
 
 
     @Override
-    public List<Instruction> extend(int extensionLevel, VariableAndLabelMenger vlm) {
+    protected List<Instruction> expand(int extensionLevel, VariableAndLabelMenger vlm) {
         if (extensionLevel <= 0) {
             return List.of(this.clone());
         }
@@ -1,7 +1,5 @@
 package logic.variable;
 
-import java.util.Objects;
-
 public class VariableImpl implements Variable {
 
     private final VariableType type;
@@ -42,6 +40,7 @@ public class VariableImpl implements Variable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, number);
+        // ordinal instead of Objects.hash: no varargs array and the same value on every JVM
+        return 31 * type.ordinal() + number;
     }
 }
@@ -0,0 +1,124 @@
+package application;
+
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A read-only list of a known size whose rows are loaded a page at a time, when a row is
+ * first asked for. A TableView only asks for the rows it shows, so scrolling through a
+ * level of hundreds of thousands of instructions loads a few pages, not the whole level.
+ * <p>
+ * Without an executor a missing page is loaded on the spot. With one it is loaded in the
+ * background: the list answers {@code placeholder} meanwhile and calls {@code onPageLoaded}
+ * (on the loading thread) once the rows are there, or {@code onLoadFailed} if they could not be
+ * loaded; the page is tried again the next time one of its rows is asked for. Only the most
+ * recently used pages are kept.
+ */
+public class PagedList<T> extends AbstractList<T> {
+
+    /** Loads rows {@code [offset, offset + limit)}. */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        List<T> load(int offset, int limit) throws Exception;
+    }
+
+    private static final int MAX_CACHED_PAGES = 32;
+
+    private final int size;
+    private final int pageSize;
+    private final PageLoader<T> loader;
+    private final Executor executor;
+    private final Runnable onPageLoaded;
+    private final Consumer<RuntimeException> onLoadFailed;
+    private final T placeholder;
+    private final Map<Integer, List<T>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+
+    /** Loads missing pages on the calling thread. */
+    public PagedList(int size, int pageSize, PageLoader<T> loader) {
+        this(size, pageSize, loader, null, null, null, null);
+    }
+
+    public PagedList(int size, int pageSize, PageLoader<T> loader,
+                     Executor executor, Runnable onPageLoaded, Consumer<RuntimeException> onLoadFailed,
+                     T placeholder) {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize must be at least 1: " + pageSize);
+        this.size = size;
+        this.pageSize = pageSize;
+        this.loader = loader;
+        this.executor = executor;
+        this.onPageLoaded = onPageLoaded;
+        this.onLoadFailed = onLoadFailed;
+        this.placeholder = placeholder;
+    }
+
+    /** Hands over rows already fetched, starting at {@code offset} (a page boundary). */
+    public synchronized void putPage(int offset, List<T> rows) {
+        pages.put(offset / pageSize, rows);
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        int page = index / pageSize;
+        List<T> rows;
+        synchronized (this) {
+            rows = pages.get(page);
+        }
+        if (rows == null) {
+            if (executor != null) {
+                loadInBackground(page);
+                return placeholder;
+            }
+            rows = load(page);
+        }
+        int i = index - page * pageSize;
+        return i < rows.size() ? rows.get(i) : placeholder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private List<T> load(int page) {
+        try {
+            List<T> rows = loader.load(page * pageSize, pageSize);
+            putPage(page * pageSize, rows);
+            return rows;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load rows " + page * pageSize + "+: " + e.getMessage(), e);
+        }
+    }
+
+    private void loadInBackground(int page) {
+        synchronized (this) {
+            if (!loading.add(page)) return;
+        }
+        executor.execute(() -> {
+            try {
+                load(page);
+                if (onPageLoaded != null) onPageLoaded.run();
+            } catch (RuntimeException e) {
+                if (onLoadFailed != null) onLoadFailed.accept(e);
+            } finally {
+                synchronized (this) {
+                    loading.remove(page);
+                }
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package application.client.execution;
 
+import application.PagedList;
 import application.client.http.HttpApiClient;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyStringWrapper;
@@ -52,7 +53,9 @@ public class ExecutionController {
     @FXML private Button backButton;
     @FXML private Button runButton;
     @FXML private Button debugStartButton;
+    @FXML private Button stepBackButton;
     @FXML private Button stepButton;
+    @FXML private Button continueButton;
     @FXML private Button resumeButton;
     @FXML private Button stopDebugButton;
     @FXML private Label cyclesLabel;
@@ -76,10 +79,18 @@ public class ExecutionController {
     private boolean isMainProgram;
 
     private String currentDebugId = null;
+    // the debug session's variables as last reported; a step only sends what it changed
+    private final Map<String, Object> debugVariables = new LinkedHashMap<>();
+    private long debugVersion = 0;
+    // instruction indexes (table rows) a Continue stops at; toggled by double-clicking a row
+    private final Set<Integer> breakpoints = new TreeSet<>();
     private final List<String[]> inputRows = new ArrayList<>(); // [varName, value]
     private final Map<String, Long> inputsMap = new LinkedHashMap<>();
     private int maxLevel = 0;
 
+    // instruction rows per program-info request; the table fetches further pages as it scrolls
+    private static final int PAGE_ROWS = 500;
+
     private final ExecutorService bg = Executors.newCachedThreadPool(r -> {
         Thread t = new Thread(r, "exec-bg");
         t.setDaemon(true);
@@ -98,7 +109,10 @@ public class ExecutionController {
         architectureCombo.setItems(FXCollections.observableArrayList("I", "II", "III", "IV"));
         architectureCombo.getSelectionModel().select("I");
         architectureCombo.setOnAction(ev -> loadProgramInfo());
-        levelSpinner.valueProperty().addListener((obs, o, n) -> loadProgramInfo());
+        levelSpinner.valueProperty().addListener((obs, o, n) -> {
+            breakpoints.clear(); // another level, other instructions
+            loadProgramInfo();
+        });
 
         setupTableColumns();
         setDebugMode(false);
@@ -120,8 +134,9 @@ public class ExecutionController {
 
         bg.submit(() -> {
             try {
-                Map<String, Object> info = client.getProgramInfo(programName, isMainProgram, finalLevel, finalArch);
-                Platform.runLater(() -> applyProgramInfo(info, finalArch));
+                Map<String, Object> info = client.getProgramInfo(programName, isMainProgram, finalLevel, finalArch,
+                        0, PAGE_ROWS);
+                Platform.runLater(() -> applyProgramInfo(info, finalLevel, finalArch));
             } catch (Exception e) {
                 Platform.runLater(() -> setStatus("Error loading program info: " + e.getMessage()));
             }
@@ -129,7 +144,7 @@ public class ExecutionController {
     }
 
     @SuppressWarnings("unchecked")
-    private void applyProgramInfo(Map<String, Object> info, String selectedArch) {
+    private void applyProgramInfo(Map<String, Object> info, int level, String selectedArch) {
         maxLevel = (int) ((Number) info.getOrDefault("maxLevel", 0)).doubleValue();
         levelMaxLabel.setText("/ " + maxLevel);
 
@@ -157,10 +172,19 @@ public class ExecutionController {
         styleArchLabel(archCountIII, info, "countIII", total, selectedArch.equals("III"));
         styleArchLabel(archCountIV,  info, "countIV",  total, selectedArch.equals("IV"));
 
-        // Instructions table
+        // Instructions table: the first page came with the info, the rest is fetched in the
+        // background as it scrolls into view
         List<Map<String, Object>> instructions =
                 (List<Map<String, Object>>) info.getOrDefault("instructions", List.of());
-        instructionsTable.getItems().setAll(instructions);
+        PagedList<Map<String, Object>> rows = new PagedList<>(Math.max(total, instructions.size()), PAGE_ROWS,
+                (offset, limit) -> (List<Map<String, Object>>) client.getProgramInfo(
+                        programName, isMainProgram, level, selectedArch, offset, limit)
+                        .getOrDefault("instructions", List.of()),
+                bg, () -> Platform.runLater(instructionsTable::refresh),
+                e -> Platform.runLater(() -> setStatus("Error loading instructions: " + e.getMessage())),
+                Map.of());
+        rows.putPage(0, instructions);
+        instructionsTable.setItems(FXCollections.observableList(rows));
 
         // Build input rows from the server-provided inputVariables list
         @SuppressWarnings("unchecked")
@@ -193,12 +217,20 @@ public class ExecutionController {
         setConstrainedAndCentered(historyTable);
 
         // Instructions (value factories + colArch color override)
-        colLineNum.setCellValueFactory(cd -> new ReadOnlyStringWrapper(str(cd.getValue(), "number")));
+        colLineNum.setCellValueFactory(cd -> {
+            String number = str(cd.getValue(), "number");
+            boolean breakpoint = !number.isEmpty() && breakpoints.contains(Integer.parseInt(number) - 1);
+            return new ReadOnlyStringWrapper(breakpoint ? "\u25CF " + number : number);
+        });
+        instructionsTable.setOnMouseClicked(ev -> {
+            if (ev.getClickCount() == 2) toggleBreakpoint(instructionsTable.getSelectionModel().getSelectedIndex());
+        });
         colLabel.setCellValueFactory(cd -> new ReadOnlyStringWrapper(str(cd.getValue(), "label")));
         colCommand.setCellValueFactory(cd -> new ReadOnlyStringWrapper(str(cd.getValue(), "command")));
         colCycles.setCellValueFactory(cd -> new ReadOnlyStringWrapper(str(cd.getValue(), "cycles")));
         colArch.setCellValueFactory(cd -> {
             Object supported = cd.getValue().get("supported");
+            if (supported == null) return new ReadOnlyStringWrapper(""); // row still loading
             return new ReadOnlyStringWrapper(Boolean.FALSE.equals(supported) ? "NO" : "OK");
         });
         colArch.setCellFactory(col -> new TableCell<>() {
@@ -256,13 +288,8 @@ public class ExecutionController {
         bg.submit(() -> {
             try {
                 String runId = client.startRun(username, programName, isMainProgram, arch, level, inputs);
-                // Poll until done
-                Map<String, Object> result = null;
-                while (result == null || "pending".equals(result.get("status"))) {
-                    Thread.sleep(400);
-                    result = client.pollRun(runId);
-                }
-                Map<String, Object> finalResult = result;
+                // the server pushes the result as soon as the run is done
+                Map<String, Object> finalResult = client.awaitRun(runId);
                 Platform.runLater(() -> {
                     runButton.setDisable(false);
                     Object res = finalResult.get("result");
@@ -273,10 +300,17 @@ public class ExecutionController {
                         long cycles = rawCycles instanceof Number n ? n.longValue() : 0L;
                         long y      = rawY      instanceof Number n ? n.longValue() : 0L;
                         cyclesLabel.setText("Cycles: " + cycles);
-                        setStatus("Done. y = " + y);
+                        if ("BUDGET_EXHAUSTED".equals(resMap.get("outcome"))) {
+                            setStatus("Stopped: out of credits after " + cycles + " cycles (y = " + y + " so far).");
+                        } else {
+                            setStatus("Done. y = " + y);
+                        }
                         if (rawVars instanceof Map<?,?> varsMap) applyVariableState(varsMap);
                         refreshCredits();
                         refreshHistory();
+                    } else {
+                        cyclesLabel.setText("");
+                        setStatus("Run error: " + finalResult.get("error"));
                     }
                 });
             } catch (HttpApiClient.InsufficientCreditsException e) {
@@ -285,6 +319,12 @@ public class ExecutionController {
                     showAlert(Alert.AlertType.WARNING, "Insufficient Credits", e.getMessage());
                     setStatus("Not enough credits.");
                 });
+            } catch (HttpApiClient.ServerBusyException e) {
+                Platform.runLater(() -> {
+                    runButton.setDisable(false);
+                    cyclesLabel.setText("");
+                    setStatus("Server busy, try again in " + e.retryAfterSeconds + " s.");
+                });
             } catch (Exception e) {
                 Platform.runLater(() -> {
                     runButton.setDisable(false);
@@ -310,6 +350,7 @@ public class ExecutionController {
                     applyDebugState(result, idx);
                     setDebugMode(true);
                     setStatus("Debug started. Step through instructions.");
+                    if (!breakpoints.isEmpty()) sendBreakpoints();
                 });
             } catch (HttpApiClient.InsufficientCreditsException e) {
                 Platform.runLater(() -> showAlert(Alert.AlertType.WARNING, "Insufficient Credits", e.getMessage()));
@@ -325,33 +366,87 @@ public class ExecutionController {
         bg.submit(() -> {
             try {
                 Map<String, Object> result = client.debugStep(currentDebugId);
+                Platform.runLater(() -> applyStepResult(result, "Step done."));
+            } catch (Exception e) {
+                Platform.runLater(() -> setStatus("Step error: " + e.getMessage()));
+            }
+        });
+    }
+
+    @FXML
+    void onContinue() {
+        if (currentDebugId == null) return;
+        bg.submit(() -> {
+            try {
+                Map<String, Object> result = client.debugContinue(currentDebugId);
+                Platform.runLater(() -> applyStepResult(result, Boolean.TRUE.equals(result.get("atBreakpoint"))
+                        ? "Stopped at breakpoint." : "Stopped."));
+            } catch (Exception e) {
+                Platform.runLater(() -> setStatus("Continue error: " + e.getMessage()));
+            }
+        });
+    }
+
+    // a step or a run of steps: shows where it stopped, or ends the session when it finished
+    private void applyStepResult(Map<String, Object> result, String stoppedStatus) {
+        int idx = ((Number) result.get("currentIndex")).intValue();
+        boolean finished = Boolean.TRUE.equals(result.get("finished"));
+        boolean outOfCredits = Boolean.TRUE.equals(result.get("outOfCredits"));
+
+        applyDebugState(result, idx);
+        refreshCredits();
+
+        if (outOfCredits) {
+            currentDebugId = null;
+            setDebugMode(false);
+            showAlert(Alert.AlertType.WARNING, "Out of Credits",
+                    "You ran out of credits. Execution stopped.");
+            setStatus("Stopped: out of credits.");
+        } else if (finished) {
+            currentDebugId = null;
+            setDebugMode(false);
+            setStatus("Program finished.");
+            refreshHistory();
+            showAlert(Alert.AlertType.INFORMATION, "Done", "Program finished.");
+        } else {
+            highlightRow(idx);
+            setStatus(stoppedStatus + " Index: " + idx);
+        }
+    }
+
+    private void toggleBreakpoint(int index) {
+        if (index < 0) return;
+        if (!breakpoints.remove(index)) breakpoints.add(index);
+        instructionsTable.refresh();
+        if (currentDebugId != null) sendBreakpoints();
+    }
+
+    private void sendBreakpoints() {
+        String debugId = currentDebugId;
+        List<Integer> indexes = new ArrayList<>(breakpoints);
+        bg.submit(() -> {
+            try {
+                client.debugSetBreakpoints(debugId, indexes);
+            } catch (Exception e) {
+                Platform.runLater(() -> setStatus("Breakpoint error: " + e.getMessage()));
+            }
+        });
+    }
+
+    @FXML
+    void onStepBack() {
+        if (currentDebugId == null) return;
+        bg.submit(() -> {
+            try {
+                Map<String, Object> result = client.debugStepBack(currentDebugId);
                 Platform.runLater(() -> {
                     int idx = ((Number) result.get("currentIndex")).intValue();
-                    boolean finished = Boolean.TRUE.equals(result.get("finished"));
-                    boolean outOfCredits = Boolean.TRUE.equals(result.get("outOfCredits"));
-
+                    long step = ((Number) result.getOrDefault("step", 0)).longValue();
                     applyDebugState(result, idx);
-                    refreshCredits();
-
-                    if (outOfCredits) {
-                        currentDebugId = null;
-                        setDebugMode(false);
-                        showAlert(Alert.AlertType.WARNING, "Out of Credits",
-                                "You ran out of credits. Execution stopped.");
-                        setStatus("Stopped: out of credits.");
-                    } else if (finished) {
-                        currentDebugId = null;
-                        setDebugMode(false);
-                        setStatus("Program finished.");
-                        refreshHistory();
-                        showAlert(Alert.AlertType.INFORMATION, "Done", "Program finished.");
-                    } else {
-                        highlightRow(idx);
-                        setStatus("Step done. Index: " + idx);
-                    }
+                    setStatus("Back to step " + step + ". Index: " + idx);
                 });
             } catch (Exception e) {
-                Platform.runLater(() -> setStatus("Step error: " + e.getMessage()));
+                Platform.runLater(() -> setStatus("Step back error: " + e.getMessage()));
             }
         });
     }
@@ -399,18 +494,31 @@ public class ExecutionController {
     private void setDebugMode(boolean active) {
         runButton.setDisable(active);
         debugStartButton.setDisable(active);
+        stepBackButton.setDisable(!active);
         stepButton.setDisable(!active);
+        continueButton.setDisable(!active);
         resumeButton.setDisable(!active);
         stopDebugButton.setDisable(!active);
         if (architectureCombo != null) architectureCombo.setDisable(active);
         if (levelSpinner != null) levelSpinner.setDisable(active);
     }
 
-    @SuppressWarnings("unchecked")
     private void applyDebugState(Map<String, Object> result, int currentIdx) {
-        Object vars = result.get("variables");
-        if (vars instanceof Map<?,?> varMap) {
-            applyVariableState(varMap);
+        if (mergeDebugVariables(result)) {
+            applyVariableState(debugVariables);
+        } else {
+            // a step answer went missing: start over from the whole state
+            String debugId = currentDebugId;
+            bg.submit(() -> {
+                try {
+                    Map<String, Object> full = client.debugState(debugId);
+                    Platform.runLater(() -> {
+                        if (mergeDebugVariables(full)) applyVariableState(debugVariables);
+                    });
+                } catch (Exception e) {
+                    Platform.runLater(() -> setStatus("Debug state error: " + e.getMessage()));
+                }
+            });
         }
         Object credObj = result.get("credits");
         if (credObj != null) {
@@ -419,6 +527,20 @@ public class ExecutionController {
         highlightRow(currentIdx);
     }
 
+    // folds a debug answer into debugVariables: a whole state replaces them, a delta is applied
+    // when it follows the version held. False for a delta that does not, nothing is changed then.
+    private boolean mergeDebugVariables(Map<String, Object> result) {
+        boolean delta = Boolean.TRUE.equals(result.get("delta"));
+        long version = ((Number) result.getOrDefault("version", 0)).longValue();
+        if (delta && version != debugVersion + 1) return false;
+        if (!delta) debugVariables.clear();
+        if (result.get("variables") instanceof Map<?,?> vars) {
+            vars.forEach((k, v) -> debugVariables.put(String.valueOf(k), v));
+        }
+        debugVersion = version;
+        return true;
+    }
+
     private void highlightRow(int idx) {
         instructionsTable.getSelectionModel().clearSelection();
         if (idx >= 0 && idx < instructionsTable.getItems().size()) {
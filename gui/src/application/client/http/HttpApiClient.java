@@ -10,6 +10,7 @@ import java.net.http.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Typed HTTP client for the S-Emulator server (Ex3).
@@ -17,6 +18,8 @@ import java.util.*;
  */
 public class HttpApiClient {
 
+    private static final long LONG_POLL_MS = 25_000;
+
     private final String baseUrl;
     private final HttpClient http;
     private final Gson gson = new Gson();
@@ -115,6 +118,20 @@ public class HttpApiClient {
         return gson.fromJson(body, mapType);
     }
 
+    /** One page of the instruction list: rows {@code [offset, offset + limit)}, with the totals of the whole level. */
+    public Map<String, Object> getProgramInfo(String programName, boolean isMain, int level, String architecture,
+                                              int offset, int limit) {
+        String url = "/api/execute/program-info?programName=" + programName
+                + "&isMainProgram=" + isMain
+                + "&level=" + level
+                + "&architecture=" + architecture
+                + "&offset=" + offset
+                + "&limit=" + limit;
+        String body = get(url);
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        return gson.fromJson(body, mapType);
+    }
+
     // -----------------------------------------------------------------------
     // Execution
     // -----------------------------------------------------------------------
@@ -141,6 +158,9 @@ public class HttpApiClient {
         if (resp.statusCode() == 402) {
             throw new InsufficientCreditsException(extractError(resp.body()));
         }
+        if (resp.statusCode() == 429) {
+            throw busy(resp);
+        }
         if (resp.statusCode() >= 400) {
             throw new RuntimeException("Run failed: " + extractError(resp.body()));
         }
@@ -149,11 +169,54 @@ public class HttpApiClient {
     }
 
     public Map<String, Object> pollRun(String runId) {
-        String body = get("/api/execute/poll/" + runId);
+        return pollRun(runId, 0);
+    }
+
+    /** Long poll: the server answers as soon as the run is done, or with "pending" after {@code waitMs}. */
+    public Map<String, Object> pollRun(String runId, long waitMs) {
+        String body = get("/api/execute/poll/" + runId + (waitMs > 0 ? "?waitMs=" + waitMs : ""));
         Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
         return gson.fromJson(body, mapType);
     }
 
+    /**
+     * Blocks until the run is done and returns its final poll response ("done" or "error").
+     * Listens on the run's event stream, so the result arrives the moment the run finishes;
+     * if the stream breaks off, falls back to long polls.
+     */
+    public Map<String, Object> awaitRun(String runId) {
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        try {
+            HttpRequest req = HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/execute/events/" + runId))
+                    .header("Accept", "text/event-stream")
+                    .GET()
+                    .build();
+            HttpResponse<Stream<String>> resp = http.send(req, HttpResponse.BodyHandlers.ofLines());
+            if (resp.statusCode() == 200) {
+                try (Stream<String> lines = resp.body()) {
+                    Iterator<String> it = lines.iterator();
+                    while (it.hasNext()) {
+                        String line = it.next();
+                        if (!line.startsWith("data:")) continue;
+                        Map<String, Object> event = gson.fromJson(line.substring("data:".length()).trim(), mapType);
+                        if (!"pending".equals(event.get("status"))) return event;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // stream cut off, the long polls below pick the run up again
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Waiting for run " + runId + " interrupted", e);
+        }
+        Map<String, Object> result = pollRun(runId, LONG_POLL_MS);
+        while ("pending".equals(result.get("status"))) {
+            result = pollRun(runId, LONG_POLL_MS);
+        }
+        return result;
+    }
+
     // -----------------------------------------------------------------------
     // Debug
     // -----------------------------------------------------------------------
@@ -178,14 +241,66 @@ public class HttpApiClient {
         return gson.fromJson(resp.body(), mapType);
     }
 
+    /** One step; {@code "variables"} holds only what the step changed ({@code "delta": true}). */
     public Map<String, Object> debugStep(String debugId) {
         HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/step", "", null);
         Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
         return gson.fromJson(resp.body(), mapType);
     }
 
+    /**
+     * Runs to the next breakpoint, or the end; {@code "variables"} holds what changed since the
+     * last answer and {@code "atBreakpoint"} tells why it stopped.
+     */
+    public Map<String, Object> debugContinue(String debugId) {
+        HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/continue", "", null);
+        if (resp.statusCode() == 429) throw busy(resp);
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        return gson.fromJson(resp.body(), mapType);
+    }
+
+    /** Replaces the session's breakpoints with unconditional ones at these instruction indexes. */
+    public void debugSetBreakpoints(String debugId, Collection<Integer> indexes) {
+        JsonArray list = new JsonArray();
+        for (int index : indexes) {
+            JsonObject b = new JsonObject();
+            b.addProperty("index", index);
+            list.add(b);
+        }
+        JsonObject body = new JsonObject();
+        body.add("breakpoints", list);
+        HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/breakpoints", gson.toJson(body), null);
+        if (resp.statusCode() != 200) {
+            JsonObject err = gson.fromJson(resp.body(), JsonObject.class);
+            throw new RuntimeException(err != null && err.has("error") ? err.get("error").getAsString() : resp.body());
+        }
+    }
+
+    /** One step back; {@code "variables"} holds every variable. */
+    public Map<String, Object> debugStepBack(String debugId) {
+        HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/back", "", null);
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        return gson.fromJson(resp.body(), mapType);
+    }
+
+    /** To the state after {@code step} steps, back or forward; {@code "variables"} holds every variable. */
+    public Map<String, Object> debugGoToStep(String debugId, long step) {
+        HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/goto?step=" + step, "", null);
+        if (resp.statusCode() == 429) throw busy(resp);
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        return gson.fromJson(resp.body(), mapType);
+    }
+
+    /** All variables of a debug session, with the version they are at. */
+    public Map<String, Object> debugState(String debugId) {
+        String body = get("/api/execute/debug/" + debugId + "/state");
+        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+        return gson.fromJson(body, mapType);
+    }
+
     public Map<String, Object> debugResume(String debugId) {
         HttpResponse<String> resp = post("/api/execute/debug/" + debugId + "/resume", "", null);
+        if (resp.statusCode() == 429) throw busy(resp);
         Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
         return gson.fromJson(resp.body(), mapType);
     }
@@ -246,7 +361,21 @@ public class HttpApiClient {
         return responseBody;
     }
 
+    private ServerBusyException busy(HttpResponse<String> resp) {
+        long retryAfter = resp.headers().firstValue("Retry-After").map(Long::parseLong).orElse(1L);
+        return new ServerBusyException(extractError(resp.body()), retryAfter);
+    }
+
     public static class InsufficientCreditsException extends RuntimeException {
         public InsufficientCreditsException(String msg) { super(msg); }
     }
+
+    /** The server's run queue is full (HTTP 429); nothing was run or charged. */
+    public static class ServerBusyException extends RuntimeException {
+        public final long retryAfterSeconds;
+        public ServerBusyException(String msg, long retryAfterSeconds) {
+            super(msg);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
 }
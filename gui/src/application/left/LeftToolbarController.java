@@ -1,10 +1,14 @@
 package application.left;
 
+import application.PagedList;
 import application.main.MainLayoutController;
+import dto.InstructionPage;
 import dto.InstructionView;
 import dto.ProgramSummary;
+import dto.RunProfile;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
@@ -23,6 +27,7 @@ public class LeftToolbarController {
 
     @FXML private TableColumn<InstructionView, String> colBS;
     @FXML private TableColumn<InstructionView, String> colCycles;
+    @FXML private TableColumn<InstructionView, Integer> colHeat;
     @FXML private TableColumn<InstructionView, Integer> colNumber;
     @FXML private TableColumn<InstructionView, String> colInstruction;
     @FXML private TableColumn<InstructionView, String> colLabel;
@@ -38,6 +43,13 @@ public class LeftToolbarController {
     @FXML private Label SelectedInstructionHistoryChain;
 
     private Integer breakpointIndex = null;
+    // the profile of the last run of the level shown, null before a run
+    private RunProfile profile;
+    private long hottestCycles;
+    private long profiledCycles;
+
+    // rows fetched at a time; the table only loads the pages it shows
+    private static final int PAGE_ROWS = 500;
 
 
     public void setMainLayoutController(MainLayoutController mainLayoutController) {
@@ -45,7 +57,7 @@ public class LeftToolbarController {
     }
 
     public void clearAll() {
-        instructionsTable.getItems().clear();
+        instructionsTable.setItems(FXCollections.observableArrayList());
         clearHistory();
         SummaryLine.setText("");
     }
@@ -95,11 +107,13 @@ public class LeftToolbarController {
         try {
             // Use the flat execution-ordered list so that row N always matches
             // extendedInstructions[N] used by the executor.
-            // expandProgramToLevelForExtend is still called (it sets extendedInstructions)
-            // but we display the flat run-order list here.
-            mainLayoutController.engine.expandProgramToLevelForExtend(level); // build paths + set extendedInstructions
-            List<InstructionView> instructionViews =
-                    mainLayoutController.engine.expandProgramToLevelForRun(level);
+            // Only the first page is fetched now (it also extends the program to the level);
+            // the table asks for the other pages as they scroll into view.
+            InstructionPage first = mainLayoutController.engine.expandProgramToLevelForRun(level, 0, PAGE_ROWS);
+            PagedList<InstructionView> instructionViews = new PagedList<>(first.total(), PAGE_ROWS,
+                    (offset, limit) -> mainLayoutController.engine
+                            .expandProgramToLevelForRun(level, offset, limit).instructions());
+            instructionViews.putPage(0, first.instructions());
 
             // table columns
             colNumber.setCellValueFactory(cell ->
@@ -112,9 +126,14 @@ public class LeftToolbarController {
                     new ReadOnlyObjectWrapper<>(cell.getValue().cycles()));
             colLabel.setCellValueFactory(cell ->
                     new ReadOnlyStringWrapper(cell.getValue().label()));
-
-            instructionsTable.getItems().setAll(instructionViews);
-            summary(instructionViews);
+            // the heat column reads the profile by instruction index (number - 1)
+            colHeat.setCellValueFactory(cell ->
+                    new ReadOnlyObjectWrapper<>(cell.getValue().number() - 1));
+            colHeat.setCellFactory(col -> new HeatCell());
+            profile = null;
+
+            instructionsTable.setItems(FXCollections.observableList(instructionViews));
+            summary(first);
         } catch (LoadProgramException e) {
             System.out.println(e.getMessage());
         }
@@ -127,14 +146,11 @@ public class LeftToolbarController {
 
     }
 
-    private void summary(List<InstructionView> loadedInstructions) {
-        long total = loadedInstructions.size();
-        long syntheticCount = loadedInstructions.stream()
-                .filter(iv -> String.valueOf(iv.type()).equalsIgnoreCase("S"))
-                .count();
-        long basicCount = loadedInstructions.stream()
-                .filter(iv -> String.valueOf(iv.type()).equalsIgnoreCase("B"))
-                .count();
+    // counts of the whole level, they come with every page
+    private void summary(InstructionPage page) {
+        long total = page.total();
+        long basicCount = page.basicCount();
+        long syntheticCount = total - basicCount;
 
         SummaryLine.setText(
                 String.format("Total: %d | Synthetic: %d | Basic: %d", total, syntheticCount, basicCount)
@@ -214,6 +230,42 @@ public class LeftToolbarController {
         instructionsTable.refresh();
     }
 
+    /**
+     * Shows where the cycles of a run went: each row gets its share of the run's cycles,
+     * shaded by how close it comes to the hottest instruction. {@code null} clears the column.
+     */
+    public void showProfile(RunProfile profile) {
+        this.profile = profile;
+        hottestCycles = 0;
+        profiledCycles = 0;
+        if (profile != null) {
+            for (long c : profile.cycles()) {
+                hottestCycles = Math.max(hottestCycles, c);
+                profiledCycles += c;
+            }
+        }
+        instructionsTable.refresh();
+    }
+
+    private class HeatCell extends TableCell<InstructionView, Integer> {
+        @Override
+        protected void updateItem(Integer index, boolean empty) {
+            super.updateItem(index, empty);
+            RunProfile p = profile;
+            if (empty || index == null || p == null || index < 0 || index >= p.size() || p.executions()[index] == 0) {
+                setText(null);
+                setTooltip(null);
+                setStyle("");
+                return;
+            }
+            long cycles = p.cycles()[index];
+            setText(String.format("%.1f%%", profiledCycles == 0 ? 0.0 : 100.0 * cycles / profiledCycles));
+            setTooltip(new Tooltip(p.executions()[index] + " runs, " + cycles + " cycles"));
+            double heat = hottestCycles == 0 ? 0 : (double) cycles / hottestCycles;
+            setStyle(String.format("-fx-background-color: rgba(255, 80, 0, %.2f);", 0.1 + 0.7 * heat));
+        }
+    }
+
     // Clear all highlights from instructionsTable
     public void clearHighlights() {
         instructionsTable.setRowFactory(tv -> new TableRow<InstructionView>() {
@@ -67,11 +67,19 @@ public class ServerEngineProxy implements Engine {
 
     @Override
     public RunResult run(int level, List<Long> inputs) {
+        return run(level, inputs, RunOptions.DEFAULT);
+    }
+
+    @Override
+    public RunResult run(int level, List<Long> inputs, RunOptions options) {
         String url = config.baseUrl() + "/api/sessions/" + sessionId + "/run";
         JsonObject body = new JsonObject();
         body.addProperty("level", level);
         body.addProperty("timeoutMs", config.defaultTimeoutMs);
         body.add("inputs", gson.toJsonTree(inputs));
+        if (options != null) {
+            body.addProperty("backend", options.backend().name());
+        }
 
         String resp = post(url, gson.toJson(body));
         return pollUntilDone(resp);
@@ -129,6 +137,11 @@ public class ServerEngineProxy implements Engine {
         throw new UnsupportedOperationException("Debug not supported in server mode");
     }
 
+    @Override
+    public Pair<Map<String, Long>, Integer> runDebugTo(int index) {
+        throw new UnsupportedOperationException("Debug not supported in server mode");
+    }
+
     @Override
     public void endDebug() {
         throw new UnsupportedOperationException("Debug not supported in server mode");
@@ -145,7 +158,7 @@ public class ServerEngineProxy implements Engine {
     }
 
     @Override
-    public int getCycels() {
+    public long getCycels() {
         throw new UnsupportedOperationException("Not supported in server mode");
     }
 
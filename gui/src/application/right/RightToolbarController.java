@@ -2,6 +2,7 @@ package application.right;
 
 import application.main.MainLayoutController;
 import core.program.VariableAndLabelMenger;
+import dto.RunOptions;
 import dto.RunResult;
 import dto.RunSummary;
 import javafx.beans.property.ReadOnlyStringWrapper;
@@ -40,6 +41,8 @@ public class RightToolbarController {
     @FXML public Button stopDebugButton;
     @FXML public Button show;
     @FXML public Button reRun;
+    // runs counted per instruction, so the instruction table can show where the cycles went
+    @FXML private CheckBox profileToggle;
 
     @FXML private TextField CyclesCounter;
     @FXML private TableColumn<String, String> valueInput;
@@ -134,12 +137,9 @@ public class RightToolbarController {
         Pair<Map<String, Long>, Integer> state = mainLayoutController.engine.startDebug(level, in);
         Map<String, Long> lastState = (state.getKey() == null) ? Collections.emptyMap() : state.getKey();
 
-        // Step until finished, keep last state only (including the final step's state)
-        while (true) {
-            Pair<Map<String, Long>, Integer> step = mainLayoutController.engine.oneStepInDebug();
-            if (step.getKey() != null) lastState = step.getKey();
-            if (step.getValue() == -1) break;
-        }
+        // Step until finished, only the final state is read
+        Pair<Map<String, Long>, Integer> end = mainLayoutController.engine.runDebugTo(-1);
+        if (end.getKey() != null) lastState = end.getKey();
         long cycles = mainLayoutController.engine.getCycels();
         mainLayoutController.engine.endDebug();
 
@@ -266,11 +266,9 @@ public class RightToolbarController {
         int currIdx = st.getValue();
 
         if (breakpointIndex != null) {
-            while (currIdx != -1 && currIdx != breakpointIndex) {
-                Pair<Map<String, Long>, Integer> step = mainLayoutController.engine.oneStepInDebug();
-                if (step.getKey() != null) lastState = step.getKey();
-                currIdx = step.getValue();
-            }
+            Pair<Map<String, Long>, Integer> stop = mainLayoutController.engine.runDebugTo(breakpointIndex);
+            if (stop.getKey() != null) lastState = stop.getKey();
+            currIdx = stop.getValue();
             if (currIdx == -1) {
                 endOfDebug();
                 new Alert(Alert.AlertType.INFORMATION, "The Program finished before reaching the breakpoint.").showAndWait();
@@ -520,6 +518,7 @@ public class RightToolbarController {
     private void runAsync() {
         List<Long> inputsByOrder = getCurrVariableState();
         int level = mainLayoutController.getCurrentLevel();
+        RunOptions options = RunOptions.DEFAULT.withProfile(profileToggle.isSelected());
 
         // Disable controls while running; repurpose startButton as cancel
         startButton.setDisable(false);
@@ -532,7 +531,7 @@ public class RightToolbarController {
         javafx.concurrent.Task<RunResult> task = new javafx.concurrent.Task<>() {
             @Override
             protected RunResult call() {
-                return mainLayoutController.engine.run(level, inputsByOrder);
+                return mainLayoutController.engine.run(level, inputsByOrder, options);
             }
         };
 
@@ -573,6 +572,7 @@ public class RightToolbarController {
 
     private void applyRunResult(RunResult res) {
         CyclesCounter.setText(String.valueOf(res.totalCycles()));
+        mainLayoutController.getLeft().showProfile(res.profile());
         Map<String, Long> resultVars = new LinkedHashMap<>(res.variables());
         resultVars.putIfAbsent("y", res.y());
 
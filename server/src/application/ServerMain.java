@@ -2,9 +2,13 @@ package application;
 
 import application.handlers.*;
 import application.service.ExecutionService;
+import application.service.ExecutionTier;
+import application.service.Metrics;
 import application.service.ProgramRegistry;
+import application.service.RunRetention;
 import application.service.UserRegistry;
 import com.sun.net.httpserver.HttpServer;
+import core.program.Program;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -15,35 +19,50 @@ public class ServerMain {
     public static final int PORT = 8080;
 
     public static void main(String[] args) throws IOException {
-        // Shared services
+        // Shared services; metrics are recorded by the services and by every handler
+        Metrics metrics = new Metrics();
+        Program.setExpansionListener(metrics::expanded);
         UserRegistry users = new UserRegistry();
-        ProgramRegistry programs = new ProgramRegistry();
-        ExecutionService execution = new ExecutionService();
+        ProgramRegistry programs = new ProgramRegistry(metrics);
+        // runs execute at most one per core, the rest queue (see ExecutionTier.Config for the -D settings)
+        ExecutionTier.Config tier = ExecutionTier.Config.fromSystemProperties();
+        // finished runs are kept for polling until fetched or expired (see RunRetention.Config)
+        RunRetention.Config retention = RunRetention.Config.fromSystemProperties();
+        ExecutionService execution = new ExecutionService(new ExecutionTier(tier), new RunRetention(retention), metrics);
+        execution.start();
 
         // HTTP server
         HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
 
         // Auth routes
-        server.createContext("/api/login",   new LoginHandler(users));
-        server.createContext("/api/logout",  new LoginHandler(users));
+        server.createContext("/api/login",   metrics.counted("login", new LoginHandler(users)));
+        server.createContext("/api/logout",  metrics.counted("logout", new LoginHandler(users)));
 
         // User info routes
-        server.createContext("/api/users",   new UsersHandler(users));
+        server.createContext("/api/users",   metrics.counted("users", new UsersHandler(users)));
 
         // Program/function upload and listing
-        server.createContext("/api/programs", new ProgramsHandler(programs, users));
-        server.createContext("/api/functions", new ProgramsHandler(programs, users));
+        server.createContext("/api/programs", metrics.counted("programs", new ProgramsHandler(programs, users)));
+        server.createContext("/api/functions", metrics.counted("functions", new ProgramsHandler(programs, users)));
 
         // Execution routes (run, poll, debug)
-        server.createContext("/api/execute/", new ExecuteHandler(execution, programs, users));
+        server.createContext("/api/execute/", metrics.counted("execute", new ExecuteHandler(execution, programs, users)));
 
         // Credits
-        server.createContext("/api/credits/", new CreditsHandler(users));
+        server.createContext("/api/credits/", metrics.counted("credits", new CreditsHandler(users)));
 
-        server.setExecutor(Executors.newCachedThreadPool());
+        // Operational numbers
+        server.createContext("/api/metrics", metrics.counted("metrics", new MetricsHandler(execution)));
+
+        // requests only wait on I/O and on the execution tier, a virtual thread each is enough
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
         server.start();
 
         System.out.println("S-Emulator Server (Ex3) started on port " + PORT);
+        System.out.println("Runs: " + tier.maxConcurrent() + " at a time, up to " + tier.maxQueued() + " queued");
+        System.out.println("Results kept " + retention.ttlMillis() / 1000 + " s unfetched, "
+                + retention.fetchedTtlMillis() / 1000 + " s after fetch, up to "
+                + retention.maxBytes() / (1024 * 1024) + " MB");
         System.out.println("Endpoints:");
         System.out.println("  POST /api/login         - login with username");
         System.out.println("  POST /api/logout        - logout");
@@ -54,12 +73,20 @@ public class ServerMain {
         System.out.println("  GET  /api/functions     - list all functions");
         System.out.println("  POST /api/execute/run   - start a run");
         System.out.println("  GET  /api/execute/poll/{id} - poll run result");
+        System.out.println("  GET  /api/execute/profile/{id} - cycles per instruction of a profiled run");
         System.out.println("  POST /api/execute/debug/start - start debug");
         System.out.println("  POST /api/execute/debug/{id}/step   - step");
+        System.out.println("  POST /api/execute/debug/{id}/continue    - run to the next breakpoint");
+        System.out.println("  POST /api/execute/debug/{id}/breakpoints - set breakpoints");
+        System.out.println("  POST /api/execute/debug/{id}/back   - step back");
+        System.out.println("  POST /api/execute/debug/{id}/goto   - go to step N (?step=N)");
         System.out.println("  POST /api/execute/debug/{id}/resume - resume");
         System.out.println("  POST /api/execute/debug/{id}/stop   - stop");
-        System.out.println("  GET  /api/execute/program-info - get instruction list");
+        System.out.println("  GET  /api/execute/program-info - get instruction list (?offset=&limit= or ?around=&limit= for a page)");
+        System.out.println("  GET  /api/execute/queue - run queue depth and wait times");
+        System.out.println("  GET  /api/execute/retention - retained run results and evictions");
         System.out.println("  POST /api/credits/topup - add credits");
+        System.out.println("  GET  /api/metrics       - queue, latency, cycles/s, load and expansion times, requests");
         System.out.println("\nPress Ctrl+C to stop.");
     }
 }
@@ -5,32 +5,75 @@ import application.model.DebugSession;
 import application.model.ProgramEntry;
 import application.model.UserInfo;
 import application.service.ExecutionService;
+import application.service.ExecutionTier;
 import application.service.ProgramRegistry;
 import application.service.UserRegistry;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import core.program.ExpandedProgram;
+import dto.Breakpoint;
+import dto.ExecutionBackend;
+import dto.InstructionPage;
 import dto.InstructionView;
+import dto.RunOptions;
+import dto.RunProfile;
+import dto.RunResult;
 import logic.instruction.Instruction;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * POST /api/execute/run                  → start a run, returns runId
- * GET  /api/execute/poll/{runId}         → poll run result
+ * GET  /api/execute/poll/{runId}         → poll run result; ?waitMs=N waits up to N ms (max 30 s) for it
+ * GET  /api/execute/events/{runId}       → text/event-stream: "pending" heartbeats, then "done" or "error"
+ * GET  /api/execute/profile/{runId}      → executions and cycles per instruction and per function of a
+ *                                          run started with "profile": true; ?top=N hot spots (default 10)
+ * POST /api/execute/batch                → run one program for many input vectors, results as NDJSON
  * POST /api/execute/debug/start          → start debug session
- * POST /api/execute/debug/{id}/step      → step over
+ * POST /api/execute/debug/{id}/step      → step over; only the variables the step changed (?full=true: all);
+ *                                          ?count=N runs N steps at once, stopping early at a breakpoint
+ * POST /api/execute/debug/{id}/continue  → run to the next breakpoint (or the end)
+ * POST /api/execute/debug/{id}/breakpoints → replace the breakpoints: by index, label, or on a variable's value
+ * POST /api/execute/debug/{id}/back      → one step back; all variables
+ * POST /api/execute/debug/{id}/goto?step=N → to the state after N steps, back or forward; all variables
+ * GET  /api/execute/debug/{id}/state     → all variables of a debug session and their version
  * POST /api/execute/debug/{id}/resume    → resume to end
  * POST /api/execute/debug/{id}/stop      → stop/cancel debug
- * GET  /api/execute/program-info         → instruction views for a program at level
+ * GET  /api/execute/program-info         → instruction views for a program at level; ?offset=N&limit=M
+ *                                          or ?around=N&limit=M for one page of them
+ * GET  /api/execute/queue                → running / queued runs and their wait times
+ * GET  /api/execute/retention            → run results held for polling and how many were dropped
+ *
+ * A debug session takes one request at a time: one sent while another is in progress (e.g. a
+ * long continue) gets 409; /stop is always taken and cancels the work in progress.
+ * Runs and resumes are turned away with 429 and a Retry-After header while the run queue is full.
  */
 public class ExecuteHandler implements HttpHandler {
 
+    static final long MAX_POLL_WAIT_MILLIS = 30_000;
+    static final long EVENT_HEARTBEAT_MILLIS = 15_000;
+    static final int MAX_BATCH_VECTORS = 100_000;
+    static final int DEFAULT_PAGE_ROWS = 200;
+    static final int MAX_PAGE_ROWS = 5_000;
+    static final int DEFAULT_HOT_SPOTS = 10;
+
     private final ExecutionService execution;
     private final ProgramRegistry programs;
     private final UserRegistry users;
@@ -49,24 +92,51 @@ public class ExecuteHandler implements HttpHandler {
 
             if (rest.equals("run")) {
                 handleRun(ex);
+            } else if (rest.equals("batch")) {
+                handleBatch(ex);
             } else if (rest.startsWith("poll/")) {
                 handlePoll(ex, rest.substring("poll/".length()));
+            } else if (rest.startsWith("events/")) {
+                handleEvents(ex, rest.substring("events/".length()));
+            } else if (rest.startsWith("profile/")) {
+                handleProfile(ex, rest.substring("profile/".length()));
             } else if (rest.equals("debug/start")) {
                 handleDebugStart(ex);
             } else if (rest.startsWith("debug/") && rest.endsWith("/step")) {
                 String debugId = rest.substring("debug/".length(), rest.length() - "/step".length());
                 handleDebugStep(ex, debugId);
+            } else if (rest.startsWith("debug/") && rest.endsWith("/continue")) {
+                String debugId = rest.substring("debug/".length(), rest.length() - "/continue".length());
+                handleDebugContinue(ex, debugId);
+            } else if (rest.startsWith("debug/") && rest.endsWith("/breakpoints")) {
+                String debugId = rest.substring("debug/".length(), rest.length() - "/breakpoints".length());
+                handleDebugBreakpoints(ex, debugId);
+            } else if (rest.startsWith("debug/") && rest.endsWith("/back")) {
+                String debugId = rest.substring("debug/".length(), rest.length() - "/back".length());
+                handleDebugBack(ex, debugId);
+            } else if (rest.startsWith("debug/") && rest.endsWith("/goto")) {
+                String debugId = rest.substring("debug/".length(), rest.length() - "/goto".length());
+                handleDebugGoTo(ex, debugId);
             } else if (rest.startsWith("debug/") && rest.endsWith("/resume")) {
                 String debugId = rest.substring("debug/".length(), rest.length() - "/resume".length());
                 handleDebugResume(ex, debugId);
+            } else if (rest.startsWith("debug/") && rest.endsWith("/state")) {
+                String debugId = rest.substring("debug/".length(), rest.length() - "/state".length());
+                handleDebugState(ex, debugId);
             } else if (rest.startsWith("debug/") && rest.endsWith("/stop")) {
                 String debugId = rest.substring("debug/".length(), rest.length() - "/stop".length());
                 handleDebugStop(ex, debugId);
             } else if (rest.equals("program-info")) {
                 handleProgramInfo(ex);
+            } else if (rest.equals("queue")) {
+                handleQueue(ex);
+            } else if (rest.equals("retention")) {
+                handleRetention(ex);
             } else {
                 HandlerUtils.sendError(ex, 404, "Unknown execute path: " + rest);
             }
+        } catch (ExecutionService.SessionBusyException e) {
+            HandlerUtils.sendError(ex, 409, e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             HandlerUtils.sendError(ex, 500, e.getClass().getSimpleName() + ": " + e.getMessage());
@@ -84,6 +154,7 @@ public class ExecuteHandler implements HttpHandler {
         Architecture arch = Architecture.fromString(json.get("architecture").getAsString());
         int level         = json.has("level") ? json.get("level").getAsInt() : 0;
         List<Long> inputs = parseInputs(json);
+        RunOptions options = parseRunOptions(json);
 
         UserInfo user = requireUser(ex, username);
         if (user == null) return;
@@ -115,23 +186,253 @@ public class ExecuteHandler implements HttpHandler {
         // Deduct architecture cost up front
         user.tryDeductCredits(archCost);
 
-        String runId = execution.submitRun(user, entry, isMain, arch, level, inputs, users);
+        String runId;
+        try {
+            runId = execution.submitRun(user, entry, isMain, arch, level, inputs, options, users);
+        } catch (ExecutionTier.RejectedException e) {
+            user.refundCredits(archCost); // the run never started
+            HandlerUtils.sendTooManyRequests(ex, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        }
         HandlerUtils.sendJson(ex, 202, Map.of("runId", runId, "status", "pending"));
     }
 
-    // GET /api/execute/poll/{runId}
-    private void handlePoll(HttpExchange ex, String runId) throws IOException {
+    // POST /api/execute/batch
+    // JSON body: the fields of a run, with "vectors": [[x1, x2, ...], ...] instead of "inputs";
+    // or a text/csv body, one vector per line, with the other fields as query parameters.
+    // The answer streams one NDJSON line per vector as it finishes (in any order, "index" says
+    // which), then a last line with "done": true and the batch totals (or "error").
+    private void handleBatch(HttpExchange ex) throws IOException, InterruptedException {
+        if (!HandlerUtils.requireMethod(ex, "POST")) return;
+
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        boolean csv = contentType != null && contentType.startsWith("text/csv");
+        JsonObject json;
+        List<List<Long>> vectors;
+        try {
+            if (csv) {
+                json = new JsonObject();
+                parseQuery(ex.getRequestURI().getQuery()).forEach(json::addProperty);
+                vectors = parseCsvVectors(HandlerUtils.readBody(ex));
+            } else {
+                json = HandlerUtils.GSON.fromJson(HandlerUtils.readBody(ex), JsonObject.class);
+                vectors = parseVectors(json);
+            }
+        } catch (NumberFormatException | IllegalStateException e) {
+            HandlerUtils.sendError(ex, 400, "Bad input vector: " + e.getMessage());
+            return;
+        }
+        if (vectors.isEmpty() || vectors.size() > MAX_BATCH_VECTORS) {
+            HandlerUtils.sendError(ex, 400, "A batch needs 1 to " + MAX_BATCH_VECTORS + " input vectors, got " + vectors.size());
+            return;
+        }
+
+        String username   = json.get("username").getAsString();
+        String programName = json.get("programName").getAsString();
+        boolean isMain    = !json.has("isMainProgram") || json.get("isMainProgram").getAsBoolean();
+        Architecture arch = Architecture.fromString(json.get("architecture").getAsString());
+        int level         = json.has("level") ? json.get("level").getAsInt() : 0;
+        RunOptions options = parseRunOptions(json);
+
+        UserInfo user = requireUser(ex, username);
+        if (user == null) return;
+
+        ProgramEntry entry = isMain ? programs.getProgram(programName) : programs.getFunction(programName);
+        if (entry == null) {
+            HandlerUtils.sendError(ex, 404, "Program/function not found: " + programName);
+            return;
+        }
+        List<String> unsupported = execution.getUnsupportedCommands(entry, level, arch);
+        if (!unsupported.isEmpty()) {
+            HandlerUtils.sendError(ex, 422,
+                    "Program contains commands not supported by architecture " + arch.name()
+                    + ": " + unsupported);
+            return;
+        }
+        if (user.getCredits() < arch.cost) {
+            HandlerUtils.sendError(ex, 402,
+                    "Insufficient credits. Need at least " + arch.cost + " for architecture " + arch.name()
+                    + " but have " + user.getCredits());
+            return;
+        }
+
+        // results are handed over to this thread, which alone writes the response
+        BlockingQueue<Map<String, Object>> lines = new LinkedBlockingQueue<>();
+        AtomicBoolean clientGone = new AtomicBoolean();
+        Future<ExecutionService.BatchSummary> batch;
+        try {
+            batch = execution.submitBatch(user, entry, arch, level, vectors, options, users,
+                    (index, inputs, result) -> lines.add(batchLine(index, inputs, result)),
+                    clientGone::get);
+        } catch (ExecutionTier.RejectedException e) {
+            HandlerUtils.sendTooManyRequests(ex, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        }
+
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8))) {
+            while (true) {
+                Map<String, Object> line = lines.poll(100, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    if (!batch.isDone()) continue;
+                    // every result is queued before the batch completes
+                    while ((line = lines.poll()) != null) writeLine(out, line);
+                    break;
+                }
+                writeLine(out, line);
+                if (lines.isEmpty()) out.flush();
+            }
+            Map<String, Object> last = new LinkedHashMap<>();
+            last.put("done", true);
+            try {
+                ExecutionService.BatchSummary summary = batch.get();
+                last.put("vectors", summary.vectors());
+                last.put("ran", summary.ran());
+                last.put("totalCycles", summary.totalCycles());
+                last.put("creditsCharged", summary.creditsCharged());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                last.put("error", cause.getClass().getSimpleName() + ": " + cause.getMessage());
+            }
+            last.put("credits", user.getCredits());
+            writeLine(out, last);
+        } catch (IOException e) {
+            clientGone.set(true); // the vectors not started yet are skipped
+        }
+    }
+
+    private static Map<String, Object> batchLine(int index, List<Long> inputs, RunResult result) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("inputs", inputs);
+        line.put("y", result.y());
+        line.put("totalCycles", result.totalCycles());
+        line.put("outcome", result.outcome());
+        line.put("variables", result.variables());
+        return line;
+    }
+
+    private static void writeLine(Writer out, Map<String, Object> line) throws IOException {
+        out.write(HandlerUtils.GSON.toJson(line));
+        out.write('\n');
+    }
+
+    // GET /api/execute/queue
+    private void handleQueue(HttpExchange ex) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "GET")) return;
+        HandlerUtils.sendJson(ex, 200, execution.queueStats());
+    }
+
+    // GET /api/execute/retention
+    private void handleRetention(HttpExchange ex) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "GET")) return;
+        HandlerUtils.sendJson(ex, 200, execution.retentionStats());
+    }
+
+    // GET /api/execute/poll/{runId}[?waitMs=N]
+    private void handlePoll(HttpExchange ex, String runId) throws IOException, InterruptedException {
+        if (!HandlerUtils.requireMethod(ex, "GET")) return;
+
+        String waitParam = parseQuery(ex.getRequestURI().getQuery()).get("waitMs");
+        long waitMillis;
+        try {
+            waitMillis = waitParam == null ? 0 : Long.parseLong(waitParam);
+        } catch (NumberFormatException e) {
+            HandlerUtils.sendError(ex, 400, "waitMs must be a number: " + waitParam);
+            return;
+        }
+        if (waitMillis < 0) {
+            HandlerUtils.sendError(ex, 400, "waitMs must not be negative: " + waitMillis);
+            return;
+        }
+        waitMillis = Math.min(waitMillis, MAX_POLL_WAIT_MILLIS);
+        ExecutionService.PollResult result = execution.poll(runId, waitMillis);
+        HandlerUtils.sendJson(ex, 200, pollResponse(runId, result));
+    }
+
+    // GET /api/execute/events/{runId}
+    // the connection stays open until the run is done; a "pending" event every few seconds
+    // keeps it alive, a client that went away is noticed on the next one
+    private void handleEvents(HttpExchange ex, String runId) throws IOException, InterruptedException {
+        if (!HandlerUtils.requireMethod(ex, "GET")) return;
+
+        try (OutputStream os = HandlerUtils.startEventStream(ex)) {
+            while (true) {
+                ExecutionService.PollResult result = execution.poll(runId, EVENT_HEARTBEAT_MILLIS);
+                Map<String, Object> resp = pollResponse(runId, result);
+                HandlerUtils.sendEvent(os, (String) resp.get("status"), resp);
+                if (result.status() != ExecutionService.PollStatus.PENDING) return;
+            }
+        } catch (IOException clientGone) {
+            // the headers are out, there is no one left to tell; the run itself goes on
+        }
+    }
+
+    // GET /api/execute/profile/{runId}[?top=N]
+    private void handleProfile(HttpExchange ex, String runId) throws IOException {
         if (!HandlerUtils.requireMethod(ex, "GET")) return;
 
+        String topParam = parseQuery(ex.getRequestURI().getQuery()).get("top");
+        int top;
+        try {
+            top = topParam == null ? DEFAULT_HOT_SPOTS : Integer.parseInt(topParam);
+        } catch (NumberFormatException e) {
+            HandlerUtils.sendError(ex, 400, "top must be a number: " + topParam);
+            return;
+        }
+        if (top < 0) {
+            HandlerUtils.sendError(ex, 400, "top must not be negative: " + top);
+            return;
+        }
+
         ExecutionService.PollResult result = execution.poll(runId);
+        switch (result.status()) {
+            case PENDING -> HandlerUtils.sendError(ex, 409, "Run not finished yet: " + runId);
+            case ERROR   -> HandlerUtils.sendError(ex, 404, result.error());
+            case DONE    -> {
+                RunProfile profile = result.result().profile();
+                if (profile == null) {
+                    HandlerUtils.sendError(ex, 404, "Run was not profiled (start it with \"profile\": true): " + runId);
+                    return;
+                }
+                long total = result.result().totalCycles();
+                List<Map<String, Object>> hotSpots = new ArrayList<>();
+                for (int index : profile.hotSpots(top)) {
+                    Map<String, Object> spot = new LinkedHashMap<>();
+                    spot.put("index", index);
+                    spot.put("executions", profile.executions()[index]);
+                    spot.put("cycles", profile.cycles()[index]);
+                    spot.put("share", total == 0 ? 0.0 : (double) profile.cycles()[index] / total);
+                    hotSpots.add(spot);
+                }
+                Map<String, Object> resp = new LinkedHashMap<>();
+                resp.put("runId", runId);
+                resp.put("totalCycles", total);
+                resp.put("hotSpots", hotSpots);
+                resp.put("executions", profile.executions());
+                resp.put("cycles", profile.cycles());
+                resp.put("functions", profile.functions());
+                HandlerUtils.sendJson(ex, 200, resp);
+            }
+        }
+    }
+
+    // the profile of a profiled run is only sent by /profile, a poll just says it is there
+    private static Map<String, Object> pollResponse(String runId, ExecutionService.PollResult result) {
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("runId", runId);
         switch (result.status()) {
-            case DONE    -> { resp.put("status", "done");   resp.put("result", result.result()); }
+            case DONE    -> {
+                RunResult r = result.result();
+                resp.put("status", "done");
+                resp.put("result", r.profile() == null ? r : new RunResult(r.y(), r.variables(), r.totalCycles(), r.outcome()));
+                if (r.profile() != null) resp.put("profiled", true);
+            }
             case PENDING -> resp.put("status", "pending");
             case ERROR   -> { resp.put("status", "error");  resp.put("error", result.error()); }
         }
-        HandlerUtils.sendJson(ex, 200, resp);
+        return resp;
     }
 
     // POST /api/execute/debug/start
@@ -174,6 +475,9 @@ public class ExecuteHandler implements HttpHandler {
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("debugId", r.debugId());
         resp.put("variables", r.variables());
+        resp.put("delta", false);
+        resp.put("version", r.version());
+        resp.put("step", 0);
         resp.put("currentIndex", r.currentIndex());
         resp.put("credits", r.credits());
         resp.put("finished", r.finished());
@@ -196,16 +500,163 @@ public class ExecuteHandler implements HttpHandler {
             return;
         }
 
-        ExecutionService.StepResult result = execution.stepDebug(debugId, user);
+        Map<String, String> params = parseQuery(ex.getRequestURI().getQuery());
+        boolean fullState = "true".equalsIgnoreCase(params.get("full"));
+        long count;
+        try {
+            count = params.containsKey("count") ? Long.parseLong(params.get("count")) : 1;
+        } catch (NumberFormatException e) {
+            HandlerUtils.sendError(ex, 400, "count must be a number of steps, got: " + params.get("count"));
+            return;
+        }
+        if (count < 1) {
+            HandlerUtils.sendError(ex, 400, "count must be at least 1");
+            return;
+        }
+        if (count == 1) {
+            sendStep(ex, execution.stepDebug(debugId, user, fullState));
+            return;
+        }
+        runSteps(ex, debugId, user, count, fullState);
+    }
+
+    // POST /api/execute/debug/{id}/continue
+    private void handleDebugContinue(HttpExchange ex, String debugId) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "POST")) return;
+
+        DebugSession session = execution.getDebugSession(debugId);
+        if (session == null) {
+            HandlerUtils.sendError(ex, 404, "Debug session not found: " + debugId);
+            return;
+        }
+        UserInfo user = users.getUser(session.username);
+        if (user == null) {
+            HandlerUtils.sendError(ex, 404, "User not found: " + session.username);
+            return;
+        }
+        boolean fullState = "true".equalsIgnoreCase(parseQuery(ex.getRequestURI().getQuery()).get("full"));
+        runSteps(ex, debugId, user, Long.MAX_VALUE, fullState);
+    }
+
+    private void runSteps(HttpExchange ex, String debugId, UserInfo user, long count, boolean fullState) throws IOException {
+        ExecutionService.StepResult result;
+        try {
+            result = execution.runDebugSteps(debugId, user, count, fullState);
+        } catch (ExecutionTier.RejectedException e) {
+            HandlerUtils.sendTooManyRequests(ex, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        }
+        sendStep(ex, result);
+    }
+
+    // POST /api/execute/debug/{id}/breakpoints
+    // body: {"breakpoints": [{"index": 4}, {"label": "L2"}, {"variable": "z1", "op": ">=", "value": 3},
+    //                        {"index": 7, "variable": "y", "op": "==", "value": 2}]}
+    private void handleDebugBreakpoints(HttpExchange ex, String debugId) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "POST")) return;
+
+        DebugSession session = execution.getDebugSession(debugId);
+        if (session == null) {
+            HandlerUtils.sendError(ex, 404, "Debug session not found: " + debugId);
+            return;
+        }
+        JsonObject json = HandlerUtils.GSON.fromJson(HandlerUtils.readBody(ex), JsonObject.class);
+        try {
+            List<Breakpoint> breakpoints = parseBreakpoints(json);
+            execution.setBreakpoints(debugId, breakpoints);
+            HandlerUtils.sendJson(ex, 200, Map.of("ok", true, "breakpoints", breakpoints.size()));
+        } catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+            HandlerUtils.sendError(ex, 400, "Bad breakpoint: " + e.getMessage());
+        }
+    }
+
+    // POST /api/execute/debug/{id}/back
+    private void handleDebugBack(HttpExchange ex, String debugId) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "POST")) return;
+
+        DebugSession session = execution.getDebugSession(debugId);
+        if (session == null) {
+            HandlerUtils.sendError(ex, 404, "Debug session not found: " + debugId);
+            return;
+        }
+        UserInfo user = users.getUser(session.username);
+        if (user == null) {
+            HandlerUtils.sendError(ex, 404, "User not found: " + session.username);
+            return;
+        }
+        sendStep(ex, execution.stepBackDebug(debugId, user));
+    }
+
+    // POST /api/execute/debug/{id}/goto?step=N
+    private void handleDebugGoTo(HttpExchange ex, String debugId) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "POST")) return;
+
+        DebugSession session = execution.getDebugSession(debugId);
+        if (session == null) {
+            HandlerUtils.sendError(ex, 404, "Debug session not found: " + debugId);
+            return;
+        }
+        UserInfo user = users.getUser(session.username);
+        if (user == null) {
+            HandlerUtils.sendError(ex, 404, "User not found: " + session.username);
+            return;
+        }
+
+        String stepParam = parseQuery(ex.getRequestURI().getQuery()).get("step");
+        long step;
+        try {
+            step = Long.parseLong(stepParam);
+        } catch (NumberFormatException e) {
+            HandlerUtils.sendError(ex, 400, "step must be a number of steps, got: " + stepParam);
+            return;
+        }
+        if (step < 0) {
+            HandlerUtils.sendError(ex, 400, "step must not be negative");
+            return;
+        }
+
+        ExecutionService.StepResult result;
+        try {
+            result = execution.goToStepDebug(debugId, user, step);
+        } catch (ExecutionTier.RejectedException e) {
+            HandlerUtils.sendTooManyRequests(ex, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        }
+        sendStep(ex, result);
+    }
+
+    private void sendStep(HttpExchange ex, ExecutionService.StepResult result) throws IOException {
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("variables", result.variables());
+        resp.put("delta", result.delta());
+        resp.put("version", result.version());
+        resp.put("step", result.step());
         resp.put("currentIndex", result.currentIndex());
+        resp.put("atBreakpoint", result.atBreakpoint());
         resp.put("credits", result.credits());
         resp.put("finished", result.finished());
         resp.put("outOfCredits", result.outOfCredits());
         HandlerUtils.sendJson(ex, 200, resp);
     }
 
+    // GET /api/execute/debug/{id}/state
+    private void handleDebugState(HttpExchange ex, String debugId) throws IOException {
+        if (!HandlerUtils.requireMethod(ex, "GET")) return;
+
+        DebugSession session = execution.getDebugSession(debugId);
+        if (session == null) {
+            HandlerUtils.sendError(ex, 404, "Debug session not found: " + debugId);
+            return;
+        }
+        ExecutionService.DebugState state = execution.debugState(debugId);
+        Map<String, Object> resp = new LinkedHashMap<>();
+        resp.put("variables", state.variables());
+        resp.put("delta", false);
+        resp.put("version", state.version());
+        resp.put("currentIndex", state.currentIndex());
+        HandlerUtils.sendJson(ex, 200, resp);
+    }
+
     // POST /api/execute/debug/{id}/resume
     private void handleDebugResume(HttpExchange ex, String debugId) throws IOException {
         if (!HandlerUtils.requireMethod(ex, "POST")) return;
@@ -221,9 +672,17 @@ public class ExecuteHandler implements HttpHandler {
             return;
         }
 
-        ExecutionService.StepResult result = execution.resumeDebug(debugId, user);
+        ExecutionService.StepResult result;
+        try {
+            result = execution.resumeDebug(debugId, user);
+        } catch (ExecutionTier.RejectedException e) {
+            HandlerUtils.sendTooManyRequests(ex, e.getRetryAfterSeconds(), e.getMessage());
+            return;
+        }
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("variables", result.variables());
+        resp.put("delta", false);
+        resp.put("version", result.version());
         resp.put("credits", result.credits());
         resp.put("finished", true);
         HandlerUtils.sendJson(ex, 200, resp);
@@ -237,6 +696,9 @@ public class ExecuteHandler implements HttpHandler {
     }
 
     // GET /api/execute/program-info?programName=...&isMainProgram=true&level=0
+    //     [&offset=N&limit=M | &around=N&limit=M]
+    // Without offset or around the whole level is sent. Totals and architecture counts always
+    // cover the whole level; the rows come from the cached expansion, only the page is copied.
     private void handleProgramInfo(HttpExchange ex) throws IOException {
         if (!HandlerUtils.requireMethod(ex, "GET")) return;
 
@@ -256,47 +718,66 @@ public class ExecuteHandler implements HttpHandler {
         Architecture arch = Architecture.fromString(archStr);
 
         try {
-            List<InstructionView> views = entry.program.instructionViewsAfterExtendRunShow(level);
-            // After expansion, getInstructions() returns the expanded flat list
-            List<logic.instruction.Instruction> instrs = entry.program.getInstructions();
-
-            List<Map<String, Object>> rows = new ArrayList<>();
-            if (views != null) {
-                for (int i = 0; i < views.size(); i++) {
-                    InstructionView v = views.get(i);
-                    // Get InstructionData name ("INCREASE", "JNZ", etc.) from the instruction object
-                    String instrName = (instrs != null && i < instrs.size())
-                            ? instrs.get(i).getName() : "";
-
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    row.put("number", v.number());
-                    row.put("type", v.type());
-                    row.put("label", v.label());
-                    row.put("command", v.command());
-                    row.put("cycles", v.cycles());
-                    row.put("instrName", instrName);
-                    row.put("supported", instrName.isBlank() || arch.supports(instrName));
-                    rows.add(row);
+            ExpandedProgram expanded = entry.program.expand(level);
+            List<InstructionView> views = expanded.getViews();
+            List<Instruction> instrs = expanded.getInstructions();
+            int total = views.size();
+
+            int offset = 0;
+            int limit = total;
+            if (params.containsKey("offset") || params.containsKey("around")) {
+                limit = Math.min(Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_ROWS))),
+                        MAX_PAGE_ROWS);
+                offset = params.containsKey("around")
+                        ? InstructionPage.offsetAround(Integer.parseInt(params.get("around")), limit, total)
+                        : Integer.parseInt(params.get("offset"));
+                if (offset < 0 || limit < 0) {
+                    HandlerUtils.sendError(ex, 400, "offset and limit must not be negative");
+                    return;
                 }
             }
+            int from = Math.min(offset, total);
+            int to = (int) Math.min(total, (long) from + limit);
+
+            List<Map<String, Object>> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                InstructionView v = views.get(i);
+                // InstructionData name ("INCREASE", "JNZ", etc.) of the instruction object
+                String instrName = instrs.get(i).getName();
+                if (instrName == null) instrName = "";
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("number", v.number());
+                row.put("type", v.type());
+                row.put("label", v.label());
+                row.put("command", v.command());
+                row.put("cycles", v.cycles());
+                row.put("instrName", instrName);
+                row.put("supported", instrName.isBlank() || arch.supports(instrName));
+                rows.add(row);
+            }
 
-            // Architecture support summary (count instructions supported per tier)
             Map<String, Object> resp = new LinkedHashMap<>();
             resp.put("instructions", rows);
+            resp.put("offset", from);
             resp.put("maxLevel", entry.getMaxLevel());
-            resp.put("totalInstructions", rows.size());
-            resp.put("inputVariables", entry.program.getXVariablesPeek());
+            resp.put("totalInstructions", total);
+            resp.put("basicInstructions", expanded.getBasicCount());
+            resp.put("inputVariables", expanded.getInputVariables());
 
+            // Architecture support summary (count instructions supported per tier)
             for (Architecture a : Architecture.values()) {
-                long count = rows.stream()
-                        .filter(r -> {
-                            String name = (String) r.get("instrName");
-                            return name != null && !name.isBlank() && a.supports(name);
-                        }).count();
+                long count = 0;
+                for (Map.Entry<String, Integer> e : expanded.getNameCounts().entrySet()) {
+                    String name = e.getKey();
+                    if (name != null && !name.isBlank() && a.supports(name)) count += e.getValue();
+                }
                 resp.put("count" + a.name(), count);
             }
 
             HandlerUtils.sendJson(ex, 200, resp);
+        } catch (NumberFormatException e) {
+            HandlerUtils.sendError(ex, 400, "Bad number: " + e.getMessage());
         } catch (Exception e) {
             HandlerUtils.sendError(ex, 500, "Error expanding program: " + e.getMessage());
         }
@@ -323,6 +804,64 @@ public class ExecuteHandler implements HttpHandler {
         return inputs;
     }
 
+    // "breakpoints": [{"index": N} | {"label": "L1"}, optionally with "variable", "op", "value";
+    //                 or only the condition]
+    private List<Breakpoint> parseBreakpoints(JsonObject json) {
+        List<Breakpoint> breakpoints = new ArrayList<>();
+        if (json != null && json.has("breakpoints")) {
+            for (var element : json.getAsJsonArray("breakpoints")) {
+                JsonObject b = element.getAsJsonObject();
+                breakpoints.add(new Breakpoint(
+                        b.has("index") ? b.get("index").getAsInt() : null,
+                        b.has("label") ? b.get("label").getAsString() : null,
+                        b.has("variable") ? b.get("variable").getAsString() : null,
+                        b.has("op") ? Breakpoint.Op.fromSymbol(b.get("op").getAsString()) : null,
+                        b.has("value") ? b.get("value").getAsLong() : null));
+            }
+        }
+        return breakpoints;
+    }
+
+    // "vectors": [[x1, x2, ...], ...]
+    private List<List<Long>> parseVectors(JsonObject json) {
+        List<List<Long>> vectors = new ArrayList<>();
+        if (json.has("vectors")) {
+            for (var vector : json.getAsJsonArray("vectors")) {
+                List<Long> inputs = new ArrayList<>();
+                vector.getAsJsonArray().forEach(e -> inputs.add(e.getAsLong()));
+                vectors.add(inputs);
+            }
+        }
+        return vectors;
+    }
+
+    // one vector per line, "x1,x2,..."; blank lines and a header line of names are skipped
+    private List<List<Long>> parseCsvVectors(String body) {
+        List<List<Long>> vectors = new ArrayList<>();
+        String[] rows = body.split("\\R");
+        for (int r = 0; r < rows.length; r++) {
+            String row = rows[r];
+            if (row.isBlank() || (r == 0 && Character.isLetter(row.strip().charAt(0)))) continue;
+            List<Long> inputs = new ArrayList<>();
+            for (String cell : row.split(",")) {
+                if (!cell.isBlank()) inputs.add(Long.parseLong(cell.trim()));
+            }
+            vectors.add(inputs);
+        }
+        return vectors;
+    }
+
+    // optional "backend": "INTERPRETER" (default) or "BYTECODE"; optional "profile": true
+    private RunOptions parseRunOptions(JsonObject json) {
+        RunOptions options = !json.has("backend") || json.get("backend").isJsonNull()
+                ? RunOptions.DEFAULT
+                : new RunOptions(ExecutionBackend.fromString(json.get("backend").getAsString()));
+        if (json.has("profile") && !json.get("profile").isJsonNull() && json.get("profile").getAsBoolean()) {
+            options = options.withProfile(true);
+        }
+        return options;
+    }
+
     private Map<String, String> parseQuery(String query) {
         Map<String, String> result = new LinkedHashMap<>();
         if (query == null) return result;
@@ -33,6 +33,28 @@ public class HandlerUtils {
         sendJson(ex, status, new ErrorBody(message));
     }
 
+    /** 429 with a Retry-After header, for work turned away because the server is busy. */
+    public static void sendTooManyRequests(HttpExchange ex, long retryAfterSeconds, String message) throws IOException {
+        ex.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+        sendJson(ex, 429, new BusyBody(message, retryAfterSeconds));
+    }
+
+    /** Sends the headers of a text/event-stream response; write events with {@link #sendEvent}. */
+    public static OutputStream startEventStream(HttpExchange ex) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        ex.getResponseHeaders().set("Cache-Control", "no-cache");
+        addCorsHeaders(ex);
+        ex.sendResponseHeaders(200, 0); // chunked, open until the stream is closed
+        return ex.getResponseBody();
+    }
+
+    /** Writes one server-sent event with {@code body} as JSON data, and flushes it to the client. */
+    public static void sendEvent(OutputStream os, String event, Object body) throws IOException {
+        String frame = "event: " + event + "\ndata: " + GSON.toJson(body) + "\n\n";
+        os.write(frame.getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
     public static boolean requireMethod(HttpExchange ex, String method) throws IOException {
         if (!method.equalsIgnoreCase(ex.getRequestMethod())) {
             sendError(ex, 405, "Method not allowed: " + ex.getRequestMethod());
@@ -56,4 +78,6 @@ public class HandlerUtils {
     }
 
     record ErrorBody(String error) {}
+
+    record BusyBody(String error, long retryAfterSeconds) {}
 }
@@ -0,0 +1,33 @@
+package application.handlers;
+
+import application.service.ExecutionService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+/**
+ * GET /api/metrics → run queue, wait and latency percentiles, cycles per second, upload parse and
+ *                    translate times, expansion time per level, debug sessions, retained results
+ *                    and requests per handler
+ */
+public class MetricsHandler implements HttpHandler {
+
+    private final ExecutionService execution;
+
+    public MetricsHandler(ExecutionService execution) {
+        this.execution = execution;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        try {
+            if (!HandlerUtils.requireMethod(ex, "GET")) return;
+            HandlerUtils.sendJson(ex, 200, execution.metricsSnapshot());
+        } catch (Exception e) {
+            // the snapshot is built before any header goes out, so this is still a 500, and
+            // Metrics.counted around the handler counts it under the handler's errors
+            HandlerUtils.sendError(ex, 500, e.getMessage());
+        }
+    }
+}
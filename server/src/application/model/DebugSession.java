@@ -3,7 +3,7 @@ package application.model;
 import core.engine.EngineImpl;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DebugSession {
     public final String debugId;
@@ -16,10 +16,14 @@ public class DebugSession {
     public final EngineImpl engine;
 
     public volatile boolean finished = false;
-    public volatile Map<String, Long> lastVariableState;
     public volatile int currentIndex = 0;
     public volatile long creditsRemaining;
-    public volatile int lastCycleCount = 0; // tracks cumulative cycles to compute per-step delta
+    public volatile long lastCycleCount = 0; // tracks cumulative cycles to compute per-step delta
+    // held by the one request working on the session (see ExecutionService); set once /stop ended it
+    public final ReentrantLock lock = new ReentrantLock();
+    public volatile boolean stopped = false;
+    // when a request last worked on the session, for the idle timeout (see ExecutionService)
+    public volatile long lastUsed = System.currentTimeMillis();
 
     public DebugSession(String debugId, String username, String programName, boolean isMainProgram,
                         Architecture architecture, int level, List<Long> inputs,
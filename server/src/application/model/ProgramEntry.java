@@ -2,7 +2,6 @@ package application.model;
 
 import core.program.Function;
 import core.program.Program;
-import dto.InstructionView;
 
 import java.util.List;
 import java.util.Objects;
@@ -12,7 +11,8 @@ import java.util.stream.Collectors;
 
 public class ProgramEntry {
     public final Program program;
-    public final String xmlContent;        // raw XML for building fresh engine instances
+    public final Program compiled;         // translated once at upload; runs start from compiled.forRun()
+    public final String xmlContent;        // raw XML as uploaded
     public final String uploaderName;
     public final boolean isMainProgram;
     public final String parentProgramName; // for helper functions: the main program they were uploaded with; null for main programs
@@ -21,9 +21,10 @@ public class ProgramEntry {
     private final AtomicInteger timesRun = new AtomicInteger(0);
     private final AtomicLong totalCreditsUsed = new AtomicLong(0);
 
-    public ProgramEntry(Program program, String xmlContent, String uploaderName,
+    public ProgramEntry(Program program, Program compiled, String xmlContent, String uploaderName,
                         boolean isMainProgram, String parentProgramName) {
         this.program = program;
+        this.compiled = compiled;
         this.xmlContent = xmlContent;
         this.uploaderName = uploaderName;
         this.isMainProgram = isMainProgram;
@@ -45,8 +46,7 @@ public class ProgramEntry {
 
     public int getInstructionCount() {
         try {
-            List<InstructionView> views = program.instructionViewsAfterExtendRunShow(0);
-            return views == null ? 0 : views.size();
+            return program.getInstructions(0).size();
         } catch (Exception e) {
             return 0;
         }
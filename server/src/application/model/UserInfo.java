@@ -41,6 +41,24 @@ public class UserInfo {
         }
     }
 
+    /** Deducts {@code amount}, or the whole balance when it is smaller. Returns what was deducted. */
+    public long deductCreditsUpTo(long amount) {
+        while (true) {
+            long current = credits.get();
+            long charged = Math.min(current, amount);
+            if (credits.compareAndSet(current, current - charged)) {
+                creditsUsed.addAndGet(charged);
+                return charged;
+            }
+        }
+    }
+
+    /** Gives back credits deducted for work that then never ran. */
+    public void refundCredits(long amount) {
+        credits.addAndGet(amount);
+        creditsUsed.addAndGet(-amount);
+    }
+
     public void addCredits(long amount) {
         credits.addAndGet(amount);
     }
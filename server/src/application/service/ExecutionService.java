@@ -5,9 +5,13 @@ import application.model.DebugSession;
 import application.model.ProgramEntry;
 import application.model.UserInfo;
 import core.engine.EngineImpl;
+import dto.BatchListener;
+import dto.Breakpoint;
 import dto.InstructionView;
 import dto.LoadReport;
 import dto.Pair;
+import dto.RunOptions;
+import dto.RunOutcome;
 import dto.RunResult;
 
 import java.util.ArrayList;
@@ -15,15 +19,64 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 public class ExecutionService {
 
-    private final ExecutorService pool = Executors.newCachedThreadPool();
-    private final ConcurrentHashMap<String, Future<RunResult>> pendingRuns = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, RunResult> completedRuns = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> runMeta = new ConcurrentHashMap<>(); // runId → metadata
+    private final ExecutionTier tier;
+    private final RunRetention runs;
+    private final Metrics metrics;
+
+    private static final long DEBUG_SWEEP_PERIOD_MILLIS = 30_000;
 
     private final ConcurrentHashMap<String, DebugSession> debugSessions = new ConcurrentHashMap<>();
+    // a debug session nobody worked on for this long is stopped: -Dsemulator.debug.idleTtl (seconds, default 1800)
+    private final long debugIdleMillis = TimeUnit.SECONDS.toMillis(Long.getLong("semulator.debug.idleTtl", 1800));
+    private final ScheduledExecutorService debugSweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("debug-sessions").daemon(true).factory());
+
+    public ExecutionService() {
+        this(new ExecutionTier(ExecutionTier.Config.fromSystemProperties()),
+                new RunRetention(RunRetention.Config.fromSystemProperties()));
+    }
+
+    public ExecutionService(ExecutionTier tier, RunRetention runs) {
+        this(tier, runs, new Metrics());
+    }
+
+    public ExecutionService(ExecutionTier tier, RunRetention runs, Metrics metrics) {
+        this.tier = tier;
+        this.runs = runs;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts the background sweeps: of idle debug sessions, and of the finished runs in the
+     * RunRetention given to the constructor. Call once, after construction.
+     */
+    public void start() {
+        runs.start();
+        debugSweeper.scheduleWithFixedDelay(this::sweepDebugSessions,
+                DEBUG_SWEEP_PERIOD_MILLIS, DEBUG_SWEEP_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** What GET /api/metrics answers: the recorded metrics with the queue, retention and debug sessions now. */
+    public Map<String, Object> metricsSnapshot() {
+        return metrics.snapshot(tier.stats(), runs.stats(), debugSessions.size());
+    }
+
+    /** Running and queued work, and how long it waited, for monitoring. */
+    public ExecutionTier.Stats queueStats() {
+        return tier.stats();
+    }
+
+    /** Run results held for polling, their estimated size and how many were dropped. */
+    public RunRetention.Stats retentionStats() {
+        return runs.stats();
+    }
 
     // -----------------------------------------------------------------------
     // Run (non-debug)
@@ -38,8 +91,7 @@ public class ExecutionService {
     public List<String> getUnsupportedCommands(ProgramEntry entry, int level, Architecture arch) {
         List<String> unsupported = new ArrayList<>();
         try {
-            entry.program.instructionViewsAfterExtendRunShow(level); // expand to level first
-            List<logic.instruction.Instruction> instructions = entry.program.getInstructions();
+            List<logic.instruction.Instruction> instructions = entry.program.getInstructions(level);
             if (instructions == null) return unsupported;
             for (logic.instruction.Instruction instr : instructions) {
                 String name = instr.getName();
@@ -54,59 +106,161 @@ public class ExecutionService {
     /**
      * Submit a run. Charges architecture cost up-front, then cycles per step.
      * Returns runId for polling, or throws if credits insufficient.
+     * Throws ExecutionTier.RejectedException when the run queue is full.
      */
     public String submitRun(UserInfo user, ProgramEntry entry, boolean isMainProgram,
                             Architecture arch, int level, List<Long> inputs,
                             UserRegistry userRegistry) {
+        return submitRun(user, entry, isMainProgram, arch, level, inputs, RunOptions.DEFAULT, userRegistry);
+    }
+
+    /**
+     * Same as above, with per-run execution options (e.g. the bytecode backend).
+     * The run may use at most the credits the user has when it starts; a program that needs
+     * more is stopped there and its result has outcome BUDGET_EXHAUSTED. The backend does not
+     * change the result or the cycles charged, only how fast they are produced: a bytecode run
+     * that does not finish within the credits is run again by the interpreter, which stops on
+     * the same instruction as stepping does.
+     */
+    public String submitRun(UserInfo user, ProgramEntry entry, boolean isMainProgram,
+                            Architecture arch, int level, List<Long> inputs,
+                            RunOptions options, UserRegistry userRegistry) {
         String runId = UUID.randomUUID().toString();
 
-        Future<RunResult> future = pool.submit(() -> {
+        long submittedAt = System.nanoTime();
+        Future<RunResult> future = tier.submit(() -> {
+            long startedAt = System.nanoTime();
             EngineImpl engine = buildEngine(entry, userRegistry);
-            RunResult result = engine.run(level, inputs);
+            long budget = Math.min(options.cycleBudget(), user.getCredits());
+            RunResult result = engine.run(level, inputs, options.withCycleBudget(budget));
 
             // Record in program stats
             long cyclesUsed = result == null ? 0 : result.totalCycles();
             long totalCost = arch.cost + cyclesUsed;
             entry.recordRun(totalCost);
 
-            // Deduct cycle credits (arch cost already deducted before submit)
-            user.tryDeductCredits(cyclesUsed);
+            // Deduct cycle credits (arch cost already deducted before submit); a run stopped by
+            // its budget can end a few cycles past it, it never takes the balance below 0
+            user.deductCreditsUpTo(cyclesUsed);
 
             // Add history entry
             user.incrementRunCount();
             user.addHistoryEntry(isMainProgram, entry.getName(), arch.name(),
                     level, result == null ? 0 : result.y(), cyclesUsed);
 
+            metrics.cyclesExecuted(cyclesUsed);
+            metrics.runDone(startedAt - submittedAt, System.nanoTime() - submittedAt);
             return result;
         });
 
-        pendingRuns.put(runId, future);
+        runs.addPending(runId, future);
         return runId;
     }
 
+    /** Totals of a finished batch: vectors that ran (the rest were skipped), their cycles and what they cost. */
+    public record BatchSummary(int vectors, int ran, long totalCycles, long creditsCharged) {}
+
+    /**
+     * Submit a batch: the program is built and expanded once and run for every input vector,
+     * in parallel (see Engine.runBatch). {@code sink} gets each vector's result as it finishes,
+     * from the batch's worker threads.
+     * Every vector is charged like a run of its own: the architecture cost, then its cycles.
+     * When a vector starts its budget is reserved from the balance, a share of it as large as
+     * the balance split between the vectors that can run at once, and what it did not use is
+     * refunded when it ends. A vector the user cannot pay for, or that would start after
+     * {@code cancelled} turned true, is skipped and reported as BUDGET_EXHAUSTED after 0 cycles.
+     * Throws ExecutionTier.RejectedException when the run queue is full. The batch takes one
+     * slot, and runs its other vectors in slots of the tier that are free when it starts, so
+     * it never has more than the tier's max concurrent runs going and never queues ahead of
+     * other runs.
+     */
+    public Future<BatchSummary> submitBatch(UserInfo user, ProgramEntry entry, Architecture arch, int level,
+                                            List<List<Long>> vectors, RunOptions options,
+                                            UserRegistry userRegistry, BatchListener sink,
+                                            BooleanSupplier cancelled) {
+        long submittedAt = System.nanoTime();
+        return tier.submit(() -> {
+            long startedAt = System.nanoTime();
+            EngineImpl engine = buildEngine(entry, userRegistry);
+            // each index is touched by one thread; > 0 once the vector paid its cost and got a budget
+            long[] reserved = new long[vectors.size()];
+            int parallelism = Math.min(tier.getConfig().maxConcurrent(), vectors.size());
+            AtomicInteger ran = new AtomicInteger();
+            LongAdder cycles = new LongAdder();
+            LongAdder creditsCharged = new LongAdder();
+
+            engine.runBatch(level, vectors, options, new BatchListener() {
+                @Override
+                public long budgetFor(int index) {
+                    if (cancelled.getAsBoolean() || user.tryDeductCredits(arch.cost) == -1) return 0;
+                    long budget = user.deductCreditsUpTo(Math.max(1, user.getCredits() / parallelism));
+                    if (budget == 0) {
+                        user.refundCredits(arch.cost); // nothing left to run it with
+                        return 0;
+                    }
+                    reserved[index] = budget;
+                    return budget;
+                }
+
+                @Override
+                public void onResult(int index, List<Long> inputs, RunResult result) {
+                    if (reserved[index] > 0) {
+                        long used = result.totalCycles();
+                        long paid = Math.min(used, reserved[index]);
+                        user.refundCredits(reserved[index] - paid);
+                        // anything past the reservation is taken from what is left
+                        long charge = arch.cost + paid + user.deductCreditsUpTo(used - paid);
+                        entry.recordRun(arch.cost + used);
+                        user.incrementRunCount();
+                        ran.incrementAndGet();
+                        cycles.add(used);
+                        creditsCharged.add(charge);
+                        metrics.cyclesExecuted(used);
+                    }
+                    sink.onResult(index, inputs, result);
+                }
+            }, work -> {
+                if (!tier.trySubmitIdle(work)) throw new RejectedExecutionException("No free execution slot");
+            }, parallelism);
+            metrics.runDone(startedAt - submittedAt, System.nanoTime() - submittedAt);
+            return new BatchSummary(vectors.size(), ran.get(), cycles.sum(), creditsCharged.sum());
+        });
+    }
+
     public enum PollStatus { PENDING, DONE, ERROR }
 
+    /** A debug session already has a request in progress (a continue, a step, ...); try again once it answered. */
+    public static class SessionBusyException extends RuntimeException {
+        public SessionBusyException(String debugId) {
+            super("Debug session is busy with another request: " + debugId);
+        }
+    }
+
     public record PollResult(PollStatus status, RunResult result, String error) {}
 
+    /**
+     * A fetched result stays available for a repeated poll for a short while (see RunRetention),
+     * after that, or once an unfetched result expired, the run is reported as not found.
+     */
     public PollResult poll(String runId) {
-        RunResult done = completedRuns.get(runId);
-        if (done != null) return new PollResult(PollStatus.DONE, done, null);
-
-        Future<RunResult> future = pendingRuns.get(runId);
-        if (future == null) return new PollResult(PollStatus.ERROR, null, "Run not found: " + runId);
-
-        if (future.isDone()) {
-            try {
-                RunResult result = future.get();
-                completedRuns.put(runId, result);
-                pendingRuns.remove(runId);
-                return new PollResult(PollStatus.DONE, result, null);
-            } catch (Exception e) {
-                return new PollResult(PollStatus.ERROR, null, e.getMessage());
-            }
+        RunRetention.Outcome done = runs.fetch(runId);
+        if (done != null) {
+            return done.result() != null
+                    ? new PollResult(PollStatus.DONE, done.result(), null)
+                    : new PollResult(PollStatus.ERROR, null, done.error());
         }
+        if (runs.isPending(runId)) return new PollResult(PollStatus.PENDING, null, null);
+        return new PollResult(PollStatus.ERROR, null, "Run not found (or expired): " + runId);
+    }
 
-        return new PollResult(PollStatus.PENDING, null, null);
+    /**
+     * Long poll: like {@link #poll(String)}, but first waits up to {@code waitMillis} for the run
+     * to finish, so the answer comes as soon as the run is done instead of on the next poll.
+     * Returns PENDING only when the wait ran out.
+     */
+    public PollResult poll(String runId, long waitMillis) throws InterruptedException {
+        runs.awaitDone(runId, waitMillis);
+        return poll(runId);
     }
 
     // -----------------------------------------------------------------------
@@ -114,7 +268,7 @@ public class ExecutionService {
     // -----------------------------------------------------------------------
 
     public record StartDebugResult(String debugId, Map<String, Long> variables, int currentIndex,
-                                   long credits, boolean finished) {}
+                                   long credits, boolean finished, long version) {}
 
     public StartDebugResult startDebug(UserInfo user, ProgramEntry entry, boolean isMainProgram,
                                        Architecture arch, int level, List<Long> inputs,
@@ -128,67 +282,193 @@ public class ExecutionService {
         String debugId = UUID.randomUUID().toString();
         DebugSession session = new DebugSession(debugId, user.name, entry.getName(), isMainProgram,
                 arch, level, inputs, engine, user.getCredits());
-        session.lastVariableState = vars;
         session.currentIndex = idx;
         session.finished = (idx == -1);
         debugSessions.put(debugId, session);
 
-        return new StartDebugResult(debugId, vars, idx, user.getCredits(), idx == -1);
+        return new StartDebugResult(debugId, vars, idx, user.getCredits(), idx == -1,
+                engine.debugStateVersion());
     }
 
+    /**
+     * What a debug step, jump or resume left behind. With {@code delta} the variables are only
+     * those that changed since the state at {@code version - 1}; otherwise they are the whole
+     * state. {@code step} is the number of steps the state is at (0 as started);
+     * {@code atBreakpoint} tells a run of several steps stopped at a breakpoint.
+     */
     public record StepResult(Map<String, Long> variables, int currentIndex, long credits,
-                              boolean finished, boolean outOfCredits) {}
+                              boolean finished, boolean outOfCredits, long version, boolean delta,
+                              long step, boolean atBreakpoint) {}
+
+    /** The whole variable state of a debug session, at {@code version}. */
+    public record DebugState(Map<String, Long> variables, int currentIndex, long version) {}
 
-    public StepResult stepDebug(String debugId, UserInfo user) {
+    /** One step; answers only the changed variables unless {@code fullState} is asked for. */
+    public StepResult stepDebug(String debugId, UserInfo user, boolean fullState) {
         DebugSession session = debugSessions.get(debugId);
         if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
 
-        Pair<Map<String, Long>, Integer> result = session.engine.oneStepInDebug();
+        return exclusive(session, () -> {
+            // the step may use the credits left, so a call that never returns cannot hang it
+            session.engine.setDebugCycleBudget(session.lastCycleCount + user.getCredits());
+            Pair<Map<String, Long>, Integer> result = fullState
+                    ? session.engine.oneStepInDebug()
+                    : session.engine.oneStepInDebugChanges();
+            return settleStep(debugId, session, user, result, !fullState);
+        });
+    }
+
+    /** Replaces the breakpoints of a debug session; IllegalArgumentException for one that does not fit. */
+    public void setBreakpoints(String debugId, List<Breakpoint> breakpoints) {
+        DebugSession session = debugSessions.get(debugId);
+        if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
+        exclusive(session, () -> {
+            session.engine.setDebugBreakpoints(breakpoints);
+            return null;
+        });
+    }
+
+    /**
+     * Runs up to {@code count} steps ({@link Long#MAX_VALUE}: until a breakpoint or the end) and
+     * charges their cycles at once. The steps run on the server, stopping before the first
+     * instruction a breakpoint is hit at. It takes an execution slot like a resume
+     * (throws ExecutionTier.RejectedException when the queue is full).
+     */
+    public StepResult runDebugSteps(String debugId, UserInfo user, long count, boolean fullState) {
+        DebugSession session = debugSessions.get(debugId);
+        if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
+
+        return exclusive(session, () -> {
+            session.engine.setDebugCycleBudget(session.lastCycleCount + user.getCredits());
+            Pair<Map<String, Long>, Integer> result = tier.call(() -> {
+                Pair<Map<String, Long>, Integer> changed = session.engine.debugRunSteps(count);
+                return fullState ? new Pair<>(session.engine.debugVariables(), changed.getValue()) : changed;
+            });
+            return settleStep(debugId, session, user, result, !fullState);
+        });
+    }
+
+    /** Goes back one step; the whole state is answered. */
+    public StepResult stepBackDebug(String debugId, UserInfo user) {
+        DebugSession session = debugSessions.get(debugId);
+        if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
+
+        return exclusive(session, () -> {
+            session.engine.setDebugCycleBudget(session.lastCycleCount + user.getCredits());
+            return settleStep(debugId, session, user, session.engine.debugStepBack(), false);
+        });
+    }
+
+    /**
+     * Goes to the state after {@code step} steps, back or forward; the whole state is answered.
+     * It takes an execution slot like a resume, a jump forward can run for long
+     * (throws ExecutionTier.RejectedException when the queue is full).
+     */
+    public StepResult goToStepDebug(String debugId, UserInfo user, long step) {
+        DebugSession session = debugSessions.get(debugId);
+        if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
+
+        return exclusive(session, () -> {
+            session.engine.setDebugCycleBudget(session.lastCycleCount + user.getCredits());
+            Pair<Map<String, Long>, Integer> result = tier.call(() -> session.engine.debugGoToStep(step));
+            return settleStep(debugId, session, user, result, false);
+        });
+    }
+
+    // runs 'work' as the only request on the session; a second one meanwhile gets a
+    // SessionBusyException instead of stepping the same executor at the same time
+    private <T> T exclusive(DebugSession session, Supplier<T> work) {
+        if (!session.lock.tryLock()) throw new SessionBusyException(session.debugId);
+        try {
+            if (session.stopped) throw new IllegalArgumentException("Debug session not found: " + session.debugId);
+            return work.get();
+        } finally {
+            session.lastUsed = System.currentTimeMillis();
+            session.lock.unlock();
+        }
+    }
+
+    // charges what the engine just ran and ends the session when it finished or ran out
+    private StepResult settleStep(String debugId, DebugSession session, UserInfo user,
+                                  Pair<Map<String, Long>, Integer> result, boolean delta) {
         Map<String, Long> vars = result.getKey();
         int idx = result.getValue();
-
-        // Deduct credits equal to cycles consumed by this step (delta from last known count)
-        int nowCycles = session.engine.getCycels();
-        int deltaCycles = Math.max(0, nowCycles - session.lastCycleCount);
-        session.lastCycleCount = nowCycles;
-        long newCredits = deltaCycles > 0 ? user.tryDeductCredits(deltaCycles) : user.getCredits();
+        long version = session.engine.debugStateVersion();
+        long step = session.engine.debugStepCount();
+        boolean atBreakpoint = session.engine.debugAtBreakpoint();
+
+        // Deduct credits for the cycles past the furthest the session got; steps replayed
+        // after going back were paid for the first time they ran
+        long nowCycles = session.engine.getCycels();
+        long deltaCycles = Math.max(0, nowCycles - session.lastCycleCount);
+        session.lastCycleCount = Math.max(session.lastCycleCount, nowCycles);
+        metrics.cyclesExecuted(deltaCycles);
+        long newCredits;
+        if (session.engine.getLastOutcome() == RunOutcome.BUDGET_EXHAUSTED) {
+            user.deductCreditsUpTo(deltaCycles);
+            newCredits = -1;
+        } else {
+            newCredits = deltaCycles > 0 ? user.tryDeductCredits(deltaCycles) : user.getCredits();
+        }
         if (newCredits == -1) {
             // out of credits — stop debug
             session.engine.endDebug();
             debugSessions.remove(debugId);
-            return new StepResult(vars, idx, 0, true, true);
+            return new StepResult(vars, idx, 0, true, true, version, delta, step, atBreakpoint);
         }
 
-        session.lastVariableState = vars;
         session.currentIndex = idx;
         session.creditsRemaining = newCredits;
 
+        // a session stopped while this ran is over; /stop ends it once this returns
+        if (session.stopped) {
+            return new StepResult(vars, idx, newCredits, true, false, version, delta, step, atBreakpoint);
+        }
+
         boolean finished = (idx == -1);
         if (finished) {
-            // save history
+            // save history (y may not be in a delta, the whole state is read once here)
             long cyclesTotal = session.engine.getCycels();
+            long y = session.engine.debugVariables().getOrDefault("y", 0L);
             user.incrementRunCount();
             user.addHistoryEntry(session.isMainProgram, session.programName,
-                    session.architecture.name(), session.level,
-                    vars == null ? 0 : vars.getOrDefault("y", 0L), cyclesTotal);
+                    session.architecture.name(), session.level, y, cyclesTotal);
             session.engine.endDebug();
             debugSessions.remove(debugId);
         }
 
-        return new StepResult(vars, idx, newCredits, finished, false);
+        return new StepResult(vars, idx, newCredits, finished, false, version, delta, step, atBreakpoint);
+    }
+
+    public DebugState debugState(String debugId) {
+        DebugSession session = debugSessions.get(debugId);
+        if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
+        return exclusive(session, () -> new DebugState(session.engine.debugVariables(), session.currentIndex,
+                session.engine.debugStateVersion()));
     }
 
     public StepResult resumeDebug(String debugId, UserInfo user) {
         DebugSession session = debugSessions.get(debugId);
         if (session == null) throw new IllegalArgumentException("Debug session not found: " + debugId);
 
-        Map<String, Long> finalState = session.engine.resumeDebug();
+        return exclusive(session, () -> resume(debugId, session, user));
+    }
+
+    private StepResult resume(String debugId, DebugSession session, UserInfo user) {
+        // the rest of the run may use the credits left, then it stops; it takes an execution
+        // slot like a run (throws ExecutionTier.RejectedException when the queue is full)
+        session.engine.setDebugCycleBudget(session.lastCycleCount + user.getCredits());
+        Map<String, Long> finalState = tier.call(session.engine::resumeDebug);
+        long version = session.engine.debugStateVersion();
+        long step = session.engine.debugStepCount();
         long cyclesTotal = session.engine.getCycels();
+        boolean outOfCredits = session.engine.getLastOutcome() == RunOutcome.BUDGET_EXHAUSTED;
 
         // Deduct only remaining cycles (not already deducted during step calls)
         long remainingCycles = Math.max(0, cyclesTotal - session.lastCycleCount);
-        long remaining = remainingCycles > 0 ? user.tryDeductCredits(remainingCycles) : user.getCredits();
-        if (remaining == -1) remaining = 0;
+        user.deductCreditsUpTo(remainingCycles);
+        metrics.cyclesExecuted(remainingCycles);
+        long remaining = user.getCredits();
 
         user.incrementRunCount();
         user.addHistoryEntry(session.isMainProgram, session.programName,
@@ -198,13 +478,42 @@ public class ExecutionService {
         session.engine.endDebug();
         debugSessions.remove(debugId);
 
-        return new StepResult(finalState, -1, remaining, true, false);
+        return new StepResult(finalState, -1, remaining, true, outOfCredits, version, false, step, false);
     }
 
+    /**
+     * Ends a debug session. Work in flight on it (a continue, a resume) is cancelled and
+     * charged for the cycles it ran; the session ends once it gave the session back.
+     */
     public void stopDebug(String debugId) {
         DebugSession session = debugSessions.remove(debugId);
-        if (session != null) {
+        if (session == null) return;
+        session.stopped = true;
+        session.engine.cancelRun();
+        session.lock.lock();
+        try {
             session.engine.endDebug();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the debug sessions idle for longer than the idle timeout, so an abandoned one does
+     * not keep its engine and checkpoints; runs every 30 s on its own thread once
+     * {@link #start()} was called. A session with a request in progress is never idle.
+     */
+    public void sweepDebugSessions() {
+        try {
+            long now = System.currentTimeMillis();
+            for (DebugSession session : debugSessions.values()) {
+                if (!session.lock.isLocked() && now - session.lastUsed >= debugIdleMillis) {
+                    stopDebug(session.debugId);
+                }
+            }
+        } catch (RuntimeException e) {
+            // a failed sweep must not cancel the next ones
+            System.err.println("Debug session sweep failed: " + e);
         }
     }
 
@@ -218,8 +527,9 @@ public class ExecutionService {
 
     private EngineImpl buildEngine(ProgramEntry entry, UserRegistry userRegistry) {
         EngineImpl engine = new EngineImpl();
-        // Re-parse from stored XML content → fresh, isolated engine per execution
-        LoadReport report = engine.loadProgramFromContent(entry.xmlContent);
+        // Start from the program compiled at upload → no XML parsing or translation per execution;
+        // the engine's copy shares instructions and expansions but has its own run state
+        LoadReport report = engine.loadTranslated(entry.compiled);
         if (!report.ok()) {
             throw new IllegalStateException("Failed to build engine for program: " + entry.getName());
         }
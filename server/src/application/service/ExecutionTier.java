@@ -0,0 +1,189 @@
+package application.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for CPU-bound work (program runs, debug resumes).
+ * At most {@code maxConcurrent} pieces of work execute at once, on that many worker
+ * threads; the rest wait their turn in FIFO order. At most {@code maxQueued} may wait,
+ * anything past that is rejected with a {@link RejectedException} that says when to try
+ * again, so a burst of runs can no longer pile up threads without limit.
+ * <p>
+ * The workers are platform threads on purpose: a virtual thread is only unmounted when it
+ * blocks, so runs that never block would hold every carrier thread and starve the virtual
+ * threads serving HTTP. Everything that only waits (request handlers, {@link #call} callers
+ * waiting for their result) stays on virtual threads.
+ */
+public class ExecutionTier {
+
+    /**
+     * Tier settings. {@link #fromSystemProperties()} reads
+     * {@code -Dsemulator.runs.concurrency} (default: the number of cores) and
+     * {@code -Dsemulator.runs.queue} (default: 256).
+     */
+    public record Config(int maxConcurrent, int maxQueued) {
+        public static final int DEFAULT_QUEUE = 256;
+
+        public Config {
+            if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be at least 1: " + maxConcurrent);
+            if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must not be negative: " + maxQueued);
+        }
+
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger("semulator.runs.concurrency", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("semulator.runs.queue", DEFAULT_QUEUE));
+        }
+    }
+
+    /** The queue is full; try again in {@code retryAfterSeconds}. */
+    public static class RejectedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public RejectedException(long retryAfterSeconds) {
+            super("Server busy: the run queue is full, retry in " + retryAfterSeconds + " s");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() { return retryAfterSeconds; }
+    }
+
+    /** Snapshot of the tier; wait times are from admission until the work started executing. */
+    public record Stats(int running, int queued, int maxConcurrent, int maxQueued,
+                        long completed, long rejected,
+                        double averageWaitMillis, double maxWaitMillis, double averageRunMillis) {}
+
+    private final Config config;
+    private final ExecutorService workers;
+    private final AtomicInteger admitted = new AtomicInteger(); // running + queued
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder runNanos = new LongAdder();
+
+    public ExecutionTier(Config config) {
+        this.config = config;
+        // admit() bounds the queue, the pool's own queue never holds more than maxQueued
+        this.workers = Executors.newFixedThreadPool(config.maxConcurrent(),
+                Thread.ofPlatform().name("run-worker-", 1).daemon(true).factory());
+    }
+
+    /** Queues {@code work}; throws RejectedException when the queue is full. */
+    public <T> Future<T> submit(Callable<T> work) {
+        admit();
+        long admittedAt = System.nanoTime();
+        try {
+            return workers.submit(() -> execute(work, admittedAt));
+        } catch (RuntimeException e) {
+            admitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs {@code work} only when a worker is free and nothing waits in the queue, so it never
+     * holds up queued work; returns false (and counts no rejection) otherwise.
+     */
+    public boolean trySubmitIdle(Runnable work) {
+        while (true) {
+            int n = admitted.get();
+            if (n >= config.maxConcurrent()) return false;
+            if (admitted.compareAndSet(n, n + 1)) break;
+        }
+        long admittedAt = System.nanoTime();
+        try {
+            workers.submit(() -> execute(Executors.callable(work), admittedAt));
+            return true;
+        } catch (RuntimeException e) {
+            admitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /** Queues {@code work} and waits for its result; throws RejectedException when the queue is full. */
+    public <T> T call(Supplier<T> work) {
+        Future<T> future = submit(work::get);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // not cancelled: a task dropped from the queue would never give back its admission
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an execution slot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause()); // a Supplier throws no checked exceptions
+        }
+    }
+
+    private void admit() {
+        int limit = config.maxConcurrent() + config.maxQueued();
+        while (true) {
+            int n = admitted.get();
+            if (n >= limit) {
+                rejected.increment();
+                throw new RejectedException(retryAfterSeconds());
+            }
+            if (admitted.compareAndSet(n, n + 1)) return;
+        }
+    }
+
+    private <T> T execute(Callable<T> work, long admittedAt) throws Exception {
+        long startedAt = System.nanoTime();
+        long waited = startedAt - admittedAt;
+        started.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        running.incrementAndGet();
+        try {
+            return work.call();
+        } finally {
+            runNanos.add(System.nanoTime() - startedAt);
+            completed.increment();
+            running.decrementAndGet();
+            admitted.decrementAndGet();
+        }
+    }
+
+    /** Seconds until the work queued now is likely to start: the queue ahead, drained at the average run time. */
+    public long retryAfterSeconds() {
+        double runMillis = averageRunMillis();
+        if (runMillis <= 0) runMillis = 1_000; // nothing finished yet, guess a second per run
+        int queued = Math.max(0, admitted.get() - running.get());
+        double waves = Math.ceil((queued + 1.0) / config.maxConcurrent());
+        return Math.max(1, (long) Math.ceil(waves * runMillis / 1_000));
+    }
+
+    public Stats stats() {
+        int run = running.get();
+        long startedCount = started.sum();
+        return new Stats(run, Math.max(0, admitted.get() - run),
+                config.maxConcurrent(), config.maxQueued(),
+                completed.sum(), rejected.sum(),
+                startedCount == 0 ? 0 : waitNanos.sum() / 1e6 / startedCount,
+                maxWaitNanos.get() / 1e6,
+                averageRunMillis());
+    }
+
+    private double averageRunMillis() {
+        long done = completed.sum();
+        return done == 0 ? 0 : runNanos.sum() / 1e6 / done;
+    }
+
+    public Config getConfig() { return config; }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package application.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations in nanoseconds, counted in HDR-style buckets: each power of two is split into
+ * 16 equal sub-buckets, so any percentile is off by at most 1/16 (6.25%) from 1 ns to
+ * centuries, in a fixed array of 960 counters. Recording is an index computation and
+ * an atomic add, no lock; a snapshot taken while others record may be a few counts behind.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Adds one duration; a negative one counts as 0. */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * The duration {@code percentile} percent of the recorded ones are at or below (the top of
+     * its bucket, never above the largest recorded); 0 when nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** count, mean, p50, p90, p99, p99.9 and max, the durations in milliseconds. */
+    public Map<String, Object> snapshot() {
+        long n = count.sum();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("count", n);
+        s.put("meanMs", n == 0 ? 0.0 : sum.sum() / 1e6 / n);
+        s.put("p50Ms", percentile(50) / 1e6);
+        s.put("p90Ms", percentile(90) / 1e6);
+        s.put("p99Ms", percentile(99) / 1e6);
+        s.put("p999Ms", percentile(99.9) / 1e6);
+        s.put("maxMs", max.get() / 1e6);
+        return s;
+    }
+
+    // values below 16 have a bucket each; above, the power of two picks a row of 16
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long highestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int magnitude = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        int shift = magnitude - SUB_BITS;
+        long lowest = (SUB_BUCKETS + sub) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,168 @@
+package application.service;
+
+import com.sun.net.httpserver.HttpHandler;
+import logic.execution.FunctionCallCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live numbers of the server for GET /api/metrics: requests per handler, run wait and latency,
+ * cycles executed, and the time uploads spend parsing and translating and programs spend
+ * expanding. Everything is recorded with LongAdders and {@link LatencyHistogram}s, so the
+ * threads doing the work never wait on each other to count it.
+ */
+public class Metrics {
+
+    /** Requests, failed requests (status 400 and up) and their time, of one handler. */
+    private static final class HandlerStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram time = new LatencyHistogram();
+    }
+
+    private final long startedAt = System.nanoTime();
+    private final Map<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+
+    // from submit until the run started executing, and until its result was ready
+    private final LatencyHistogram runWait = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private final LongAdder cycles = new LongAdder();
+    private final RecentRate recentCycles = new RecentRate();
+
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram translate = new LatencyHistogram();
+    private final Map<Integer, LatencyHistogram> expansionByLevel = new ConcurrentHashMap<>();
+
+    /** {@code handler}, counting its requests under {@code name}. */
+    public HttpHandler counted(String name, HttpHandler handler) {
+        HandlerStats stats = handlers.computeIfAbsent(name, n -> new HandlerStats());
+        return ex -> {
+            long start = System.nanoTime();
+            try {
+                handler.handle(ex);
+            } finally {
+                stats.requests.increment();
+                if (ex.getResponseCode() >= 400) stats.errors.increment();
+                stats.time.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /** A run (or batch) waited {@code waitNanos} for a slot and was done {@code totalNanos} after submit. */
+    public void runDone(long waitNanos, long totalNanos) {
+        runWait.record(waitNanos);
+        runLatency.record(totalNanos);
+    }
+
+    /** An upload took {@code parseNanos} to read and {@code translateNanos} to translate. */
+    public void programLoaded(long parseNanos, long translateNanos) {
+        parse.record(parseNanos);
+        translate.record(translateNanos);
+    }
+
+    /** Cycles a run, a batch vector or a debug session executed. */
+    public void cyclesExecuted(long count) {
+        if (count <= 0) return;
+        cycles.add(count);
+        recentCycles.add(count);
+    }
+
+    /** A program level that was not cached was expanded (see Program.setExpansionListener). */
+    public void expanded(int level, int instructions, long nanos) {
+        expansionByLevel.computeIfAbsent(level, l -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Everything recorded, with the state of the run queue, the retained results and the
+     * debug sessions open now.
+     */
+    public Map<String, Object> snapshot(ExecutionTier.Stats queue, RunRetention.Stats retention, int debugSessions) {
+        double uptimeSeconds = (System.nanoTime() - startedAt) / 1e9;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("uptimeSeconds", uptimeSeconds);
+
+        Map<String, Object> runs = new LinkedHashMap<>();
+        runs.put("queue", queue);
+        runs.put("wait", runWait.snapshot());
+        runs.put("latency", runLatency.snapshot());
+        m.put("runs", runs);
+
+        Map<String, Object> c = new LinkedHashMap<>();
+        long total = cycles.sum();
+        c.put("total", total);
+        c.put("perSecond", uptimeSeconds > 0 ? total / uptimeSeconds : 0.0);
+        c.put("perSecondLastMinute", recentCycles.perSecond());
+        m.put("cycles", c);
+
+        // the engine's memo of finished function calls, shared by every run on the server
+        FunctionCallCache cache = FunctionCallCache.shared();
+        Map<String, Object> memo = new LinkedHashMap<>();
+        long hits = cache.hits();
+        long misses = cache.misses();
+        memo.put("hits", hits);
+        memo.put("misses", misses);
+        memo.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        memo.put("entries", cache.size());
+        memo.put("maxEntries", FunctionCallCache.MAX_ENTRIES);
+        m.put("functionCalls", memo);
+
+        Map<String, Object> programs = new LinkedHashMap<>();
+        programs.put("parse", parse.snapshot());
+        programs.put("translate", translate.snapshot());
+        Map<String, Object> expansion = new TreeMap<>();
+        for (Map.Entry<Integer, LatencyHistogram> e : expansionByLevel.entrySet()) {
+            expansion.put(String.valueOf(e.getKey()), e.getValue().snapshot());
+        }
+        programs.put("expansionByLevel", expansion);
+        m.put("programs", programs);
+
+        m.put("debugSessions", debugSessions);
+        m.put("retention", retention);
+
+        Map<String, Object> requests = new TreeMap<>();
+        for (Map.Entry<String, HandlerStats> e : handlers.entrySet()) {
+            Map<String, Object> h = new LinkedHashMap<>();
+            h.put("requests", e.getValue().requests.sum());
+            h.put("errors", e.getValue().errors.sum());
+            h.put("time", e.getValue().time.snapshot());
+            requests.put(e.getKey(), h);
+        }
+        m.put("requests", requests);
+        return m;
+    }
+
+    /**
+     * Counts per second over the last minute, in 60 one-second slots. A slot still holding an
+     * older second is cleared by the first add in its new second; an add racing that clear may
+     * be lost, which is fine for a rate.
+     */
+    private static final class RecentRate {
+        private static final int SLOTS = 60;
+        private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+
+        void add(long count) {
+            long second = System.nanoTime() / 1_000_000_000L;
+            int slot = (int) Math.floorMod(second, (long) SLOTS);
+            long was = seconds.get(slot);
+            if (was != second && seconds.compareAndSet(slot, was, second)) {
+                counts.set(slot, 0);
+            }
+            counts.addAndGet(slot, count);
+        }
+
+        double perSecond() {
+            long now = System.nanoTime() / 1_000_000_000L;
+            long total = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                if (now - seconds.get(i) < SLOTS) total += counts.get(i);
+            }
+            return total / (double) SLOTS;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package application.service;
 
-import adapter.translate.JaxbLoader;
+import adapter.translate.StaxProgramLoader;
 import adapter.translate.ProgramTranslator;
 import application.model.ProgramEntry;
 import core.program.Function;
@@ -19,6 +19,16 @@ public class ProgramRegistry {
     /** helper functions, keyed by name */
     private final ConcurrentHashMap<String, ProgramEntry> functions = new ConcurrentHashMap<>();
 
+    private final Metrics metrics;
+
+    public ProgramRegistry() {
+        this(new Metrics());
+    }
+
+    public ProgramRegistry(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Validates and registers a program from raw XML content.
      * @return LoadReport with ok=true, or errors if validation failed.
@@ -27,14 +37,21 @@ public class ProgramRegistry {
         List<Exception> errors = new ArrayList<>();
 
         try {
-            var sProgram = JaxbLoader.loadFromContent(xmlContent);
+            // streaming parse: uploads over StaxProgramLoader.Limits.DEFAULT are rejected while reading
+            long start = System.nanoTime();
+            var sProgram = StaxProgramLoader.loadFromContent(xmlContent);
+            long parsed = System.nanoTime();
             var result = ProgramTranslator.translate(sProgram);
+            metrics.programLoaded(parsed - start, System.nanoTime() - parsed);
 
             if (!result.errors.isEmpty()) {
                 return new LoadReport(false, result.errors);
             }
 
             Program program = result.program;
+            // a second translation serves the runs, so what a run writes into its instructions
+            // (e.g. the cycles of the last QUOTE call) never shows up in the program views
+            Program compiled = ProgramTranslator.translate(sProgram).program;
             String programName = program.getName();
 
             // Rule 1: main program name must be unique
@@ -59,11 +76,11 @@ public class ProgramRegistry {
             //  within the file. Cross-file references are validated via FunctionNotExist exceptions.)
 
             // Register the main program
-            programs.put(programName, new ProgramEntry(program, xmlContent, uploaderName, true, null));
+            programs.put(programName, new ProgramEntry(program, compiled, xmlContent, uploaderName, true, null));
 
-            // Register helper functions — they share the parent XML so the engine can rebuild them
+            // Register helper functions — they run from the parent's compiled program (engine.loadFunc)
             for (Function f : funcs) {
-                functions.put(f.getName(), new ProgramEntry(f, xmlContent, uploaderName, false, programName));
+                functions.put(f.getName(), new ProgramEntry(f, compiled, xmlContent, uploaderName, false, programName));
             }
 
             return new LoadReport(true, List.of());
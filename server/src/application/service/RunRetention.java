@@ -0,0 +1,248 @@
+package application.service;
+
+import dto.RunProfile;
+import dto.RunResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds submitted runs until their result is fetched, and not much longer.
+ * A run is pending while it executes; once done it is settled (by a poll or by the
+ * periodic sweep) into a completed entry that keeps only the result, with an estimate
+ * of its size. Completed entries are dropped
+ * <ul>
+ *   <li>{@code fetchedTtl} after the client first fetched them (a repeated poll still works),</li>
+ *   <li>{@code ttl} after the run finished when nobody fetched them (abandoned runs),</li>
+ *   <li>oldest first whenever the retained results are estimated above {@code maxBytes}.</li>
+ * </ul>
+ * A run that is still executing is never dropped; the execution tier bounds how many there are.
+ */
+public class RunRetention {
+
+    /**
+     * Retention settings. {@link #fromSystemProperties()} reads
+     * {@code -Dsemulator.runs.ttl} (seconds, default 3600),
+     * {@code -Dsemulator.runs.fetchedTtl} (seconds, default 60) and
+     * {@code -Dsemulator.runs.maxMemoryMb} (default 64).
+     */
+    public record Config(long ttlMillis, long fetchedTtlMillis, long maxBytes) {
+        public Config {
+            if (ttlMillis < 0 || fetchedTtlMillis < 0) throw new IllegalArgumentException("TTLs must not be negative");
+            if (maxBytes < 0) throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+
+        public static Config fromSystemProperties() {
+            return new Config(
+                    TimeUnit.SECONDS.toMillis(Long.getLong("semulator.runs.ttl", 3600)),
+                    TimeUnit.SECONDS.toMillis(Long.getLong("semulator.runs.fetchedTtl", 60)),
+                    Long.getLong("semulator.runs.maxMemoryMb", 64) * 1024 * 1024);
+        }
+    }
+
+    /** Snapshot of what is retained and how much was dropped, per reason. */
+    public record Stats(int pending, int completed, long retainedBytes, long maxBytes,
+                        long evictedFetched, long evictedExpired, long evictedForMemory) {}
+
+    /** A finished run: its result, or why it has none. */
+    public record Outcome(RunResult result, String error) {}
+
+    private static final class Pending {
+        final Future<RunResult> future;
+
+        Pending(Future<RunResult> future) { this.future = future; }
+    }
+
+    private static final class Completed {
+        final Outcome outcome;
+        final long bytes;
+        final long finishedAt;
+        volatile long fetchedAt; // 0 until the client fetched it
+
+        Completed(Outcome outcome, long bytes, long finishedAt) {
+            this.outcome = outcome;
+            this.bytes = bytes;
+            this.finishedAt = finishedAt;
+        }
+    }
+
+    // rough JVM sizes: the result record with its map, and one map entry (node, String key, Long value)
+    private static final long RESULT_BYTES = 160;
+    private static final long VARIABLE_BYTES = 120;
+    // a profile: two longs per instruction, and a record with its name per function called
+    private static final long PROFILE_INSTRUCTION_BYTES = 16;
+    private static final long PROFILE_FUNCTION_BYTES = 120;
+    private static final long SWEEP_PERIOD_MILLIS = 10_000;
+
+    private final Config config;
+    private final ConcurrentHashMap<String, Pending> pendingRuns = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Completed> completedRuns = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder evictedFetched = new LongAdder();
+    private final LongAdder evictedExpired = new LongAdder();
+    private final LongAdder evictedForMemory = new LongAdder();
+    private final ScheduledExecutorService sweeper;
+
+    public RunRetention(Config config) {
+        this.config = config;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("run-retention").daemon(true).factory());
+    }
+
+    /** Starts the periodic {@link #sweep()}; call once, after construction. */
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_PERIOD_MILLIS, SWEEP_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void addPending(String runId, Future<RunResult> future) {
+        pendingRuns.put(runId, new Pending(future));
+    }
+
+    /**
+     * The outcome of a finished run, marked as fetched; null while it is still running
+     * or when {@code runId} is unknown (see {@link #isPending}).
+     */
+    public Outcome fetch(String runId) {
+        Completed done = completedRuns.get(runId);
+        if (done == null) {
+            Pending pending = pendingRuns.get(runId);
+            if (pending == null) {
+                done = completedRuns.get(runId); // settled meanwhile, or unknown
+                if (done == null) return null;
+            } else if (!pending.future.isDone()) {
+                return null;
+            } else {
+                done = settle(runId, pending);
+            }
+        }
+        if (done.fetchedAt == 0) done.fetchedAt = System.currentTimeMillis();
+        return done.outcome;
+    }
+
+    /**
+     * Waits until the run finished or {@code timeoutMillis} passed; returns at once for a run
+     * that already finished or is unknown. The run's own failure is left to {@link #fetch}.
+     */
+    public void awaitDone(String runId, long timeoutMillis) throws InterruptedException {
+        Pending pending = pendingRuns.get(runId);
+        if (pending == null || timeoutMillis <= 0) return;
+        try {
+            pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CancellationException | TimeoutException ignored) {
+            // finished with an error, or still running: the caller fetches to tell which
+        }
+    }
+
+    /** True while the run has not been settled yet, i.e. a later {@link #fetch} can still return it. */
+    public boolean isPending(String runId) {
+        return pendingRuns.containsKey(runId);
+    }
+
+    // moves a finished run to completedRuns; the result is put there before the future is
+    // removed, so a concurrent fetch always finds one of them
+    private Completed settle(String runId, Pending pending) {
+        Outcome outcome;
+        try {
+            outcome = new Outcome(pending.future.get(), null);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            outcome = new Outcome(null, cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = new Outcome(null, "Interrupted");
+        } catch (Exception e) {
+            outcome = new Outcome(null, e.getMessage());
+        }
+        Completed fresh = new Completed(outcome, estimateBytes(outcome), System.currentTimeMillis());
+        Completed done = completedRuns.putIfAbsent(runId, fresh);
+        if (done == null) {
+            done = fresh;
+            retainedBytes.addAndGet(fresh.bytes);
+        }
+        pendingRuns.remove(runId, pending);
+        if (retainedBytes.get() > config.maxBytes()) evictForMemory();
+        return done;
+    }
+
+    /** Settles finished runs and drops what is past its TTL; runs every few seconds on its own thread once started. */
+    public void sweep() {
+        try {
+            for (Map.Entry<String, Pending> e : pendingRuns.entrySet()) {
+                if (e.getValue().future.isDone()) settle(e.getKey(), e.getValue());
+            }
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Completed> e : completedRuns.entrySet()) {
+                Completed done = e.getValue();
+                long fetchedAt = done.fetchedAt;
+                if (fetchedAt != 0 && now - fetchedAt >= config.fetchedTtlMillis()) {
+                    if (remove(e.getKey(), done)) evictedFetched.increment();
+                } else if (fetchedAt == 0 && now - done.finishedAt >= config.ttlMillis()) {
+                    if (remove(e.getKey(), done)) evictedExpired.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            // a failed sweep must not cancel the next ones
+            System.err.println("Run retention sweep failed: " + e);
+        }
+    }
+
+    private synchronized void evictForMemory() {
+        if (retainedBytes.get() <= config.maxBytes()) return;
+        List<Map.Entry<String, Completed>> oldestFirst = new ArrayList<>(completedRuns.entrySet());
+        oldestFirst.sort(Comparator.comparingLong(e -> e.getValue().finishedAt));
+        for (Map.Entry<String, Completed> e : oldestFirst) {
+            if (retainedBytes.get() <= config.maxBytes()) break;
+            if (remove(e.getKey(), e.getValue())) evictedForMemory.increment();
+        }
+    }
+
+    private boolean remove(String runId, Completed done) {
+        if (!completedRuns.remove(runId, done)) return false;
+        retainedBytes.addAndGet(-done.bytes);
+        return true;
+    }
+
+    static long estimateBytes(Outcome outcome) {
+        RunResult result = outcome.result();
+        if (result == null) {
+            return RESULT_BYTES + (outcome.error() == null ? 0 : 2L * outcome.error().length());
+        }
+        long bytes = RESULT_BYTES;
+        if (result.variables() != null) {
+            for (String name : result.variables().keySet()) {
+                bytes += VARIABLE_BYTES + name.length();
+            }
+        }
+        RunProfile profile = result.profile();
+        if (profile != null) {
+            bytes += PROFILE_INSTRUCTION_BYTES * profile.size();
+            for (RunProfile.FunctionProfile f : profile.functions()) {
+                bytes += PROFILE_FUNCTION_BYTES + f.name().length();
+            }
+        }
+        return bytes;
+    }
+
+    public Stats stats() {
+        return new Stats(pendingRuns.size(), completedRuns.size(), retainedBytes.get(), config.maxBytes(),
+                evictedFetched.sum(), evictedExpired.sum(), evictedForMemory.sum());
+    }
+
+    public Config getConfig() { return config; }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,134 @@
+import core.engine.EngineImpl;
+import dto.*;
+import logic.execution.ProgramExecutorImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Allocation-rate regression test for the interpreter step loop.
+ * Runs a DECREASE/INCREASE/JNZ loop with a small and a large input and
+ * measures the bytes this thread allocated in each run; the difference divided
+ * by the extra steps must be 0 bytes per step (setup cost cancels out).
+ */
+public class AllocationTest {
+
+    static final String SEP = "-".repeat(65);
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    // y = x1, one iteration = DECREASE x1, INCREASE y, INCREASE z1, DECREASE z1, JNZ x1 (5 steps).
+    // The z1 round trip keeps LoopSummary from collapsing the loop, so the step loop itself is measured.
+    static final String COPY_LOOP = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <S-Program name="CopyLoop">
+                <S-Instructions>
+                    <S-Instruction type="basic" name="DECREASE">
+                        <S-Variable>x1</S-Variable>
+                        <S-Label>L1</S-Label>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="INCREASE">
+                        <S-Variable>y</S-Variable>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="INCREASE">
+                        <S-Variable>z1</S-Variable>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="DECREASE">
+                        <S-Variable>z1</S-Variable>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="JUMP_NOT_ZERO">
+                        <S-Variable>x1</S-Variable>
+                        <S-Instruction-Arguments>
+                            <S-Instruction-Argument name="JNZLabel" value="L1"/>
+                        </S-Instruction-Arguments>
+                    </S-Instruction>
+                </S-Instructions>
+            </S-Program>
+            """;
+
+    static final long SMALL = 1_000;
+    static final long LARGE = 1_000_000;
+    static final int WARMUP_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        print("=================================================================");
+        print("  S-EMULATOR1  ALLOCATION TEST");
+        print("=================================================================");
+
+        EngineImpl engine = new EngineImpl();
+        LoadReport report = engine.loadProgramFromContent(COPY_LOOP);
+        if (!report.ok()) {
+            print("[LOAD FAILED] " + report.errors());
+            System.exit(1);
+        }
+
+        checkBytesPerStep("run()", inputs -> {
+            ProgramExecutorImpl exe = new ProgramExecutorImpl(engine.getCurrentProgram());
+            return exe.run(inputs);
+        });
+
+        checkBytesPerStep("runOneStep()", inputs -> {
+            ProgramExecutorImpl exe = new ProgramExecutorImpl(engine.getCurrentProgram());
+            exe.init(inputs);
+            while (exe.runOneStep() != -1) { }
+            return exe.variablesState().get("y");
+        });
+
+        checkBytesPerStep("init() + resume()", inputs -> {
+            ProgramExecutorImpl exe = new ProgramExecutorImpl(engine.getCurrentProgram());
+            exe.init(inputs);
+            exe.resume();
+            return exe.variablesState().get("y");
+        });
+
+        print("");
+        print("=================================================================");
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("=================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    interface Run {
+        long apply(List<Long> inputs);
+    }
+
+    static void checkBytesPerStep(String label, Run run) {
+        print("");
+        print(SEP);
+        print("LOOP: " + label);
+        print(SEP);
+
+        // let the JIT settle so the measurement sees the steady state
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run.apply(List.of(LARGE));
+        }
+
+        long small = allocatedBytes(run, SMALL);
+        long large = allocatedBytes(run, LARGE);
+        long extraSteps = 5 * (LARGE - SMALL);
+        double perStep = (double) (large - small) / extraSteps;
+
+        boolean ok = perStep < 1.0;
+        totalTests++;
+        if (ok) passed++; else failed++;
+        print(String.format("  %s  small=%d B  large=%d B  per-step=%.3f B  %s",
+                ok ? "PASS" : "FAIL", small, large, perStep, ok ? "" : "<-- ALLOCATES"));
+    }
+
+    static long allocatedBytes(Run run, long x1) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        List<Long> inputs = List.of(x1);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long y = run.apply(inputs);
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        if (y != x1) {
+            throw new IllegalStateException("wrong result: y=" + y + " for x1=" + x1);
+        }
+        return after - before;
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
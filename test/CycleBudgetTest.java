@@ -0,0 +1,211 @@
+import core.engine.EngineImpl;
+import dto.*;
+import logic.execution.FunctionCallCache;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Cycle-budget test for Engine.run.
+ * A program that never ends, directly or inside a QUOTE call, must stop as
+ * BUDGET_EXHAUSTED right at its budget on both backends, and a program that needs
+ * exactly its budget must still complete with the same result as an unlimited run.
+ * A run cut by its budget must end with the cycles and variables of stepping through the
+ * same program one instruction at a time (loop summaries and fused steps included), on
+ * both backends.
+ */
+public class CycleBudgetTest {
+
+    static final String SEP = "-".repeat(65);
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    static final long BUDGET = 100_000;
+    // the most any single instruction here can go past the budget
+    static final long MAX_OVERSHOOT = 10;
+
+    // L1: INCREASE y, JNZ y L1 - y never gets back to 0
+    static final String FOREVER_BODY = """
+                    <S-Instruction type="basic" name="INCREASE">
+                        <S-Variable>y</S-Variable>
+                        <S-Label>L1</S-Label>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="JUMP_NOT_ZERO">
+                        <S-Variable>y</S-Variable>
+                        <S-Instruction-Arguments>
+                            <S-Instruction-Argument name="JNZLabel" value="L1"/>
+                        </S-Instruction-Arguments>
+                    </S-Instruction>
+            """;
+
+    // L1: DECREASE x1, INCREASE y, JNZ x1 L1 - a counting loop the executors apply at once
+    static final String COUNT_DOWN = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <S-Program name="CountDown">
+                <S-Instructions>
+                    <S-Instruction type="basic" name="DECREASE">
+                        <S-Variable>x1</S-Variable>
+                        <S-Label>L1</S-Label>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="INCREASE">
+                        <S-Variable>y</S-Variable>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="JUMP_NOT_ZERO">
+                        <S-Variable>x1</S-Variable>
+                        <S-Instruction-Arguments>
+                            <S-Instruction-Argument name="JNZLabel" value="L1"/>
+                        </S-Instruction-Arguments>
+                    </S-Instruction>
+                </S-Instructions>
+            </S-Program>
+            """;
+
+    static final String FOREVER = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <S-Program name="Forever">
+                <S-Instructions>
+            """ + FOREVER_BODY + """
+                </S-Instructions>
+            </S-Program>
+            """;
+
+    // y = Forever(x1), the endless loop is inside the called function
+    static final String QUOTE_FOREVER = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <S-Program name="QuoteForever">
+                <S-Instructions>
+                    <S-Instruction type="synthetic" name="QUOTE">
+                        <S-Variable>y</S-Variable>
+                        <S-Instruction-Arguments>
+                            <S-Instruction-Argument name="functionName" value="Forever"/>
+                            <S-Instruction-Argument name="functionArguments" value="x1"/>
+                        </S-Instruction-Arguments>
+                    </S-Instruction>
+                </S-Instructions>
+                <S-Functions>
+                    <S-Function name="Forever" user-string="Forever">
+                        <S-Instructions>
+            """ + FOREVER_BODY + """
+                        </S-Instructions>
+                    </S-Function>
+                </S-Functions>
+            </S-Program>
+            """;
+
+    public static void main(String[] args) throws Exception {
+        print("=================================================================");
+        print("  S-EMULATOR1  CYCLE BUDGET TEST");
+        print("=================================================================");
+
+        for (ExecutionBackend backend : ExecutionBackend.values()) {
+            print("");
+            print(SEP);
+            print("BACKEND: " + backend);
+            print(SEP);
+
+            checkExhausted("endless loop", load(FOREVER), 0, backend);
+            checkExhausted("endless QUOTE L0", load(QUOTE_FOREVER), 0, backend);
+            checkExhausted("endless QUOTE L1", load(QUOTE_FOREVER), 1, backend);
+
+            String dir = args.length > 0 ? args[0] : "test";
+            for (String name : List.of("minus", "divide", "quotation", "self-composition")) {
+                EngineImpl engine = load(Files.readString(Path.of(dir, name + ".xml")));
+                checkExactBudget(name, engine, 0, backend);
+            }
+        }
+
+        print("");
+        print(SEP);
+        print("CUT RUNS vs STEPPING");
+        print(SEP);
+        String dir = args.length > 0 ? args[0] : "test";
+        for (ExecutionBackend backend : ExecutionBackend.values()) {
+            String tag = " " + backend.name().charAt(0);
+            checkLikeStepping("count-down" + tag, load(COUNT_DOWN), 0, List.of(1000L), backend);
+            for (String name : List.of("minus", "divide", "quotation", "self-composition")) {
+                EngineImpl engine = load(Files.readString(Path.of(dir, name + ".xml")));
+                int max = engine.getMaxExpandLevel();
+                checkLikeStepping(name + " L0" + tag, engine, 0, List.of(7L, 3L), backend);
+                checkLikeStepping(name + " L" + max + tag, engine, max, List.of(7L, 3L), backend);
+            }
+        }
+
+        // far more iterations than the budget: the compiled loop must not run them all
+        RunResult cut = load(COUNT_DOWN).run(0, List.of(1_000_000L), new RunOptions(ExecutionBackend.BYTECODE, 1000));
+        report(cut.outcome() == RunOutcome.BUDGET_EXHAUSTED && cut.totalCycles() == 1000 && cut.y() == 250,
+                String.format("%-22s y=%d cycles=%d %s", "count-down 1e6 B", cut.y(), cut.totalCycles(), cut.outcome()));
+
+        print("");
+        print("=================================================================");
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("=================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    static EngineImpl load(String xml) {
+        EngineImpl engine = new EngineImpl();
+        LoadReport report = engine.loadProgramFromContent(xml);
+        if (!report.ok()) {
+            throw new IllegalStateException("load failed: " + report.errors());
+        }
+        return engine;
+    }
+
+    static void checkExhausted(String label, EngineImpl engine, int level, ExecutionBackend backend) {
+        RunResult r = engine.run(level, List.of(3L), new RunOptions(backend, BUDGET));
+        boolean ok = r.outcome() == RunOutcome.BUDGET_EXHAUSTED
+                && r.totalCycles() >= BUDGET && r.totalCycles() - BUDGET <= MAX_OVERSHOOT;
+        report(ok, String.format("%-22s outcome=%s cycles=%d", label, r.outcome(), r.totalCycles()));
+    }
+
+    // the cycles of an unlimited run are exactly enough, one less is not; both with the
+    // function calls really run (cold memo) and answered by the memo of the run before
+    static void checkExactBudget(String label, EngineImpl engine, int level, ExecutionBackend backend) {
+        List<Long> inputs = List.of(7L, 3L);
+        FunctionCallCache.shared().clear();
+        RunResult free = engine.run(level, inputs, new RunOptions(backend));
+        for (boolean cold : new boolean[] { true, false }) {
+            if (cold) FunctionCallCache.shared().clear();
+            RunResult exact = engine.run(level, inputs, new RunOptions(backend, free.totalCycles()));
+            if (cold) FunctionCallCache.shared().clear();
+            RunResult less = engine.run(level, inputs, new RunOptions(backend, free.totalCycles() - 1));
+            boolean ok = free.outcome() == RunOutcome.COMPLETED
+                    && exact.outcome() == RunOutcome.COMPLETED
+                    && exact.y() == free.y() && exact.totalCycles() == free.totalCycles()
+                    && less.outcome() == RunOutcome.BUDGET_EXHAUSTED;
+            report(ok, String.format("%-22s cycles=%d exact=%s less=%s", label + (cold ? " cold" : " memo"),
+                    free.totalCycles(), exact.outcome(), less.outcome()));
+        }
+    }
+
+    // for budgets all along an unlimited run: the run stops with the cycles, outcome and
+    // variables a debug session stepping the same program under the same budget ends with
+    static void checkLikeStepping(String label, EngineImpl engine, int level, List<Long> inputs,
+                                  ExecutionBackend backend) {
+        RunOptions unlimited = new RunOptions(backend);
+        long free = engine.run(level, inputs, unlimited).totalCycles();
+        int budgets = 0, wrong = 0;
+        for (long budget = 1; budget < free; budget += Math.max(1, free / 97)) {
+            FunctionCallCache.shared().clear();
+            RunResult run = engine.run(level, inputs, new RunOptions(backend, budget));
+            FunctionCallCache.shared().clear();
+            engine.startDebug(level, inputs);
+            engine.setDebugCycleBudget(budget);
+            engine.debugRunSteps(Long.MAX_VALUE);
+            boolean same = run.outcome() == engine.getLastOutcome()
+                    && run.totalCycles() == engine.getCycels()
+                    && run.variables().equals(engine.debugVariables());
+            engine.endDebug();
+            budgets++;
+            if (!same) wrong++;
+        }
+        report(wrong == 0, String.format("%-22s %d budgets up to %d cycles, wrong=%d", label, budgets, free, wrong));
+    }
+
+    static void report(boolean ok, String line) {
+        totalTests++;
+        if (ok) passed++; else failed++;
+        print(String.format("  %s  %s%s", ok ? "PASS" : "FAIL", line, ok ? "" : "  <-- WRONG"));
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
@@ -0,0 +1,163 @@
+import core.engine.EngineImpl;
+import core.program.Function;
+import dto.*;
+import logic.execution.FunctionCallCache;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Test of the function call memo (FunctionCallCache).
+ * A call answered by the memo must give the run the same y, variables and cycles as running
+ * it; two programs with a function of the same name must not see each other's calls; and
+ * the cache must stay within its limit while threads fill it and read it at once.
+ */
+public class FunctionCallCacheTest {
+
+    static final String SEP = "-".repeat(65);
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    // y = Add(x1), where Add makes y the number of INCREASE lines in its body
+    static String addProgram(int increases) {
+        String body = """
+                            <S-Instruction type="basic" name="INCREASE">
+                                <S-Variable>y</S-Variable>
+                            </S-Instruction>
+                """.repeat(increases);
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <S-Program name="UsesAdd">
+                    <S-Instructions>
+                        <S-Instruction type="synthetic" name="QUOTE">
+                            <S-Variable>y</S-Variable>
+                            <S-Instruction-Arguments>
+                                <S-Instruction-Argument name="functionName" value="Add"/>
+                                <S-Instruction-Argument name="functionArguments" value="x1"/>
+                            </S-Instruction-Arguments>
+                        </S-Instruction>
+                    </S-Instructions>
+                    <S-Functions>
+                        <S-Function name="Add" user-string="Add">
+                            <S-Instructions>
+                """ + body + """
+                            </S-Instructions>
+                        </S-Function>
+                    </S-Functions>
+                </S-Program>
+                """;
+    }
+
+    public static void main(String[] args) throws Exception {
+        print("=================================================================");
+        print("  S-EMULATOR1  FUNCTION CALL MEMO TEST");
+        print("=================================================================");
+
+        String dir = args.length > 0 ? args[0] : "test";
+        FunctionCallCache cache = FunctionCallCache.shared();
+
+        print("");
+        print(SEP);
+        print("HITS vs CALLS");
+        print(SEP);
+        for (String name : List.of("quotation", "self-composition", "divide")) {
+            EngineImpl engine = load(Files.readString(Path.of(dir, name + ".xml")));
+            for (ExecutionBackend backend : ExecutionBackend.values()) {
+                cache.clear();
+                RunResult called = engine.run(0, List.of(7L, 3L), new RunOptions(backend));
+                long missesCold = cache.misses();
+                RunResult memo = engine.run(0, List.of(7L, 3L), new RunOptions(backend));
+                boolean ok = missesCold > 0 && cache.hits() > 0 && memo.equals(called);
+                report(ok, String.format("%-22s y=%d cycles=%d misses=%d hits=%d", name + " " + backend,
+                        memo.y(), memo.totalCycles(), missesCold, cache.hits()));
+            }
+        }
+
+        print("");
+        print(SEP);
+        print("SAME NAME, OTHER PROGRAM");
+        print(SEP);
+        cache.clear();
+        EngineImpl addOne = load(addProgram(1));
+        EngineImpl addTwo = load(addProgram(2));
+        long one = addOne.run(0, List.of(5L)).y();
+        long two = addTwo.run(0, List.of(5L)).y();
+        long oneAgain = addOne.run(0, List.of(5L)).y();
+        report(one == 1 && two == 2 && oneAgain == 1,
+                String.format("%-22s Add(5) = %d / %d / %d", "engines", one, two, oneAgain));
+
+        // lists are told apart by identity, equal contents or not
+        List<Function> first = new ArrayList<>();
+        List<Function> second = new ArrayList<>();
+        FunctionCallCache own = new FunctionCallCache(16);
+        own.put(first, "F", new long[] { 5 }, new FunctionCallCache.Result(1, 3));
+        own.put(second, "F", new long[] { 5 }, new FunctionCallCache.Result(2, 6));
+        FunctionCallCache.Result a = own.get(first, "F", new long[] { 5 });
+        FunctionCallCache.Result b = own.get(second, "F", new long[] { 5 });
+        report(a != null && b != null && a.value() == 1 && b.value() == 2 && a.cycles() == 3 && b.cycles() == 6,
+                String.format("%-22s %s / %s", "function lists", a, b));
+
+        print("");
+        print(SEP);
+        print("SIZE LIMIT");
+        print(SEP);
+        checkLimit(1);
+        checkLimit(8);
+
+        print("");
+        print("=================================================================");
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("=================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    static EngineImpl load(String xml) {
+        EngineImpl engine = new EngineImpl();
+        LoadReport report = engine.loadProgramFromContent(xml);
+        if (!report.ok()) {
+            throw new IllegalStateException("load failed: " + report.errors());
+        }
+        return engine;
+    }
+
+    // 'threads' threads put 3 x MAX_ENTRIES calls each and keep reading one hot entry: the
+    // size never gets more than an eighth over the limit while they do (puts wait for the
+    // sweep past that), it is within the limit once they are done, and the hot entry is kept
+    static void checkLimit(int threads) throws Exception {
+        FunctionCallCache cache = new FunctionCallCache(FunctionCallCache.MAX_ENTRIES);
+        List<Function> functions = new ArrayList<>();
+        cache.put(functions, "Hot", new long[] { 0 }, new FunctionCallCache.Result(42, 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> largest = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            largest.add(pool.submit(() -> {
+                int max = 0;
+                for (int i = 0; i < 3 * FunctionCallCache.MAX_ENTRIES; i++) {
+                    cache.put(functions, "F", new long[] { thread, i }, new FunctionCallCache.Result(i, 1));
+                    cache.get(functions, "Hot", new long[] { 0 });
+                    max = Math.max(max, cache.size());
+                }
+                return max;
+            }));
+        }
+        int max = 0;
+        for (Future<Integer> f : largest) {
+            max = Math.max(max, f.get());
+        }
+        pool.shutdown();
+        boolean ok = cache.size() <= FunctionCallCache.MAX_ENTRIES
+                && max <= FunctionCallCache.MAX_ENTRIES + FunctionCallCache.MAX_ENTRIES / 8 + threads
+                && cache.get(functions, "Hot", new long[] { 0 }) != null;
+        report(ok, String.format("%-22s size=%d largest seen=%d limit=%d", threads + " thread(s)",
+                cache.size(), max, FunctionCallCache.MAX_ENTRIES));
+    }
+
+    static void report(boolean ok, String line) {
+        totalTests++;
+        if (ok) passed++; else failed++;
+        print(String.format("  %s  %s%s", ok ? "PASS" : "FAIL", line, ok ? "" : "  <-- WRONG"));
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
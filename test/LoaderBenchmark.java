@@ -0,0 +1,223 @@
+import adapter.translate.JaxbLoader;
+import adapter.translate.StaxProgramLoader;
+import adapter.xml.generated.*;
+import jakarta.xml.bind.JAXBContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Load-time benchmark for program XML.
+ * Compares a JAXBContext built per load (the old JaxbLoader), the shared-context
+ * JaxbLoader and the StAX StaxProgramLoader on every test/*.xml file and on two
+ * synthetic 50k-instruction programs. Every StAX tree is checked against the JAXB
+ * tree of the same file; a mismatch fails the run.
+ *
+ * Usage: java LoaderBenchmark [test-dir]
+ */
+public class LoaderBenchmark {
+
+    static final String SEP = "-".repeat(90);
+    static final int SYNTHETIC_INSTRUCTIONS = 50_000;
+    static final long MIN_NANOS = 300_000_000L; // measure each loader for at least this long
+    static final int MIN_ROUNDS = 3;
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    interface Loader {
+        SProgram load(String xml) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Path.of(args.length > 0 ? args[0] : "test");
+
+        print("==========================================================================================");
+        print("  S-EMULATOR1  LOADER BENCHMARK  (average time per load)");
+        print("==========================================================================================");
+        print(String.format("  %-28s %8s %16s %16s %16s  %s", "program", "KB", "JAXB per load", "JaxbLoader", "StAX", "same"));
+        print(SEP);
+
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.toString().endsWith(".xml")).sorted().toList();
+        }
+        for (Path file : files) {
+            bench(file.getFileName().toString(), Files.readString(file));
+        }
+        bench("synthetic basic " + SYNTHETIC_INSTRUCTIONS, synthetic(SYNTHETIC_INSTRUCTIONS, false));
+        bench("synthetic QUOTE " + SYNTHETIC_INSTRUCTIONS, synthetic(SYNTHETIC_INSTRUCTIONS, true));
+
+        print(SEP);
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("==========================================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void bench(String name, String xml) {
+        Loader perLoad = content -> (SProgram) JAXBContext.newInstance(SProgram.class).createUnmarshaller()
+                .unmarshal(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Loader shared = JaxbLoader::loadFromContent;
+        Loader stax = StaxProgramLoader::loadFromContent;
+
+        String jaxbTree = describe(perLoad, xml);
+        String staxTree = describe(stax, xml);
+        boolean same = jaxbTree.equals(staxTree);
+
+        totalTests++;
+        if (same) passed++; else failed++;
+        print(String.format("  %-28s %8.1f %16s %16s %16s  %s",
+                name, xml.length() / 1024.0, time(perLoad, xml), time(shared, xml), time(stax, xml),
+                same ? "yes" : "NO  <-- TREES DIFFER"));
+        if (!same) {
+            print("      JAXB: " + abbreviate(jaxbTree));
+            print("      StAX: " + abbreviate(staxTree));
+        }
+    }
+
+    static String time(Loader loader, String xml) {
+        try {
+            loader.load(xml); // warm up
+            int rounds = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                loader.load(xml);
+                rounds++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MIN_NANOS || rounds < MIN_ROUNDS);
+            double micros = elapsed / 1_000.0 / rounds;
+            return micros >= 10_000 ? String.format("%.1f ms", micros / 1_000) : String.format("%.1f us", micros);
+        } catch (Exception e) {
+            return "error";
+        }
+    }
+
+    // the whole tree as text, or the failure, so both loaders can be compared on bad files too
+    static String describe(Loader loader, String xml) {
+        SProgram p;
+        try {
+            p = loader.load(xml);
+        } catch (Exception e) {
+            return "error";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("program ").append(p.getName());
+        describe(sb, p.getInstructions());
+        if (p.getSFunctions() == null) {
+            sb.append(" functions null");
+        } else {
+            for (SFunction f : p.getSFunctions()) {
+                sb.append(" function ").append(f.getName()).append('|').append(f.getUserString());
+                describe(sb, f.getSInstructions());
+            }
+        }
+        return sb.toString();
+    }
+
+    static void describe(StringBuilder sb, List<SInstruction> instructions) {
+        if (instructions == null) {
+            sb.append(" [null]");
+            return;
+        }
+        sb.append(" [");
+        for (SInstruction i : instructions) {
+            sb.append(i.getType()).append(':').append(i.getName())
+                    .append(" label=").append(i.getLabel())
+                    .append(" var=").append(i.getVariable());
+            if (i.getArguments() == null) {
+                sb.append(" args=null");
+            } else {
+                for (SInstructionArgument a : i.getArguments()) {
+                    sb.append(' ').append(a.getName()).append('=').append(a.getValue());
+                }
+            }
+            sb.append("; ");
+        }
+        sb.append(']');
+    }
+
+    // a program of 'count' instructions; with 'functions' every fourth one is a QUOTE of a helper
+    static String synthetic(int count, boolean functions) {
+        StringBuilder sb = new StringBuilder(count * 160);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<S-Program name=\"Synthetic\">\n  <S-Instructions>\n");
+        for (int i = 0; i < count; i++) {
+            int label = i / 8 + 1;
+            switch (functions ? i % 4 : i % 3) {
+                case 0 -> sb.append("    <S-Instruction type=\"basic\" name=\"INCREASE\">\n")
+                        .append("      <S-Label>L").append(label).append("</S-Label>\n")
+                        .append("      <S-Variable>z").append(i % 50 + 1).append("</S-Variable>\n")
+                        .append("    </S-Instruction>\n");
+                case 1 -> sb.append("    <S-Instruction type=\"basic\" name=\"DECREASE\">\n")
+                        .append("      <S-Variable>z").append(i % 50 + 1).append("</S-Variable>\n")
+                        .append("    </S-Instruction>\n");
+                case 2 -> sb.append("    <S-Instruction type=\"basic\" name=\"JUMP_NOT_ZERO\">\n")
+                        .append("      <S-Variable>z").append(i % 50 + 1).append("</S-Variable>\n")
+                        .append("      <S-Instruction-Arguments>\n")
+                        .append("        <S-Instruction-Argument name=\"JNZLabel\" value=\"L").append(label).append("\"/>\n")
+                        .append("      </S-Instruction-Arguments>\n")
+                        .append("    </S-Instruction>\n");
+                default -> sb.append("    <S-Instruction type=\"synthetic\" name=\"QUOTE\">\n")
+                        .append("      <S-Variable>z").append(i % 50 + 1).append("</S-Variable>\n")
+                        .append("      <S-Instruction-Arguments>\n")
+                        .append("        <S-Instruction-Argument name=\"functionName\" value=\"Minus\"/>\n")
+                        .append("        <S-Instruction-Argument name=\"functionArguments\" value=\"(Successor,x1),x2\"/>\n")
+                        .append("      </S-Instruction-Arguments>\n")
+                        .append("    </S-Instruction>\n");
+            }
+        }
+        sb.append("  </S-Instructions>\n");
+        if (functions) {
+            sb.append("""
+                      <S-Functions>
+                        <S-Function name="Successor" user-string="S">
+                          <S-Instructions>
+                            <S-Instruction type="synthetic" name="ASSIGNMENT">
+                              <S-Variable>y</S-Variable>
+                              <S-Instruction-Arguments>
+                                <S-Instruction-Argument name="assignedVariable" value="x1"/>
+                              </S-Instruction-Arguments>
+                            </S-Instruction>
+                            <S-Instruction type="basic" name="INCREASE">
+                              <S-Variable>y</S-Variable>
+                            </S-Instruction>
+                          </S-Instructions>
+                        </S-Function>
+                        <S-Function name="Minus" user-string="-">
+                          <S-Instructions>
+                            <S-Instruction type="synthetic" name="ASSIGNMENT">
+                              <S-Variable>y</S-Variable>
+                              <S-Instruction-Arguments>
+                                <S-Instruction-Argument name="assignedVariable" value="x1"/>
+                              </S-Instruction-Arguments>
+                            </S-Instruction>
+                            <S-Instruction type="basic" name="DECREASE">
+                              <S-Label>L1</S-Label>
+                              <S-Variable>y</S-Variable>
+                            </S-Instruction>
+                            <S-Instruction type="basic" name="DECREASE">
+                              <S-Variable>x2</S-Variable>
+                            </S-Instruction>
+                            <S-Instruction type="basic" name="JUMP_NOT_ZERO">
+                              <S-Variable>x2</S-Variable>
+                              <S-Instruction-Arguments>
+                                <S-Instruction-Argument name="JNZLabel" value="L1"/>
+                              </S-Instruction-Arguments>
+                            </S-Instruction>
+                          </S-Instructions>
+                        </S-Function>
+                      </S-Functions>
+                    """);
+        }
+        sb.append("</S-Program>\n");
+        return sb.toString();
+    }
+
+    static String abbreviate(String s) {
+        return s.length() <= 300 ? s : s.substring(0, 300) + "...";
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
@@ -0,0 +1,92 @@
+import core.engine.EngineImpl;
+import dto.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Profiler test.
+ * A profiled run must compute what an unprofiled one does, its per-instruction cycles must add
+ * up to the run's total, and every instruction must have run as many times as stepping through
+ * the same run in the debugger reaches it (loop summaries and fused ops count every step).
+ */
+public class ProfileTest {
+
+    static final String SEP = "-".repeat(65);
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    // debugger steps counted at most; longer runs only get the totals checked
+    static final int MAX_STEPS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        print("=================================================================");
+        print("  S-EMULATOR1  PROFILE TEST");
+        print("=================================================================");
+
+        String dir = args.length > 0 ? args[0] : "test";
+        List<Long> inputs = List.of(7L, 3L);
+        for (String name : List.of("minus", "divide", "quotation", "self-composition")) {
+            EngineImpl engine = new EngineImpl();
+            LoadReport report = engine.loadProgramFromContent(Files.readString(Path.of(dir, name + ".xml")));
+            if (!report.ok()) throw new IllegalStateException(name + ": load failed: " + report.errors());
+            print("");
+            print(SEP);
+            print(name.toUpperCase());
+            print(SEP);
+            for (int level : new int[] { 0, engine.getMaxExpandLevel() }) {
+                check(name + " L" + level, engine, level, inputs);
+            }
+        }
+
+        print("");
+        print("=================================================================");
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("=================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void check(String label, EngineImpl engine, int level, List<Long> inputs) {
+        RunResult plain = engine.run(level, inputs);
+        RunResult profiled = engine.run(level, inputs, new RunOptions(ExecutionBackend.INTERPRETER).withProfile(true));
+        RunProfile profile = profiled.profile();
+        boolean same = profile != null
+                && plain.y() == profiled.y()
+                && plain.totalCycles() == profiled.totalCycles()
+                && plain.variables().equals(profiled.variables());
+        report(same && profile.totalCycles() == profiled.totalCycles(),
+                String.format("%-28s cycles=%d profiled=%d functions=%s", label + " totals",
+                        profiled.totalCycles(), profile == null ? -1 : profile.totalCycles(),
+                        profile == null ? List.of() : profile.functions().stream().map(RunProfile.FunctionProfile::name).toList()));
+        if (profile == null) return;
+
+        long[] reached = new long[profile.size()];
+        Pair<Map<String, Long>, Integer> start = engine.startDebug(level, inputs);
+        int index = start.getValue();
+        int steps = 0;
+        while (index != -1 && steps < MAX_STEPS) {
+            reached[index]++;
+            index = engine.oneStepInDebug().getValue();
+            steps++;
+        }
+        engine.endDebug();
+        if (index != -1) {
+            print(String.format("  SKIP  %-28s more than %d steps", label + " counts", MAX_STEPS));
+            return;
+        }
+        int wrong = 0;
+        for (int i = 0; i < reached.length; i++) {
+            if (reached[i] != profile.executions()[i]) wrong++;
+        }
+        List<Integer> hot = profile.hotSpots(3);
+        report(wrong == 0, String.format("%-28s %d instructions, %d steps, wrong=%d hottest=%s",
+                label + " counts", reached.length, steps, wrong, hot));
+    }
+
+    static void report(boolean ok, String line) {
+        totalTests++;
+        if (ok) passed++; else failed++;
+        print(String.format("  %s  %s%s", ok ? "PASS" : "FAIL", line, ok ? "" : "  <-- WRONG"));
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}
@@ -9,16 +9,20 @@ import java.util.*;
  * Compact test runner for S-Emulator1.
  * Shows: load status, expand level/size summary, run results.
  * Does NOT print individual instruction details.
+ * Every case runs with a cycle budget, a program that does not end within it is
+ * reported as BUDGET_EXHAUSTED (and fails) instead of holding up the rest of the suite.
  */
 public class TestRunner {
 
     static final String SEP = "-".repeat(65);
     static int totalTests = 0, passed = 0, failed = 0;
     static final Long EXPECT_ERROR = Long.MIN_VALUE;
+    // far more than any case here needs to finish
+    static final long BUDGET = 1_000_000;
 
     public static void main(String[] args) {
-        String testDir = args.length > 0 ? args[0]
-                : "C:\\Users\\shayt\\Documents\\Computer Science\\Java\\Exercises\\S-Emulator1\\test";
+        // program files, relative to the project root unless given
+        String testDir = args.length > 0 ? args[0] : "test";
 
         print("=================================================================");
         print("  S-EMULATOR1  TEST SUITE");
@@ -145,6 +149,19 @@ public class TestRunner {
     static Object[][] cases(Object[]... cs) { return cs; }
     static void print(String s) { System.out.println(s); System.out.flush(); }
 
+    // runs the program one debug step at a time up to the end, or until BUDGET is used up
+    static RunResult stepThrough(Path xmlPath, int level, List<Long> inputs) {
+        EngineImpl engine = new EngineImpl();
+        engine.loadProgram(xmlPath);
+        Pair<Map<String, Long>, Integer> state = engine.startDebug(level, inputs);
+        engine.setDebugCycleBudget(BUDGET);
+        while (state.getValue() != -1 && engine.getLastOutcome() != RunOutcome.BUDGET_EXHAUSTED) {
+            state = engine.oneStepInDebug();
+        }
+        Map<String, Long> variables = state.getKey();
+        return new RunResult(variables.getOrDefault("y", 0L), variables, engine.getCycels(), engine.getLastOutcome());
+    }
+
     // ─── Main test runner ──────────────────────────────────────────────────────
     @SuppressWarnings("unchecked")
     static void runTest(String dir, String filename, String label, Object[][] cases) {
@@ -210,15 +227,33 @@ public class TestRunner {
                 EngineImpl eng2 = new EngineImpl();
                 eng2.loadProgram(xmlPath);
                 int maxLvl2 = eng2.getMaxExpandLevel();
-                RunResult result = eng2.run(maxLvl2, inputs);
+                RunResult result = eng2.run(maxLvl2, inputs, new RunOptions(ExecutionBackend.INTERPRETER, BUDGET));
                 long actual = result.y();
-                boolean ok = actual == expected;
+                if (result.outcome() != RunOutcome.COMPLETED) {
+                    print(String.format("  FAIL  inputs=%-18s  expected=%-5d  %s after %d cycles",
+                            inputs.toString(), expected, result.outcome(), result.totalCycles()));
+                    failed++; totalTests++;
+                    continue;
+                }
+
+                // the bytecode backend must produce exactly the same y, variables and cycles
+                EngineImpl eng3 = new EngineImpl();
+                eng3.loadProgram(xmlPath);
+                RunResult compiled = eng3.run(maxLvl2, inputs, new RunOptions(ExecutionBackend.BYTECODE, BUDGET));
+                boolean sameAsCompiled = compiled.equals(result);
+
+                // run() applies counting loops in one go, stepping must end in the same state
+                RunResult stepped = stepThrough(xmlPath, maxLvl2, inputs);
+                boolean sameAsStepped = stepped.equals(result);
+
+                boolean ok = actual == expected && sameAsCompiled && sameAsStepped;
                 print(String.format("  %s  inputs=%-18s  expected=%-5d  got=%-5d  cycles=%-7d  %s",
                         ok ? "PASS" : "FAIL",
                         inputs.toString(),
                         expected, actual,
                         result.totalCycles(),
-                        ok ? "" : "<-- WRONG"));
+                        ok ? "" : !sameAsCompiled ? "<-- BYTECODE DIFFERS: " + compiled
+                                : !sameAsStepped ? "<-- STEPPING DIFFERS: " + stepped : "<-- WRONG"));
                 if (ok) passed++; else failed++;
                 totalTests++;
             } catch (Exception ex) {
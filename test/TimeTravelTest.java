@@ -0,0 +1,165 @@
+import core.engine.EngineImpl;
+import dto.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Time-travel test for the debugger.
+ * Going back (or forward) to any step of a debug session must give exactly the state that
+ * stepping there from the start gives: the instruction index, every variable and the cycles.
+ * A session of a couple of million steps must still go back to any of them in milliseconds.
+ */
+public class TimeTravelTest {
+
+    static final String SEP = "-".repeat(65);
+    static int totalTests = 0, passed = 0, failed = 0;
+
+    // the most steps of a sample program recorded and checked
+    static final int MAX_STEPS = 50_000;
+    static final int JUMPS = 200;
+    static final long LONG_SESSION = 2_000_000;
+    // going back in the long session may take this long at most, per jump
+    static final double MAX_JUMP_MILLIS = 50;
+
+    // L1: INCREASE y, JNZ y L1 - after n steps y is (n + 1) / 2, the index n % 2
+    static final String FOREVER = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <S-Program name="Forever">
+                <S-Instructions>
+                    <S-Instruction type="basic" name="INCREASE">
+                        <S-Variable>y</S-Variable>
+                        <S-Label>L1</S-Label>
+                    </S-Instruction>
+                    <S-Instruction type="basic" name="JUMP_NOT_ZERO">
+                        <S-Variable>y</S-Variable>
+                        <S-Instruction-Arguments>
+                            <S-Instruction-Argument name="JNZLabel" value="L1"/>
+                        </S-Instruction-Arguments>
+                    </S-Instruction>
+                </S-Instructions>
+            </S-Program>
+            """;
+
+    record State(int index, Map<String, Long> variables, long cycles) {}
+
+    public static void main(String[] args) throws Exception {
+        print("=================================================================");
+        print("  S-EMULATOR1  TIME TRAVEL TEST");
+        print("=================================================================");
+
+        String dir = args.length > 0 ? args[0] : "test";
+        Random random = new Random(42);
+        for (String name : List.of("minus", "divide", "quotation", "self-composition")) {
+            EngineImpl engine = load(Files.readString(Path.of(dir, name + ".xml")));
+            for (int level : new int[] { 0, engine.getMaxExpandLevel() }) {
+                print("");
+                print(SEP);
+                print(name.toUpperCase() + "  level " + level);
+                print(SEP);
+                checkJumps(name, engine, level, random);
+            }
+        }
+
+        print("");
+        print(SEP);
+        print("LONG SESSION");
+        print(SEP);
+        checkLongSession(load(FOREVER), random);
+
+        print("");
+        print("=================================================================");
+        print(String.format("  TOTAL: %d   PASSED: %d   FAILED: %d", totalTests, passed, failed));
+        print("=================================================================");
+        if (failed > 0) System.exit(1);
+    }
+
+    static EngineImpl load(String xml) {
+        EngineImpl engine = new EngineImpl();
+        LoadReport report = engine.loadProgramFromContent(xml);
+        if (!report.ok()) {
+            throw new IllegalStateException("load failed: " + report.errors());
+        }
+        return engine;
+    }
+
+    // steps to the end once, remembering every state, then jumps back and forth at random
+    static void checkJumps(String label, EngineImpl engine, int level, Random random) {
+        List<Long> inputs = List.of(7L, 3L);
+        Pair<Map<String, Long>, Integer> start = engine.startDebug(level, inputs);
+        List<State> states = new ArrayList<>();
+        states.add(new State(start.getValue(), start.getKey(), engine.getCycels()));
+        int index = start.getValue();
+        while (index != -1 && states.size() <= MAX_STEPS) {
+            Pair<Map<String, Long>, Integer> step = engine.oneStepInDebug();
+            index = step.getValue();
+            states.add(new State(index, step.getKey(), engine.getCycels()));
+        }
+        int last = states.size() - 1;
+
+        int wrong = 0;
+        for (int i = 0; i < JUMPS; i++) {
+            int target = random.nextInt(last + 1);
+            if (!same(states.get(target), engine.debugGoToStep(target), engine, target)) wrong++;
+        }
+        report(wrong == 0, String.format("%-28s %d random jumps over %d steps, wrong=%d",
+                label + " goto", JUMPS, last, wrong));
+
+        // from the end back to the start one step at a time, and forward again
+        engine.debugGoToStep(last);
+        wrong = 0;
+        for (int target = last - 1; target >= 0; target--) {
+            if (!same(states.get(target), engine.debugStepBack(), engine, target)) wrong++;
+        }
+        for (int target = 1; target <= last; target++) {
+            if (!same(states.get(target), engine.oneStepInDebug(), engine, target)) wrong++;
+        }
+        report(wrong == 0, String.format("%-28s back %d steps and forward again, wrong=%d",
+                label + " back", last, wrong));
+        engine.endDebug();
+    }
+
+    static boolean same(State expected, Pair<Map<String, Long>, Integer> got, EngineImpl engine, long step) {
+        return expected.index() == got.getValue()
+                && expected.variables().equals(got.getKey())
+                && expected.cycles() == engine.getCycels()
+                && engine.debugStepCount() == step;
+    }
+
+    static void checkLongSession(EngineImpl engine, Random random) {
+        engine.startDebug(0, List.of());
+        for (long i = 0; i < LONG_SESSION; i++) {
+            engine.oneStepInDebugChanges();
+        }
+
+        // latest first, so that every jump goes back
+        long[] targets = new long[JUMPS];
+        for (int i = 0; i < JUMPS; i++) {
+            targets[i] = (long) (random.nextDouble() * LONG_SESSION);
+        }
+        Arrays.sort(targets);
+        int wrong = 0;
+        long worstNanos = 0;
+        for (int i = JUMPS - 1; i >= 0; i--) {
+            long target = targets[i];
+            long start = System.nanoTime();
+            Pair<Map<String, Long>, Integer> got = engine.debugGoToStep(target);
+            worstNanos = Math.max(worstNanos, System.nanoTime() - start);
+            long y = got.getKey().getOrDefault("y", -1L);
+            if (y != (target + 1) / 2 || got.getValue() != target % 2) wrong++;
+        }
+        double worstMillis = worstNanos / 1e6;
+        report(wrong == 0 && worstMillis <= MAX_JUMP_MILLIS,
+                String.format("%-28s %d jumps back from step %d, wrong=%d worst=%.2f ms",
+                        "endless loop", JUMPS, LONG_SESSION, wrong, worstMillis));
+        engine.endDebug();
+    }
+
+    static void report(boolean ok, String line) {
+        totalTests++;
+        if (ok) passed++; else failed++;
+        print(String.format("  %s  %s%s", ok ? "PASS" : "FAIL", line, ok ? "" : "  <-- WRONG"));
+    }
+
+    static void print(String s) { System.out.println(s); System.out.flush(); }
+}